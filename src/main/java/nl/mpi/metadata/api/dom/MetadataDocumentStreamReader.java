@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.api.dom;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import nl.mpi.metadata.api.MetadataException;
+import nl.mpi.metadata.api.model.MetadataDocument;
+
+/**
+ * Reader that builds a metadata document directly from a stream of XML, without building an intermediate DOM
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see MetadataDocumentReader
+ */
+public interface MetadataDocumentStreamReader<T extends MetadataDocument> {
+
+    /**
+     * Reads a document from a stream. The caller is responsible for closing the stream afterwards.
+     *
+     * @param documentStream stream to read the document from
+     * @param documentURI URI of the document, used as system id and to resolve relative references. Can be null
+     * @return the document read from the stream
+     * @throws MetadataException in case of a parsing or content error
+     * @throws IOException in case of a reading error
+     */
+    T read(InputStream documentStream, URI documentURI) throws MetadataException, IOException;
+}
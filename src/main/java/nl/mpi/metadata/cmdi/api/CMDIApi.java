@@ -16,6 +16,7 @@
  */
 package nl.mpi.metadata.cmdi.api;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,6 +25,17 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.stream.StreamResult;
 import nl.mpi.metadata.api.MetadataAPI;
@@ -32,6 +44,7 @@ import nl.mpi.metadata.api.MetadataException;
 import nl.mpi.metadata.api.MetadataTypeException;
 import nl.mpi.metadata.api.dom.DomBuildingMode;
 import nl.mpi.metadata.api.dom.MetadataDocumentReader;
+import nl.mpi.metadata.api.dom.MetadataDocumentStreamReader;
 import nl.mpi.metadata.api.dom.MetadataDocumentWriter;
 import nl.mpi.metadata.api.model.MetadataElementAttributeContainer;
 import nl.mpi.metadata.api.type.MetadataDocumentTypeReader;
@@ -42,10 +55,12 @@ import nl.mpi.metadata.cmdi.api.dom.CMDIDocumentReader;
 import nl.mpi.metadata.cmdi.api.dom.CMDIDocumentWriter;
 import nl.mpi.metadata.cmdi.api.dom.CMDIDomBuilder;
 import nl.mpi.metadata.cmdi.api.dom.CMDIResourceProxyReader;
+import nl.mpi.metadata.cmdi.api.dom.CMDIStreamDocumentReader;
 import nl.mpi.metadata.cmdi.api.dom.DOMBuilderFactory;
 import nl.mpi.metadata.cmdi.api.model.Attribute;
 import nl.mpi.metadata.cmdi.api.model.CMDIContainerMetadataElement;
 import nl.mpi.metadata.cmdi.api.model.CMDIDocument;
+import nl.mpi.metadata.cmdi.api.model.CMDIDocumentSummary;
 import nl.mpi.metadata.cmdi.api.model.CMDIMetadataElement;
 import nl.mpi.metadata.cmdi.api.model.CMDIMetadataElementFactory;
 import nl.mpi.metadata.cmdi.api.model.impl.CMDIMetadataElementFactoryImpl;
@@ -54,10 +69,19 @@ import nl.mpi.metadata.cmdi.api.type.CMDIAttributeType;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfileContainer;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileLoadResult;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileStore;
 import nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileContainerImpl;
+import nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileDirectoryStore;
 import nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileReader;
+import nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileRegistry;
 import nl.mpi.metadata.cmdi.api.validation.DefaultCMDIValidator;
+import nl.mpi.metadata.cmdi.util.ByteBufferInputStream;
 import nl.mpi.metadata.cmdi.util.CMDIEntityResolver;
+import nl.mpi.metadata.cmdi.util.HttpDocumentCache;
+import nl.mpi.metadata.cmdi.util.LoadResultHandler;
+import nl.mpi.metadata.cmdi.util.LoadTask;
+import nl.mpi.metadata.cmdi.util.SchemaTypeSystemRegistry;
 import org.apache.xmlbeans.XmlException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,6 +107,25 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
      * CMDIDocumentImpl object
      */
     private final MetadataDocumentReader<CMDIDocument> documentReader;
+    /**
+     * Optional service that deserializes a CMDI document directly from a
+     * stream, without building a DOM first
+     */
+    private volatile MetadataDocumentStreamReader<CMDIDocument> documentStreamReader;
+    /**
+     * Service that reads the header and resource proxies of a CMDI document
+     * without reading its components
+     */
+    private final CMDIStreamDocumentReader summaryReader;
+    /**
+     * Optional cache that makes retrieval of remote documents conditional
+     */
+    private volatile HttpDocumentCache documentCache;
+    /**
+     * Minimum size in bytes of local files that are read through a memory
+     * mapping, negative to disable memory mapping
+     */
+    private volatile long memoryMappingThreshold = -1;
     /**
      * Service that writes a CMDI document to an XML result
      */
@@ -107,6 +150,10 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
      * Extract interface and support arbitrary implementations
      */
     private final CMDIDomBuilder componentBuilder;
+    /**
+     * Compiled schemas, shared by the profile reader and the DOM builder
+     */
+    private final SchemaTypeSystemRegistry typeSystemRegistry;
 
     /**
      * Creates an instance of CMDIApi with a new {@link CMDIEntityResolver} a
@@ -120,17 +167,74 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
     }
     
     public CMDIApi(EntityResolver entityResolver, MetadataValidator<CMDIDocument> cmdiValidator, CMDIMetadataElementFactory elementFactory) {
+        this(entityResolver, cmdiValidator, elementFactory, null);
+    }
+
+    /**
+     * Creates an instance of CMDIApi that keeps the profiles it reads in a
+     * persistent profile store, so that profile schemas do not need to be
+     * compiled again after a restart
+     *
+     * @param entityResolver the EntityResolver to use
+     * @param cmdiValidator the MetadataValidator to use
+     * @param elementFactory the CMDIMetadataElementFactory to use
+     * @param profileStore the profile store to use, can be null
+     * @see CMDIProfileDirectoryStore
+     */
+    public CMDIApi(EntityResolver entityResolver, MetadataValidator<CMDIDocument> cmdiValidator, CMDIMetadataElementFactory elementFactory, CMDIProfileStore profileStore) {
+        this(entityResolver, cmdiValidator, elementFactory, profileStore, null);
+    }
+
+    /**
+     * Creates an instance of CMDIApi that obtains canonical profile instances
+     * from a profile registry, which can be shared with other API instances.
+     * Profiles that are equivalent to a registered profile are then not
+     * compiled again, even if they are read from a different location.
+     *
+     * @param entityResolver the EntityResolver to use
+     * @param cmdiValidator the MetadataValidator to use
+     * @param elementFactory the CMDIMetadataElementFactory to use
+     * @param profileStore the profile store to use, can be null
+     * @param profileRegistry the profile registry to use, can be null
+     * @see CMDIProfileRegistry#getSharedInstance()
+     */
+    public CMDIApi(EntityResolver entityResolver, MetadataValidator<CMDIDocument> cmdiValidator, CMDIMetadataElementFactory elementFactory, CMDIProfileStore profileStore, CMDIProfileRegistry profileRegistry) {
+        this(entityResolver, cmdiValidator, elementFactory, profileStore, profileRegistry, new SchemaTypeSystemRegistry());
+    }
+
+    /**
+     * Creates an instance of CMDIApi that registers and looks up compiled
+     * schemas in the specified type system registry. A
+     * {@link CMDIProfileDirectoryStore} should be constructed with the same
+     * registry, so that documents can be created from restored profiles
+     * without compiling their schemas again.
+     *
+     * @param entityResolver the EntityResolver to use
+     * @param cmdiValidator the MetadataValidator to use
+     * @param elementFactory the CMDIMetadataElementFactory to use
+     * @param profileStore the profile store to use, can be null
+     * @param profileRegistry the profile registry to use, can be null
+     * @param typeSystemRegistry registry of compiled schemas, shared by the
+     * profile reader and the DOM builder
+     * @see CMDIProfileDirectoryStore#CMDIProfileDirectoryStore(java.io.File, org.xml.sax.EntityResolver, nl.mpi.metadata.cmdi.util.SchemaTypeSystemRegistry)
+     */
+    public CMDIApi(EntityResolver entityResolver, MetadataValidator<CMDIDocument> cmdiValidator, CMDIMetadataElementFactory elementFactory, CMDIProfileStore profileStore, CMDIProfileRegistry profileRegistry, SchemaTypeSystemRegistry typeSystemRegistry) {
         this.entityResolver = entityResolver;
         this.cmdiValidator = cmdiValidator;
         this.metadataElementFactory = elementFactory;
+        this.typeSystemRegistry = typeSystemRegistry;
         
         this.domBuilderFactory = new CMDIApiDOMBuilderFactory(entityResolver);
-        this.componentBuilder = new CMDIDomBuilder(entityResolver, domBuilderFactory);
+        // Profile reader and DOM builder share compiled schemas
+        this.componentBuilder = new CMDIDomBuilder(entityResolver, domBuilderFactory, typeSystemRegistry);
         this.documentWriter = new CMDIDocumentWriter(componentBuilder);
         
-        this.profileReader = new CMDIProfileReader(entityResolver, domBuilderFactory);
-        this.profileContainer = new CMDIProfileContainerImpl(profileReader);
+        final CMDIProfileReader cmdiProfileReader = new CMDIProfileReader(entityResolver, domBuilderFactory, typeSystemRegistry);
+        cmdiProfileReader.setProfileRegistry(profileRegistry);
+        this.profileReader = cmdiProfileReader;
+        this.profileContainer = new CMDIProfileContainerImpl(profileReader, profileStore);
         this.documentReader = new CMDIDocumentReader(profileContainer, new CMDIComponentReader(elementFactory), new CMDIResourceProxyReader());
+        this.summaryReader = new CMDIStreamDocumentReader(profileContainer, elementFactory);
     }
 
     /**
@@ -151,8 +255,10 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
         this.documentReader = documentReader;
         
         this.domBuilderFactory = new CMDIApiDOMBuilderFactory(entityResolver);
-        this.componentBuilder = new CMDIDomBuilder(entityResolver, domBuilderFactory);
+        this.typeSystemRegistry = new SchemaTypeSystemRegistry();
+        this.componentBuilder = new CMDIDomBuilder(entityResolver, domBuilderFactory, typeSystemRegistry);
         this.profileContainer = new CMDIProfileContainerImpl(profileReader);
+        this.summaryReader = new CMDIStreamDocumentReader(profileContainer, elementFactory);
     }
     
     @Override
@@ -174,10 +280,8 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
     @Override
     public CMDIDocument getMetadataDocument(URL url) throws IOException, MetadataException {
         logger.debug("Opening stream for {}", url);
-        //final InputStream documentStream;
-        URLConnection openConnection = url.openConnection();
-        final InputStream documentStream = openConnectionCheckRedirects(openConnection);
-        
+        final InputStream documentStream = openDocumentStream(url);
+
         try {
             return getMetadataDocument(url, documentStream);
         } finally {
@@ -201,9 +305,19 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
      * @throws IOException in case of a reading error
      * @throws MetadataException in case of a parsing or content error
      * @see DocumentBuilder#parse(java.io.InputStream, java.lang.String)
+     * @see #setDocumentStreamReader(nl.mpi.metadata.api.dom.MetadataDocumentStreamReader)
      */
     @Override
     public CMDIDocument getMetadataDocument(URL url, InputStream documentStream) throws IOException, MetadataException {
+        final MetadataDocumentStreamReader<CMDIDocument> streamReader = documentStreamReader;
+        if (streamReader != null) {
+            try {
+                logger.debug("Streaming contents of {}", url);
+                return streamReader.read(documentStream, url.toURI());
+            } catch (URISyntaxException usEx) {
+                throw new RuntimeException("URISyntaxException while building document from " + url, usEx);
+            }
+        }
         try {
             logger.debug("Reading DOM for {}", url);
             Document document = domBuilderFactory.newDOMBuilder().parse(documentStream, url.toExternalForm());
@@ -217,6 +331,51 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
         }
     }
     
+    /**
+     * Reads only the header and resource proxies of the metadata document at
+     * the specified URL. The components of the document are not read and its
+     * profile is not loaded, which makes this considerably cheaper than
+     * {@link #getMetadataDocument(java.net.URL)} for clients that only need
+     * to list or index documents.
+     *
+     * @param url location to read the document from
+     * @return a summary of the document at the specified URL
+     * @throws IOException in case of a reading error
+     * @throws MetadataException in case of a parsing or content error
+     * @see #getMetadataDocument(nl.mpi.metadata.cmdi.api.model.CMDIDocumentSummary)
+     */
+    public CMDIDocumentSummary getMetadataDocumentSummary(URL url) throws IOException, MetadataException {
+        logger.debug("Opening stream for summary of {}", url);
+        final InputStream documentStream = openDocumentStream(url);
+        try {
+            return summaryReader.readSummary(documentStream, url.toURI());
+        } catch (URISyntaxException usEx) {
+            // This should not happen, since at this point the stream has already been openend!
+            throw new RuntimeException("URISyntaxException while reading summary from " + url, usEx);
+        } finally {
+            logger.debug("Closing stream for {}", url);
+            documentStream.close();
+        }
+    }
+
+    /**
+     * Reads the full metadata document that a summary was read from
+     *
+     * @param summary summary of the document to read
+     * @return a CMDI document representing the contents at the location of
+     * the summarized document
+     * @throws IOException in case of a reading error
+     * @throws MetadataException in case of a parsing or content error, or if
+     * the summary does not have a document URI
+     * @see #getMetadataDocumentSummary(java.net.URL)
+     */
+    public CMDIDocument getMetadataDocument(CMDIDocumentSummary summary) throws IOException, MetadataException {
+        if (summary.getDocumentURI() == null) {
+            throw new MetadataException("Cannot read full document for summary without a document URI");
+        }
+        return getMetadataDocument(summary.getDocumentURI().toURL());
+    }
+
     @Override
     public CMDIDocument createMetadataDocument(CMDIProfile type) throws MetadataException, MetadataTypeException {
         return createMetadataDocument(type, DomBuildingMode.MANDATORY);
@@ -252,6 +411,98 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
         return getProfileContainer().getProfile(uri);
     }
     
+    /**
+     * Loads the specified profiles in parallel, so that documents based on
+     * these profiles do not have to wait for them to be loaded
+     *
+     * @param profileUris schema locations of the profiles to load
+     * @param executor executor to load the profiles on
+     * @return a result (profile or exception, and duration) for each of the
+     * specified profiles, in the same order
+     * @throws InterruptedException if interrupted while waiting for the
+     * profiles to load
+     * @see CMDIProfileContainer#preloadProfiles(java.util.Collection, java.util.concurrent.Executor)
+     */
+    public List<CMDIProfileLoadResult> preloadProfiles(Collection<URI> profileUris, Executor executor) throws InterruptedException {
+        return getProfileContainer().preloadProfiles(profileUris, executor);
+    }
+
+    /**
+     * Loads a batch of metadata documents in parallel and collects the
+     * results. All results are held in memory until the batch has completed,
+     * use {@link #loadDocuments(java.lang.Iterable, int, nl.mpi.metadata.cmdi.util.LoadResultHandler)}
+     * to process large batches.
+     *
+     * @param documentUrls locations of the documents to load
+     * @param parallelism maximum number of documents to load at the same time
+     * @return a result (document or exception, and duration) for each of the
+     * specified documents, in the same order
+     * @throws InterruptedException if interrupted while waiting for the
+     * documents to load. Loading of the remaining documents is cancelled.
+     * @see CMDIDocumentLoadResult
+     */
+    public List<CMDIDocumentLoadResult> loadDocuments(Iterable<URL> documentUrls, int parallelism) throws InterruptedException {
+        final List<CMDIDocumentLoadResult> results = new ArrayList<CMDIDocumentLoadResult>();
+        loadDocuments(documentUrls, parallelism, new LoadResultHandler<CMDIDocumentLoadResult>() {
+
+            @Override
+            public void handleResult(CMDIDocumentLoadResult result) {
+                results.add(result);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Loads a batch of metadata documents in parallel and passes the result
+     * for each document to a handler, in the order of the specified URLs. At
+     * most {@code parallelism} documents are loaded at the same time. The URLs
+     * are consumed from the iterable as results are handled, and at most
+     * {@code 2 * parallelism} loads are pending or waiting to be handled, so
+     * neither the URLs nor the results of a large (or lazily generated) batch
+     * have to be held in memory.
+     *
+     * Failures are isolated per document: an exception while loading one
+     * document is reported in its result and does not affect the other
+     * documents. Each loader thread reuses its own DOM builder (see
+     * {@link CMDIApiDOMBuilderFactory}) for all of the documents it reads.
+     * Profiles are obtained through the
+     * {@link #getProfileContainer() profile container}, which loads each
+     * profile only once even if it is requested by several loader threads
+     * at the same time.
+     *
+     * @param documentUrls locations of the documents to load
+     * @param parallelism maximum number of documents to load at the same time
+     * @param resultHandler handler for the results, called on the calling
+     * thread
+     * @throws InterruptedException if interrupted while waiting for the
+     * documents to load. Loading of the remaining documents is cancelled.
+     * @see CMDIDocumentLoadResult
+     */
+    public void loadDocuments(Iterable<URL> documentUrls, int parallelism, LoadResultHandler<CMDIDocumentLoadResult> resultHandler) throws InterruptedException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be at least 1, got " + parallelism);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new DocumentLoaderThreadFactory());
+        // Loads that are pending or waiting to be handled, in order of the URLs
+        final int maxPendingLoads = 2 * parallelism;
+        final Queue<Future<CMDIDocumentLoadResult>> pendingLoads = new ArrayDeque<Future<CMDIDocumentLoadResult>>(maxPendingLoads);
+        try {
+            for (URL documentUrl : documentUrls) {
+                if (pendingLoads.size() == maxPendingLoads) {
+                    resultHandler.handleResult(LoadTask.getResult(pendingLoads.remove()));
+                }
+                pendingLoads.add(executor.submit(new DocumentLoadTask(documentUrl)));
+            }
+            while (!pendingLoads.isEmpty()) {
+                resultHandler.handleResult(LoadTask.getResult(pendingLoads.remove()));
+            }
+        } finally {
+            // All tasks have completed unless interrupted, in which case the remaining loads get cancelled
+            executor.shutdownNow();
+        }
+    }
+
     @Override
     public void writeMetadataDocument(CMDIDocument document, StreamResult target) throws IOException, MetadataException, TransformerException {
         getDocumentWriter().write(document, target);
@@ -302,7 +553,55 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
     }
     
     private InputStream openConnectionCheckRedirects(URLConnection c) throws IOException, SecurityException {
-        return openConnectionCheckRedirects(c, 5);
+        return connectCheckRedirects(c, 5).getInputStream();
+    }
+
+    /**
+     * Opens a stream for a document, through the
+     * {@link #setDocumentCache(nl.mpi.metadata.cmdi.util.HttpDocumentCache) document cache}
+     * if one has been set
+     *
+     * @param url location of the document
+     * @return stream to read the document from
+     * @throws IOException
+     * @throws SecurityException
+     */
+    private InputStream openDocumentStream(URL url) throws IOException, SecurityException {
+        final long mappingThreshold = memoryMappingThreshold;
+        if (mappingThreshold >= 0 && "file".equals(url.getProtocol())) {
+            final File file = getLocalFile(url);
+            if (file != null && file.isFile() && file.length() >= mappingThreshold) {
+                logger.debug("Mapping {} into memory", file);
+                return ByteBufferInputStream.map(file);
+            }
+        }
+        final HttpDocumentCache cache = documentCache;
+        if (cache != null) {
+            final URLConnection connection = url.openConnection();
+            cache.addValidators(url, connection);
+            final InputStream documentStream = cache.getResponseStream(url, connectCheckRedirects(connection, 5));
+            if (documentStream != null) {
+                return documentStream;
+            }
+            logger.debug("Requesting {} again without validators", url);
+        }
+        return openConnectionCheckRedirects(url.openConnection());
+    }
+
+    /**
+     *
+     * @param url file URL
+     * @return the local file the URL refers to, or null if it cannot be
+     * represented as a file (e.g. because it has an authority component)
+     */
+    private static File getLocalFile(URL url) {
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException usEx) {
+            return null;
+        } catch (IllegalArgumentException iaEx) {
+            return null;
+        }
     }
 
     /**
@@ -311,20 +610,24 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
      * http://download.java.net/jdk7/archive/b123/docs/technotes/guides/deployment/deployment-guide/upgrade-guide/article-17.html
      *
      * @param c
-     * @return
+     * @return the connection of the final response, of which the input
+     * stream has been opened
      * @throws IOException
      */
-    private InputStream openConnectionCheckRedirects(URLConnection c, int maxRedirects) throws IOException, SecurityException {
+    private URLConnection connectCheckRedirects(URLConnection c, int maxRedirects) throws IOException, SecurityException {
         boolean redir;
         int redirects = 0;
-        InputStream in = null;
         do {
             if (c instanceof HttpURLConnection) {
                 ((HttpURLConnection) c).setInstanceFollowRedirects(false);
             }
+            // Conditional request headers (see HttpDocumentCache) apply to the document at the end of the redirects
+            // and have to be carried over; they cannot be read once the connection has been opened
+            final String ifNoneMatch = c.getRequestProperty("If-None-Match");
+            final String ifModifiedSince = c.getRequestProperty("If-Modified-Since");
             // We want to open the input stream before getting headers
             // because getHeaderField() et al swallow IOExceptions.
-            in = c.getInputStream();
+            c.getInputStream();
             redir = false;
             if (c instanceof HttpURLConnection) {
                 HttpURLConnection http = (HttpURLConnection) c;
@@ -350,11 +653,17 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
                     }
                     redir = true;
                     c = target.openConnection();
+                    if (ifNoneMatch != null) {
+                        c.setRequestProperty("If-None-Match", ifNoneMatch);
+                    }
+                    if (ifModifiedSince != null) {
+                        c.setRequestProperty("If-Modified-Since", ifModifiedSince);
+                    }
                     redirects++;
                 }
             }
         } while (redir);
-        return in;
+        return c;
     }
 
     //<editor-fold defaultstate="collapsed" desc="Getters and setters for services">
@@ -367,6 +676,81 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
         return documentReader;
     }
 
+    /**
+     * Gets the reader used to read CMDI documents directly from a stream
+     *
+     * @return the CMDI document stream reader used, null if documents are
+     * read through a DOM by the {@link #getDocumentReader() document reader}
+     */
+    public MetadataDocumentStreamReader<CMDIDocument> getDocumentStreamReader() {
+        return documentStreamReader;
+    }
+
+    /**
+     * Sets a reader that reads CMDI documents directly from a stream. If set,
+     * {@link #getMetadataDocument(java.net.URL, java.io.InputStream)} uses it
+     * instead of building a DOM and passing that to the
+     * {@link #getDocumentReader() document reader}, which considerably lowers
+     * the memory needed to read large documents.
+     *
+     * @param documentStreamReader the CMDI document stream reader to use, null
+     * to read documents through a DOM
+     * @see CMDIStreamDocumentReader
+     */
+    public void setDocumentStreamReader(MetadataDocumentStreamReader<CMDIDocument> documentStreamReader) {
+        this.documentStreamReader = documentStreamReader;
+    }
+
+    /**
+     * Gets the cache used for retrieving remote documents
+     *
+     * @return the document cache used, null if documents are always
+     * retrieved in full
+     */
+    public HttpDocumentCache getDocumentCache() {
+        return documentCache;
+    }
+
+    /**
+     * Sets a cache for retrieving remote documents. With a cache, documents
+     * that have been retrieved over HTTP before are requested conditionally
+     * and read from the cache if they have not been modified. Documents are
+     * still parsed on every read.
+     *
+     * @param documentCache the document cache to use, null to always
+     * retrieve documents in full
+     */
+    public void setDocumentCache(HttpDocumentCache documentCache) {
+        this.documentCache = documentCache;
+    }
+
+    /**
+     * Gets the minimum size of local files that are read through a memory
+     * mapping
+     *
+     * @return the threshold in bytes, negative if memory mapping is disabled
+     */
+    public long getMemoryMappingThreshold() {
+        return memoryMappingThreshold;
+    }
+
+    /**
+     * Sets the minimum size of local ({@code file:}) documents that are read
+     * through a memory mapping instead of a stream. Mapping saves copying
+     * and system calls for large documents, but has a setup cost that makes
+     * it slower for small ones. Disabled by default, since on some platforms
+     * (notably Windows) a mapped file cannot be overwritten until the mapping
+     * has been garbage collected, which gets in the way of saving a document
+     * that has just been read.
+     *
+     * @param memoryMappingThreshold threshold in bytes, negative to disable
+     * memory mapping
+     * @see ByteBufferInputStream#map(java.io.File)
+     */
+    public void setMemoryMappingThreshold(long memoryMappingThreshold) {
+        this.memoryMappingThreshold = memoryMappingThreshold;
+    }
+
     /**
      * Gets the CMDI Document writer used
      *
@@ -407,5 +791,50 @@ public class CMDIApi implements MetadataAPI<CMDIProfile, CMDIProfileElement, CMD
     public CMDIProfileContainer getProfileContainer() {
         return profileContainer;
     }
+
+    /**
+     * @return the registry of compiled schemas shared by the profile reader
+     * and the DOM builder of this API instance
+     */
+    public SchemaTypeSystemRegistry getTypeSystemRegistry() {
+        return typeSystemRegistry;
+    }
     //</editor-fold>
+
+    /**
+     * Loads a single document for {@link #loadDocuments(java.lang.Iterable, int, nl.mpi.metadata.cmdi.util.LoadResultHandler)}
+     */
+    private class DocumentLoadTask extends LoadTask<URL, CMDIDocument, CMDIDocumentLoadResult> {
+
+        public DocumentLoadTask(URL documentUrl) {
+            super(documentUrl);
+        }
+
+        @Override
+        protected CMDIDocument load(URL documentUrl) throws Exception {
+            return getMetadataDocument(documentUrl);
+        }
+
+        @Override
+        protected CMDIDocumentLoadResult createResult(URL documentUrl, CMDIDocument document, Exception exception, long durationMillis) {
+            return new CMDIDocumentLoadResult(documentUrl, document, exception, durationMillis);
+        }
+    }
+
+    /**
+     * Creates named daemon threads for {@link #loadDocuments(java.lang.Iterable, int, nl.mpi.metadata.cmdi.util.LoadResultHandler)}
+     */
+    private static class DocumentLoaderThreadFactory implements ThreadFactory {
+
+        private final static AtomicInteger batchCount = new AtomicInteger();
+        private final int batchNumber = batchCount.incrementAndGet();
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "CMDIApi-loader-" + batchNumber + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api;
+
+import java.net.URL;
+import nl.mpi.metadata.cmdi.api.model.CMDIDocument;
+import nl.mpi.metadata.cmdi.util.LoadResult;
+
+/**
+ * Outcome of loading a single document as part of a batch, either the loaded document or the exception that caused the
+ * load to fail, together with the time it took
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see CMDIApi#loadDocuments(java.lang.Iterable, int)
+ */
+public class CMDIDocumentLoadResult extends LoadResult<URL, CMDIDocument> {
+
+    /**
+     *
+     * @param documentUrl location of the document
+     * @param document loaded document, null if loading failed
+     * @param exception exception that caused loading to fail, null if loading succeeded
+     * @param durationMillis time spent loading the document, in milliseconds
+     */
+    public CMDIDocumentLoadResult(URL documentUrl, CMDIDocument document, Exception exception, long durationMillis) {
+        super(documentUrl, document, exception, durationMillis);
+    }
+
+    public URL getDocumentUrl() {
+        return getKey();
+    }
+
+    /**
+     *
+     * @return the loaded document, null if loading failed
+     */
+    public CMDIDocument getDocument() {
+        return getValue();
+    }
+}
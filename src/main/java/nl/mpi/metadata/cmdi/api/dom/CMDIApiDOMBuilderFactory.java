@@ -22,34 +22,79 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.xml.sax.EntityResolver;
 
 /**
+ * DOM builder factory for the CMDI API. The underlying {@link DocumentBuilderFactory} is looked up and configured only
+ * once. By default, builders are reused: each thread gets its own builder, which is reset and reconfigured every time it
+ * is handed out. A builder obtained from this factory should therefore not be passed on to other threads, and should not
+ * be used anymore after another builder has been requested on the same thread.
  *
  * @author Twan Goosen <twan.goosen@mpi.nl>
  */
 public class CMDIApiDOMBuilderFactory implements DOMBuilderFactory {
 
     private final EntityResolver entityResolver;
+    private final boolean reuseBuilders;
+    private final ThreadLocal<DocumentBuilder> threadBuilders = new ThreadLocal<DocumentBuilder>();
+    private volatile DocumentBuilderFactory documentBuilderFactory;
 
+    /**
+     * Creates a DOM builder factory that reuses builders per thread
+     *
+     * @param entityResolver entity resolver to configure on the builders, can be null
+     */
     public CMDIApiDOMBuilderFactory(EntityResolver entityResolver) {
+	this(entityResolver, true);
+    }
+
+    /**
+     *
+     * @param entityResolver entity resolver to configure on the builders, can be null
+     * @param reuseBuilders whether to reuse builders per thread; if false, a new builder is created on every call to
+     * {@link #newDOMBuilder()}
+     */
+    public CMDIApiDOMBuilderFactory(EntityResolver entityResolver, boolean reuseBuilders) {
 	this.entityResolver = entityResolver;
+	this.reuseBuilders = reuseBuilders;
     }
 
     /**
-     * Creates a fresh instance of DocumentBuilder. A new factory is requested from the DocumentBuilderFactory, which then gets
-     * configured by {@code configureDocumentBuilderFactory(DocumentBuilderFactory)} . On this factory {@code newDocumentBuilder()} is
-     * called. The resulting
-     * builder gets configured by {@code configureDocumentBuilder(DocumentBuilder)} and is then returned.
+     * Gets a configured DocumentBuilder. If builders are reused, the builder that was previously handed out on the
+     * current thread gets reset and reconfigured by {@code configureDocumentBuilder(DocumentBuilder)}. Otherwise, a new
+     * builder is created from the (once configured) factory and then configured by
+     * {@code configureDocumentBuilder(DocumentBuilder)}.
      *
-     * @return a newly instantiated and configured DocumentBuilder from the DocumentBuilderFactory
+     * @return a configured DocumentBuilder, confined to the current thread
      * @see DocumentBuilderFactory
      * @see #configureDocumentBuilderFactory(javax.xml.parsers.DocumentBuilderFactory)
      * @see #configureDocumentBuilder(javax.xml.parsers.DocumentBuilder)
      */
     @Override
     public DocumentBuilder newDOMBuilder() {
+	if (!reuseBuilders) {
+	    return createDOMBuilder();
+	}
+	final DocumentBuilder threadBuilder = threadBuilders.get();
+	if (threadBuilder != null) {
+	    try {
+		threadBuilder.reset();
+		configureDocumentBuilder(threadBuilder);
+		return threadBuilder;
+	    } catch (UnsupportedOperationException uoEx) {
+		// Implementation does not support reset, fall back to a new builder
+	    }
+	}
+	final DocumentBuilder documentBuilder = createDOMBuilder();
+	threadBuilders.set(documentBuilder);
+	return documentBuilder;
+    }
+
+    private DocumentBuilder createDOMBuilder() {
 	try {
-	    final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-	    configureDocumentBuilderFactory(factory);
-	    DocumentBuilder documentBuilder = factory.newDocumentBuilder();
+	    final DocumentBuilderFactory factory = getDocumentBuilderFactory();
+	    final DocumentBuilder documentBuilder;
+	    // Factories are not guaranteed to be thread-safe
+	    synchronized (factory) {
+		documentBuilder = factory.newDocumentBuilder();
+	    }
 	    configureDocumentBuilder(documentBuilder);
 	    return documentBuilder;
 	} catch (ParserConfigurationException pcEx) {
@@ -57,8 +102,23 @@ public class CMDIApiDOMBuilderFactory implements DOMBuilderFactory {
 	}
     }
 
+    private DocumentBuilderFactory getDocumentBuilderFactory() {
+	DocumentBuilderFactory factory = documentBuilderFactory;
+	if (factory == null) {
+	    synchronized (this) {
+		factory = documentBuilderFactory;
+		if (factory == null) {
+		    factory = DocumentBuilderFactory.newInstance();
+		    configureDocumentBuilderFactory(factory);
+		    documentBuilderFactory = factory;
+		}
+	    }
+	}
+	return factory;
+    }
+
     /**
-     * Configures a newly instantiated document factory. This gets called from {@code newDOMBuilder()} in this implementation
+     * Configures a newly instantiated document factory. This gets called once, the first time a builder is requested
      *
      * @param factory a new instance of DocumentFactory
      * @see #newDOMBuilder()
@@ -69,9 +129,10 @@ public class CMDIApiDOMBuilderFactory implements DOMBuilderFactory {
     }
 
     /**
-     * Configures a newly instantiated document builder. This gets called from {@code newDOMBuilder()} in this implementation
+     * Configures a newly instantiated or reset document builder. This gets called from {@code newDOMBuilder()} in this
+     * implementation
      *
-     * @param builder a new instance of DocumentBuilder
+     * @param builder a new or reset instance of DocumentBuilder
      * @see #newDOMBuilder()
      */
     protected void configureDocumentBuilder(final DocumentBuilder builder) {
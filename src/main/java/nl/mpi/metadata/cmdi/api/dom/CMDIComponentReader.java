@@ -29,6 +29,8 @@ import nl.mpi.metadata.cmdi.api.model.CMDIMetadataElement;
 import nl.mpi.metadata.cmdi.api.model.CMDIMetadataElementFactory;
 import nl.mpi.metadata.cmdi.api.model.Element;
 import nl.mpi.metadata.cmdi.api.model.MultilingualElement;
+import nl.mpi.metadata.cmdi.api.model.impl.CMDIContainerMetadataElementImpl;
+import nl.mpi.metadata.cmdi.api.model.impl.ChildElementsLoader;
 import nl.mpi.metadata.cmdi.api.type.CMDIAttributeType;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
@@ -39,7 +41,6 @@ import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  *
@@ -49,6 +50,8 @@ public class CMDIComponentReader {
 
     private static Logger logger = LoggerFactory.getLogger(CMDIComponentReader.class);
     private CMDIMetadataElementFactory elementFactory;
+    private final boolean lazy;
+    private CMDIValueInterner valueInterner;
 
     /**
      * Will create a new ComponentReader with the specified CMDIMetadataElementFactory
@@ -56,15 +59,98 @@ public class CMDIComponentReader {
      * @param elementFactory element factory to use for instantiating profile elements
      */
     public CMDIComponentReader(CMDIMetadataElementFactory elementFactory) {
+	this(elementFactory, false);
+    }
+
+    /**
+     * Will create a new ComponentReader with the specified CMDIMetadataElementFactory that optionally reads components
+     * lazily. A lazy reader retains the DOM and only reads the children of a component when they are first accessed,
+     * which makes reading documents of which only the top levels are inspected much cheaper. Requires the element factory
+     * to create {@link CMDIContainerMetadataElementImpl} instances for containers; other containers are read eagerly.
+     *
+     * @param elementFactory element factory to use for instantiating profile elements
+     * @param lazy whether to defer reading the children of components until they are accessed
+     * @see CMDIContainerMetadataElementImpl#setChildElementsLoader(nl.mpi.metadata.cmdi.api.model.impl.ChildElementsLoader)
+     */
+    public CMDIComponentReader(CMDIMetadataElementFactory elementFactory, boolean lazy) {
 	this.elementFactory = elementFactory;
+	this.lazy = lazy;
     }
 
+    /**
+     *
+     * @return whether this reader defers reading the children of components until they are accessed
+     */
+    public boolean isLazy() {
+	return lazy;
+    }
+
+    /**
+     *
+     * @return the interner used to share element values, languages and attribute values between documents, null if none
+     */
+    public CMDIValueInterner getValueInterner() {
+	return valueInterner;
+    }
+
+    /**
+     * Sets the interner used to share element values, languages and attribute values between documents. Defaults to
+     * none. Can be set to the {@link CMDIValueInterner#getSharedInstance() shared instance} to share values between
+     * all readers.
+     *
+     * @param valueInterner interner to use, null to not intern
+     */
+    public void setValueInterner(CMDIValueInterner valueInterner) {
+	this.valueInterner = valueInterner;
+    }
+
+    /**
+     * Reads the components of a CMDI DOM into a CMDI document, navigating the DOM directly to find the root component node
+     *
+     * @param cmdiDocument CMDI document to read components into
+     * @param domDocument DOM to read components from
+     * @throws DOMException
+     * @throws MetadataException if the root component node is not found or content does not match the profile
+     */
+    public void readComponents(final CMDIDocument cmdiDocument, final Document domDocument) throws DOMException, MetadataException {
+	final CMDIProfile profile = cmdiDocument.getType();
+	final Node rootComponentNode = getRootComponentNode(profile, domDocument);
+	readElement(rootComponentNode, cmdiDocument, profile);
+    }
+
+    /**
+     * Reads the components of a CMDI DOM into a CMDI document, using XPath to find the root component node
+     *
+     * @param cmdiDocument CMDI document to read components into
+     * @param domDocument DOM to read components from
+     * @param xPath XPath object for the DOM
+     * @throws DOMException
+     * @throws MetadataException if the root component node is not found or content does not match the profile
+     * @see #readComponents(nl.mpi.metadata.cmdi.api.model.CMDIDocument, org.w3c.dom.Document)
+     */
     public void readComponents(final CMDIDocument cmdiDocument, final Document domDocument, final XPath xPath) throws DOMException, MetadataException {
 	final Node rootComponentNode = getRootComponentNode(cmdiDocument, domDocument, xPath);
 	final CMDIProfile profile = cmdiDocument.getType();
 	readElement(rootComponentNode, cmdiDocument, profile);
     }
 
+    /**
+     * Finds the root component node (CMD/Components/[profile root]) by navigating the DOM
+     *
+     * @param profile profile of the document
+     * @param domDocument DOM to find the root component node in
+     * @return the root component node
+     * @throws MetadataException if the root component node is not found
+     */
+    public static Node getRootComponentNode(final CMDIProfile profile, final Document domDocument) throws MetadataException {
+	final Node componentsNode = CMDIDomNavigation.getCMDChildElement(CMDIDomNavigation.getCMDElement(domDocument), CMDIConstants.CMD_COMPONENTS_NODE_NAME);
+	final Node rootComponentNode = CMDIDomNavigation.getCMDChildElement(componentsNode, profile.getName());
+	if (rootComponentNode == null) {
+	    throw new MetadataException(String.format("Root component node not found at specified path: %1$s", profile.getPathString()));
+	}
+	return rootComponentNode;
+    }
+
     public static Node getRootComponentNode(final CMDIDocument cmdiDocument, final Document domDocument, final XPath xPath) throws MetadataException {
 	final String rootComponentNodePath = cmdiDocument.getType().getPathString();
 	try {
@@ -87,8 +173,12 @@ public class CMDIComponentReader {
     private void readElement(final Node domNode, final CMDIMetadataElement element, final CMDIProfileElement type) throws MetadataException {
 	if (element instanceof CMDIContainerMetadataElement) {
 	    if (type instanceof ComponentType) {
-		logger.debug("Reading child elements for component");
-		readChildElements(domNode, (CMDIContainerMetadataElement) element, (ComponentType) type);
+		if (lazy && element instanceof CMDIContainerMetadataElementImpl) {
+		    ((CMDIContainerMetadataElementImpl) element).setChildElementsLoader(new DomChildElementsLoader(domNode, (ComponentType) type));
+		} else {
+		    logger.debug("Reading child elements for component");
+		    readChildElements(domNode, (CMDIContainerMetadataElement) element, (ComponentType) type);
+		}
 	    } else {
 		throw new AssertionError("Found Component node but specified type is not a ComponentType");
 	    }
@@ -99,9 +189,7 @@ public class CMDIComponentReader {
     }
 
     private void readChildElements(final Node parentNode, final CMDIContainerMetadataElement parentElement, final ComponentType parentType) throws MetadataException {
-	NodeList childNodes = parentNode.getChildNodes();
-	for (int i = 0; i < childNodes.getLength(); i++) {
-	    final Node childNode = childNodes.item(i);
+	for (Node childNode = parentNode.getFirstChild(); childNode != null; childNode = childNode.getNextSibling()) {
 	    if (childNode instanceof org.w3c.dom.Element) {
 		logger.debug("Found DOM Element node {}, will create CMDI metadata element", childNode);
 		CMDIProfileElement childType = parentType.getType(childNode.getLocalName());
@@ -118,38 +206,75 @@ public class CMDIComponentReader {
     }
 
     private CMDIMetadataElement createElementInstance(final CMDIContainerMetadataElement parentElement, final Node instanceNode, final CMDIProfileElement type) throws AssertionError {
-	CMDIMetadataElement elementInstance = elementFactory.createNewMetadataElement(parentElement, type);
+	CMDIMetadataElement elementInstance = createElementInstance(parentElement, type);
 	if (elementInstance instanceof Element) {
-	    ((Element) elementInstance).setValue(instanceNode.getTextContent());
+	    ((Element) elementInstance).setValue(internElementValue(type, instanceNode.getTextContent()));
 	}
 	return elementInstance;
     }
 
+    /**
+     * Interns the value of an element through the value interner of this reader, if set
+     *
+     * @param type type of the element
+     * @param value value read for the element
+     * @return value to set on the element
+     */
+    String internElementValue(final CMDIProfileElement type, final String value) {
+	final CMDIValueInterner interner = valueInterner;
+	return interner == null ? value : interner.internElementValue(type, value);
+    }
+
+    /**
+     * Creates a new, empty metadata element instance of the specified type through the element factory of this reader
+     *
+     * @param parentElement parent of the new element
+     * @param type type of the new element
+     * @return new element instance, not yet added to its parent
+     */
+    CMDIMetadataElement createElementInstance(final CMDIContainerMetadataElement parentElement, final CMDIProfileElement type) {
+	return elementFactory.createNewMetadataElement(parentElement, type);
+    }
+
     private void readAttributes(Node instanceNode, CMDIMetadataElement metadataElement, CMDIProfileElement metadataType) {
 	final NamedNodeMap attributesMap = instanceNode.getAttributes();
 	if (attributesMap.getLength() > 0) {
 	    for (MetadataElementAttributeType attributeType : metadataType.getAllAttributes()) {
 		final Node attributeNode = getAttributeNodeByType(attributesMap, attributeType);
 		if (attributeNode != null) {
-		    final String localName = attributeNode.getLocalName();
-		    // What kind of attribute is it?
-		    if (CMDIConstants.CMD_RESOURCE_PROXY_REFERENCE_ATTRIBUTE.equals(localName)) {
-			// Attribute is resource proxy reference
-			readProxyReferenceAttribute(attributeNode, metadataElement);
-		    } else if (metadataElement instanceof MultilingualElement
-			    && CMDIConstants.CMD_ELEMENT_LANGUAGE_ATTRIBUTE_NAMESPACE_URI.equals(attributeNode.getNamespaceURI())
-			    && CMDIConstants.CMD_ELEMENT_LANGUAGE_ATTRIBUTE_NAME.equals(localName)) {
-			// Attribute is language specification for multilingual
-			readLanguageAttribute(attributeNode, (MultilingualElement) metadataElement);
-		    } else {
-			// Other attribute, add as element attribute
-			readElementAttribute((CMDIAttributeType) attributeType, attributeNode, metadataElement);
-		    }
+		    readAttribute(metadataElement, attributeType, attributeNode.getNodeValue());
 		}
 	    }
 	}
     }
 
+    /**
+     * Reads the value of an attribute of a metadata element. Depending on the attribute type, the value is interpreted as
+     * a list of resource proxy references, as the language of a {@link MultilingualElement} or as a regular element
+     * attribute.
+     *
+     * @param metadataElement element to read the attribute value into
+     * @param attributeType type of the attribute that was found on the element
+     * @param value value of the attribute
+     */
+    void readAttribute(CMDIMetadataElement metadataElement, MetadataElementAttributeType attributeType, String value) {
+	final String localName = attributeType.getName();
+	// What kind of attribute is it?
+	if (CMDIConstants.CMD_RESOURCE_PROXY_REFERENCE_ATTRIBUTE.equals(localName)) {
+	    // Attribute is resource proxy reference
+	    readProxyReferenceAttribute(value, metadataElement);
+	} else if (metadataElement instanceof MultilingualElement
+		&& CMDIConstants.CMD_ELEMENT_LANGUAGE_ATTRIBUTE_NAMESPACE_URI.equals(attributeType.getNamespaceURI())
+		&& CMDIConstants.CMD_ELEMENT_LANGUAGE_ATTRIBUTE_NAME.equals(localName)) {
+	    // Attribute is language specification for multilingual
+	    final CMDIValueInterner interner = valueInterner;
+	    ((MultilingualElement) metadataElement).setLanguage(interner == null ? value : interner.intern(value));
+	} else {
+	    // Other attribute, add as element attribute
+	    readElementAttribute((CMDIAttributeType) attributeType, value, metadataElement);
+	}
+    }
+
     private Node getAttributeNodeByType(NamedNodeMap attributesMap, MetadataElementAttributeType attributeType) throws DOMException {
 	final String namespaceURI = attributeType.getNamespaceURI();
 	final String name = attributeType.getName();
@@ -160,22 +285,39 @@ public class CMDIComponentReader {
 	}
     }
 
-    private void readLanguageAttribute(Node attributeNode, MultilingualElement metadataElement) throws DOMException {
-	final String elementLanguage = attributeNode.getNodeValue();
-	metadataElement.setLanguage(elementLanguage);
-    }
-
-    private void readProxyReferenceAttribute(Node attributeNode, CMDIMetadataElement metadataElement) throws DOMException {
-	// Split reference list (which is the node value) on whitespace
-	final String[] refs = attributeNode.getNodeValue().split("\\s+");
+    private void readProxyReferenceAttribute(String value, CMDIMetadataElement metadataElement) {
+	// Split reference list (which is the attribute value) on whitespace
+	final String[] refs = value.split("\\s+");
 	for (String ref : refs) {
 	    metadataElement.addDocumentResourceProxyReference(ref);
 	}
     }
 
-    private void readElementAttribute(CMDIAttributeType attributeType, Node attributeNode, CMDIMetadataElement metadataElement) throws DOMException {
+    /**
+     * Loads the children of a container from the DOM node it was read from. Holds on to the DOM until the children have
+     * been loaded.
+     */
+    private class DomChildElementsLoader implements ChildElementsLoader {
+
+	private final Node domNode;
+	private final ComponentType type;
+
+	public DomChildElementsLoader(Node domNode, ComponentType type) {
+	    this.domNode = domNode;
+	    this.type = type;
+	}
+
+	@Override
+	public void loadChildElements(CMDIContainerMetadataElement container) throws MetadataException {
+	    logger.debug("Reading child elements for component {}", type.getName());
+	    readChildElements(domNode, container, type);
+	}
+    }
+
+    private void readElementAttribute(CMDIAttributeType attributeType, String value, CMDIMetadataElement metadataElement) {
 	final Attribute<String> attribute = elementFactory.createAttribute(metadataElement, attributeType);
-	attribute.setValue(attributeNode.getNodeValue());
+	final CMDIValueInterner interner = valueInterner;
+	attribute.setValue(interner == null ? value : interner.internFreeText(value));
 	metadataElement.addAttribute(attribute);
     }
 }
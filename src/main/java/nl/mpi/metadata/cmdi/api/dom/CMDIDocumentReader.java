@@ -20,9 +20,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import nl.mpi.metadata.api.MetadataDocumentException;
 import nl.mpi.metadata.api.MetadataException;
 import nl.mpi.metadata.api.dom.MetadataDocumentReader;
@@ -39,7 +37,6 @@ import org.slf4j.LoggerFactory;
 import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * Implementation of metadata document reader for CMDI documents.
@@ -49,7 +46,6 @@ import org.w3c.dom.NodeList;
 public class CMDIDocumentReader implements MetadataDocumentReader<CMDIDocument> {
 
     private static final Logger logger = LoggerFactory.getLogger(CMDIDocumentReader.class);
-    private static final CMDINamespaceContext CMDI_NAMESPACE_CONTEXT = new CMDINamespaceContext();
     private final CMDIProfileContainer profileContainer;
     private final CMDIComponentReader componentReader;
     private final CMDIResourceProxyReader resourceReader;
@@ -90,46 +86,30 @@ public class CMDIDocumentReader implements MetadataDocumentReader<CMDIDocument>
      */
     @Override
     public CMDIDocument read(final Document document, final URI documentURI) throws MetadataException, DOMException, IOException {
-	final XPath xPath = XPathFactory.newInstance().newXPath();
-	// set namespace context so that 'cmd' and 'xsi' prefixes get mapped to the corresponding namespaces properly
-	xPath.setNamespaceContext(CMDI_NAMESPACE_CONTEXT);
-
 	logger.debug("Getting profile for {}", documentURI);
-	final CMDIProfile profile = getProfileForDocument(document, documentURI, xPath);
+	final CMDIProfile profile = getProfileForDocument(document, documentURI);
 	logger.debug("Creating document for {}", documentURI);
-	final CMDIDocument cmdiDocument = createCMDIDocument(xPath, document, documentURI, profile);
+	final CMDIDocument cmdiDocument = createCMDIDocument(document, documentURI, profile);
 	logger.debug("Finished reading {}: {}", cmdiDocument);
 
 	logger.debug("Reading header for {}", documentURI);
-	readHeader(cmdiDocument, document, xPath);
+	readHeader(cmdiDocument, document);
 	
 	logger.debug("Reading resource proxies for {}", documentURI);
-	resourceReader.readResourceProxies(cmdiDocument, document, xPath);
+	resourceReader.readResourceProxies(cmdiDocument, document);
 	
 	logger.debug("Reading components for {}", documentURI);
-	componentReader.readComponents(cmdiDocument, document, xPath);
+	componentReader.readComponents(cmdiDocument, document);
 
 	cmdiDocument.setAllClean();
 	return cmdiDocument;
     }
 
-    private CMDIDocument createCMDIDocument(final XPath xPath, final Document document, URI documentURI, final CMDIProfile profile) throws MetadataException {
-	final String rootComponentNodePath = profile.getPathString();
-	try {
-	    final Node rootComponentNode = (Node) xPath.evaluate(rootComponentNodePath, document, XPathConstants.NODE);
-
-	    if (rootComponentNode == null) {
-		throw new MetadataException(String.format("Root component node not found at specified path: %1$s", rootComponentNodePath));
-	    }
-
-	    logger.debug("Found documentNode at {}", rootComponentNodePath);
-	    //TODO: Use factory
-	    return new CMDIDocumentImpl(profile, documentURI);
-	} catch (XPathExpressionException ex) {
-	    throw new MetadataException(
-		    String.format("XPathExpressionException while looking up root component node at specified path: %1$s", rootComponentNodePath),
-		    ex);
-	}
+    private CMDIDocument createCMDIDocument(final Document document, URI documentURI, final CMDIProfile profile) throws MetadataException {
+	// Throws exception if root component node is not present
+	CMDIComponentReader.getRootComponentNode(profile, document);
+	//TODO: Use factory
+	return new CMDIDocumentImpl(profile, documentURI);
     }
 
     /**
@@ -140,27 +120,56 @@ public class CMDIDocumentReader implements MetadataDocumentReader<CMDIDocument>
      * @throws MetadataDocumentException
      * @throws IOException
      */
-    private CMDIProfile getProfileForDocument(final Document document, final URI documentURI, final XPath xPath) throws MetadataException, IOException {
+    private CMDIProfile getProfileForDocument(final Document document, final URI documentURI) throws MetadataException, IOException {
 	try {
-	    URI profileURI = getProfileURI(document, xPath);
-	    if (profileURI == null) {
-		throw new MetadataException("No profile URI found in metadata document");
-	    }
-	    if (documentURI != null) {
-		profileURI = documentURI.resolve(profileURI);
-	    }
-	    try {
-		return profileContainer.getProfile(profileURI);
-	    } catch (CMDITypeException ctEx) {
-		throw new MetadataException(String.format("CMDITypeException occurred while trying to retrieve profile $1%s. See nested exception for details.", profileURI), ctEx);
-	    }
-	} catch (XPathExpressionException ex) {
-	    throw new MetadataException("XPathExpressionException while looking for profile URI in metadata document. See nested exception for details.", ex);
+	    return getProfile(profileContainer, getProfileURI(document), documentURI);
 	} catch (URISyntaxException uEx) {
 	    throw new MetadataException("URISyntaxException while looking for profile URI in metadata document. See nested exception for details.", uEx);
 	}
     }
 
+    /**
+     * Loads the profile at the specified location through a {@link CMDIProfileContainer}
+     *
+     * @param profileContainer container to get the profile from
+     * @param profileURI profile URI as specified in the document, can be relative to the document URI
+     * @param documentURI URI of the document, can be null
+     * @return profile referenced by the document
+     * @throws MetadataException if no profile URI was specified or the profile could not be loaded
+     * @throws IOException
+     */
+    static CMDIProfile getProfile(final CMDIProfileContainer profileContainer, URI profileURI, final URI documentURI) throws MetadataException, IOException {
+	if (profileURI == null) {
+	    throw new MetadataException("No profile URI found in metadata document");
+	}
+	if (documentURI != null) {
+	    profileURI = documentURI.resolve(profileURI);
+	}
+	try {
+	    return profileContainer.getProfile(profileURI);
+	} catch (CMDITypeException ctEx) {
+	    throw new MetadataException(String.format("CMDITypeException occurred while trying to retrieve profile $1%s. See nested exception for details.", profileURI), ctEx);
+	}
+    }
+
+    /**
+     * Locates the schemaLocation specification on the CMD root element and extracts the location of the schema specified
+     * for the CMD namespace.
+     *
+     * @param document DOM of document to find schema URI for
+     * @return URI of schema, null if not present
+     * @throws URISyntaxException
+     * @see #getProfileURI(java.lang.String, java.lang.String)
+     */
+    protected URI getProfileURI(final Document document) throws URISyntaxException {
+	// Find the <CMD xsi:schemaLocation="..."> attribute
+	final org.w3c.dom.Element cmdElement = CMDIDomNavigation.getCMDElement(document);
+	if (cmdElement == null || !cmdElement.hasAttributeNS(CMDIConstants.XSI_NAMESPACE, CMDIDomNavigation.XSI_SCHEMA_LOCATION_ATTRIBUTE)) {
+	    return null;
+	}
+	return getProfileURI(cmdElement.getAttributeNS(CMDIConstants.XSI_NAMESPACE, CMDIDomNavigation.XSI_SCHEMA_LOCATION_ATTRIBUTE), cmdElement.getNamespaceURI());
+    }
+
     /**
      * Locates the schemaLocation specification and extracts the location of the schema specified for the CMD namespace.
      *
@@ -177,6 +186,21 @@ public class CMDIDocumentReader implements MetadataDocumentReader<CMDIDocument>
     protected URI getProfileURI(final Document document, final XPath xPath) throws URISyntaxException, XPathExpressionException {
 	// Find the <CMD xsi:schemaLocation="..."> attribute
 	final String schemaLocationValue = xPath.evaluate("/cmd:CMD/@xsi:schemaLocation", document);
+	final Node documentElement = document.getDocumentElement();
+	return getProfileURI(schemaLocationValue, documentElement == null ? null : documentElement.getNamespaceURI());
+    }
+
+    /**
+     * Extracts the location of the schema specified for the document namespace from the value of a schemaLocation
+     * attribute.
+     *
+     * @param schemaLocationValue value of the schemaLocation attribute on the root element, can be null
+     * @param documentNS namespace of the root element, can be null
+     * @return URI of schema, null if not present
+     * @throws URISyntaxException
+     * @see #getProfileURI(org.w3c.dom.Document, javax.xml.xpath.XPath)
+     */
+    static URI getProfileURI(final String schemaLocationValue, final String documentNS) throws URISyntaxException {
 	if (schemaLocationValue != null) {
 	    // SchemaLocation value consists of {namespace,location} pairs. Find CMD namespace and get the location of its schema
 	    final String schemaLocationString = schemaLocationValue.trim();
@@ -188,7 +212,7 @@ public class CMDIDocumentReader implements MetadataDocumentReader<CMDIDocument>
 	    if (schemaLocationTokens.length == 2) {
 		// Output a warning message if namespace does not match document namespace
 		if (logger.isWarnEnabled()) {
-		    final URI documentNSUri = getDocumentNamespace(document);
+		    final URI documentNSUri = getDocumentNamespace(documentNS);
 		    if (!new URI(schemaLocationTokens[0]).equals(documentNSUri)) {
 			logger.warn("Found one schema location for document, but namespace does not match document namespace. "
 				+ "Document namespace is {}, location specified for {}", documentNSUri, schemaLocationTokens[0]);
@@ -196,7 +220,7 @@ public class CMDIDocumentReader implements MetadataDocumentReader<CMDIDocument>
 		}
 		return new URI(schemaLocationTokens[1]);
 	    } else {
-		final URI documentNSUri = getDocumentNamespace(document);
+		final URI documentNSUri = getDocumentNamespace(documentNS);
 		// Multiple (or no (valid)) pairs, iterate and check for document namespace match
 		for (int i = 0; i < schemaLocationTokens.length; i += 2) {
 		    // Check if namespace matches CMD namespace
@@ -211,37 +235,26 @@ public class CMDIDocumentReader implements MetadataDocumentReader<CMDIDocument>
 	return null;
     }
 
-    private URI getDocumentNamespace(final Document document) throws URISyntaxException {
+    private static URI getDocumentNamespace(final String documentNS) throws URISyntaxException {
 	// Try to get document namespace from root element
-	final Node documentElement = document.getDocumentElement();
-	if (documentElement != null) {
-	    final String documentNS = documentElement.getNamespaceURI();
-	    if (documentNS != null) {
-		return new URI(documentNS);
-	    }
+	if (documentNS != null) {
+	    return new URI(documentNS);
 	}
 	logger.warn("Cannot find namespace in document, assuming standard namespace {}", CMDIConstants.CMD_NAMESPACE);
 	return new URI(CMDIConstants.CMD_NAMESPACE);
     }
 
-    private void readHeader(final CMDIDocument cmdiDocument, final Document document, final XPath xPath) throws MetadataDocumentException {
-	try {
-	    // Find the <Header> Element. Should be there!
-	    final Node headerNode = (Node) xPath.evaluate("/cmd:CMD/cmd:Header", document, XPathConstants.NODE);
-	    if (headerNode == null) {
-		throw new MetadataDocumentException(cmdiDocument, "Header node not found in CMDI document");
-	    }
-	    // Get the Header child elements
-	    final NodeList headerChildren = headerNode.getChildNodes();
-	    for (int i = 0; i < headerChildren.getLength(); i++) {
-		final Node headerChild = headerChildren.item(i);
-		if (headerChildren.item(i) instanceof org.w3c.dom.Element) {
-		    addHeaderInformationFromDocument(headerChild, cmdiDocument);
-		}
+    private void readHeader(final CMDIDocument cmdiDocument, final Document document) throws MetadataDocumentException {
+	// Find the <Header> Element. Should be there!
+	final Node headerNode = CMDIDomNavigation.getCMDChildElement(CMDIDomNavigation.getCMDElement(document), CMDIDomNavigation.CMD_HEADER_ELEMENT);
+	if (headerNode == null) {
+	    throw new MetadataDocumentException(cmdiDocument, "Header node not found in CMDI document");
+	}
+	// Get the Header child elements
+	for (Node headerChild = headerNode.getFirstChild(); headerChild != null; headerChild = headerChild.getNextSibling()) {
+	    if (headerChild instanceof org.w3c.dom.Element) {
+		addHeaderInformationFromDocument(headerChild, cmdiDocument);
 	    }
-	} catch (XPathExpressionException ex) {
-	    throw new MetadataDocumentException(cmdiDocument,
-		    "XPathExpressionException while reading header information in document. See nested exception for details.", ex);
 	}
     }
 
@@ -251,6 +264,16 @@ public class CMDIDocumentReader implements MetadataDocumentReader<CMDIDocument>
 	// TODO: Some fields should have different type (e.g. URI or Date)
 	HeaderInfo headerInfo = new HeaderInfo(headerChild.getLocalName(), headerChild.getTextContent());
 	// (CMDI header does not support attributes)
+	addHeaderInformation(cmdiDocument, headerInfo);
+    }
+
+    /**
+     * Puts a header field into the document, logging a warning if the document rejects it
+     *
+     * @param cmdiDocument document to add header information to
+     * @param headerInfo header information read from the document
+     */
+    static void addHeaderInformation(final CMDIDocument cmdiDocument, final HeaderInfo headerInfo) {
 	// Put into metadata document
 	try {
 	    cmdiDocument.putHeaderInformation(headerInfo);
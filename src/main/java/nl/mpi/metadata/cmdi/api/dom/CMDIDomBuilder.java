@@ -54,6 +54,7 @@ import nl.mpi.metadata.cmdi.api.model.MultilingualElement;
 import nl.mpi.metadata.cmdi.api.model.ResourceProxy;
 import nl.mpi.metadata.cmdi.api.type.CMDIAttributeType;
 import nl.mpi.metadata.cmdi.util.CMDIEntityResolver;
+import nl.mpi.metadata.cmdi.util.SchemaTypeSystemRegistry;
 import org.apache.xmlbeans.SchemaProperty;
 import org.apache.xmlbeans.SchemaType;
 import org.apache.xmlbeans.SchemaTypeSystem;
@@ -87,6 +88,7 @@ public class CMDIDomBuilder implements MetadataDOMBuilder<CMDIDocument> {
     private final static Logger logger = LoggerFactory.getLogger(CMDIDomBuilder.class);
     private final EntityResolver entityResolver;
     private final DOMBuilderFactory domBuilderFactory;
+    private final SchemaTypeSystemRegistry typeSystemRegistry;
 
     /**
      * Creates CMDIDomBuilder with a specified EntityResolver
@@ -95,8 +97,23 @@ public class CMDIDomBuilder implements MetadataDOMBuilder<CMDIDocument> {
      * @see #getEntityResolver()
      */
     public CMDIDomBuilder(EntityResolver entityResolver, DOMBuilderFactory domBuilderFactory) {
+        this(entityResolver, domBuilderFactory, new SchemaTypeSystemRegistry());
+    }
+
+    /**
+     * Creates CMDIDomBuilder that takes schema type systems from the
+     * specified registry, so that schemas that have already been compiled
+     * (e.g. by the profile reader) do not need to be compiled again
+     *
+     * @param entityResolver
+     * @param domBuilderFactory
+     * @param typeSystemRegistry registry of compiled schema type systems,
+     * schemas compiled by this builder get registered in it
+     */
+    public CMDIDomBuilder(EntityResolver entityResolver, DOMBuilderFactory domBuilderFactory, SchemaTypeSystemRegistry typeSystemRegistry) {
         this.entityResolver = entityResolver;
         this.domBuilderFactory = domBuilderFactory;
+        this.typeSystemRegistry = typeSystemRegistry;
     }
 
     @Override
@@ -363,6 +380,11 @@ public class CMDIDomBuilder implements MetadataDOMBuilder<CMDIDocument> {
     }
 
     private SchemaType getFirstSchemaType(URI uri) throws FileNotFoundException, XmlException, MalformedURLException, IOException {
+        final SchemaTypeSystem registeredTypeSystem = typeSystemRegistry.getTypeSystem(uri);
+        if (registeredTypeSystem != null) {
+            logger.debug("Using registered type system for {}", uri);
+            return registeredTypeSystem.documentTypes()[0];
+        }
         final InputStream inputStream = CMDIEntityResolver.getInputStreamForURI(entityResolver, uri);
         try {
             //Since we're dealing with xml schema files here the character encoding is assumed to be UTF-8
@@ -370,6 +392,7 @@ public class CMDIDomBuilder implements MetadataDOMBuilder<CMDIDocument> {
             xmlOptions.setCharacterEncoding("UTF-8");
             xmlOptions.setEntityResolver(getEntityResolver());
             SchemaTypeSystem sts = XmlBeans.compileXsd(new XmlObject[]{XmlObject.Factory.parse(inputStream, xmlOptions)}, XmlBeans.getBuiltinTypeSystem(), xmlOptions);
+            typeSystemRegistry.register(uri, sts);
             // there can only be a single root node so we just get the first one, note that the IMDI schema specifies two (METATRANSCRIPT and VocabularyDef)
             return sts.documentTypes()[0];
         } finally {
@@ -433,8 +456,9 @@ public class CMDIDomBuilder implements MetadataDOMBuilder<CMDIDocument> {
 
     private org.w3c.dom.Element appendElementNode(Document workingDocument, String nameSpaceUri, Node parentElement, SchemaProperty schemaProperty, boolean addRequiredAttributes) {
         org.w3c.dom.Element currentElement = workingDocument.createElementNS(schemaProperty.getName().getNamespaceURI(), getPrefixedName(schemaProperty));
-        SchemaType currentSchemaType = schemaProperty.getType();
         if (addRequiredAttributes) {
+            // Only needed when building from a compiled schema; properties of restored profiles have no schema type
+            final SchemaType currentSchemaType = schemaProperty.getType();
             for (SchemaProperty attributesProperty : currentSchemaType.getAttributeProperties()) {
                 if (attributesProperty.getMinOccurs() != null && !attributesProperty.getMinOccurs().equals(BigInteger.ZERO)) {
                     currentElement.setAttributeNS(attributesProperty.getName().getNamespaceURI(), attributesProperty.getName().getLocalPart(), attributesProperty.getDefaultText());
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.dom;
+
+import nl.mpi.metadata.cmdi.api.CMDIConstants;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Helpers for navigating a (namespace aware) CMDI DOM by namespace and local name. These are used instead of XPath
+ * expressions by the readers, since evaluating XPath is relatively expensive for the simple child axis paths needed
+ * to read a CMDI document.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+final class CMDIDomNavigation {
+
+    static final String CMD_ROOT_ELEMENT = "CMD";
+    static final String CMD_HEADER_ELEMENT = "Header";
+    static final String CMD_RESOURCES_ELEMENT = "Resources";
+    static final String CMD_RESOURCE_PROXY_LIST_ELEMENT = "ResourceProxyList";
+    static final String XSI_SCHEMA_LOCATION_ATTRIBUTE = "schemaLocation";
+
+    private CMDIDomNavigation() {
+    }
+
+    /**
+     *
+     * @param document DOM of a CMDI document
+     * @return the document element if it is the CMD root element, otherwise null
+     */
+    static Element getCMDElement(final Document document) {
+        final Element documentElement = document.getDocumentElement();
+        if (isCMDElement(documentElement, CMD_ROOT_ELEMENT)) {
+            return documentElement;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     *
+     * @param parent node to look for the element in
+     * @param localName local name of the child element in the CMD namespace
+     * @return the first child element of the parent with the specified name, null if there is no such child or the
+     * parent is null
+     */
+    static Element getCMDChildElement(final Node parent, final String localName) {
+        if (parent != null) {
+            for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (isCMDElement(child, localName)) {
+                    return (Element) child;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param node node to check, can be null
+     * @param localName local name of the element in the CMD namespace
+     * @return whether the node is an element with the specified name in the CMD namespace
+     */
+    static boolean isCMDElement(final Node node, final String localName) {
+        return node instanceof Element
+                && localName.equals(node.getLocalName())
+                && CMDIConstants.CMD_NAMESPACE.equals(node.getNamespaceURI());
+    }
+}
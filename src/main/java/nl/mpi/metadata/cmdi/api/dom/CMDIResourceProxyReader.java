@@ -46,6 +46,24 @@ import org.w3c.dom.NodeList;
 public class CMDIResourceProxyReader {
 
     private final static Logger logger = LoggerFactory.getLogger(CMDIResourceProxyReader.class);
+    private CMDIValueInterner valueInterner;
+
+    /**
+     *
+     * @return the interner used to share resource types and MIME types between documents, null if none
+     */
+    public CMDIValueInterner getValueInterner() {
+        return valueInterner;
+    }
+
+    /**
+     * Sets the interner used to share resource types and MIME types between documents. Defaults to none.
+     *
+     * @param valueInterner interner to use, null to not intern
+     */
+    public void setValueInterner(CMDIValueInterner valueInterner) {
+        this.valueInterner = valueInterner;
+    }
 
     /**
      * Reads resource proxies from a specified CMDI DOM into the specified CMDI
@@ -56,11 +74,55 @@ public class CMDIResourceProxyReader {
      *
      * @param cmdiDocument CMDI document to add resource proxies to
      * @param domDocument DOM to read resource proxies from
+     * @throws DOMException in case of failure to retrieve node or node content
+     * from DOM
+     * @throws MetadataException if required element or attribute is missing, or
+     * if resource type is not known
+     */
+    public void readResourceProxies(final CMDIDocument cmdiDocument, final Document domDocument) throws DOMException, MetadataException {
+        // Navigate to all CMD/Resources/ResourceProxyList/ResourceProxy elements
+        final Node cmdNode = CMDIDomNavigation.getCMDElement(domDocument);
+        int count = 0;
+        for (Node resourcesNode = cmdNode == null ? null : cmdNode.getFirstChild(); resourcesNode != null; resourcesNode = resourcesNode.getNextSibling()) {
+            if (CMDIDomNavigation.isCMDElement(resourcesNode, CMDIDomNavigation.CMD_RESOURCES_ELEMENT)) {
+                for (Node listNode = resourcesNode.getFirstChild(); listNode != null; listNode = listNode.getNextSibling()) {
+                    if (CMDIDomNavigation.isCMDElement(listNode, CMDIDomNavigation.CMD_RESOURCE_PROXY_LIST_ELEMENT)) {
+                        for (Node proxyNode = listNode.getFirstChild(); proxyNode != null; proxyNode = proxyNode.getNextSibling()) {
+                            if (CMDIDomNavigation.isCMDElement(proxyNode, CMDIConstants.CMD_RESOURCE_PROXY_ELEMENT)) {
+                                readResourceProxy(cmdiDocument, proxyNode);
+                                count++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        logger.debug("Read {} resource proxy nodes in {}", count, cmdiDocument);
+    }
+
+    private void readResourceProxy(final CMDIDocument cmdiDocument, final Node proxyNode) throws DOMException {
+        try {
+            // Construct resource proxy and add it to map in CMDI document
+            cmdiDocument.addDocumentResourceProxy(createResourceProxy(cmdiDocument, proxyNode));
+        } catch (MetadataException mEx) {
+            logger.warn("Skipping resource proxy due to error. See exception for details.", mEx);
+        }
+    }
+
+    /**
+     * Reads resource proxies from a specified CMDI DOM into the specified CMDI
+     * document instance, using XPath to locate the resource proxy nodes and
+     * their content.
+     *
+     * @param cmdiDocument CMDI document to add resource proxies to
+     * @param domDocument DOM to read resource proxies from
      * @param xPath XPath object for the DOM
      * @throws DOMException in case of failure to retrieve node or node content
      * from DOM
      * @throws MetadataException if required element or attribute is missing, or
      * if resource type is not known
+     * @see #readResourceProxies(nl.mpi.metadata.cmdi.api.model.CMDIDocument,
+     * org.w3c.dom.Document)
      */
     public void readResourceProxies(final CMDIDocument cmdiDocument, final Document domDocument, final XPath xPath) throws DOMException, MetadataException {
         try {
@@ -101,20 +163,79 @@ public class CMDIResourceProxyReader {
      */
     protected ResourceProxy createResourceProxy(final CMDIDocument cmdiDocument, final Node proxyNode, final XPath xPath) throws DOMException, MetadataException, XPathExpressionException {
         final Node resourceTypeNode = getResourceTypeNode(proxyNode, xPath);
-        final String resourceType = resourceTypeNode.getTextContent();
-
         final Node resourceRefNode = getResourceRefNode(xPath, proxyNode);
+        return createResourceProxy(proxyNode, resourceTypeNode, resourceRefNode);
+    }
+
+    /**
+     * Creates a ResourceProxy object from a DOM node, navigating the DOM
+     * directly to find the ResourceType and ResourceRef nodes
+     *
+     * @param cmdiDocument document context
+     * @param proxyNode DOM node of the resource proxy
+     * @return new resource proxy based on provided DOM node
+     * @throws DOMException in case of failure to retrieve node or node content
+     * from DOM
+     * @throws MetadataException if required element or attribute is missing
+     * @see #createResourceProxy(nl.mpi.metadata.cmdi.api.model.CMDIDocument,
+     * org.w3c.dom.Node, javax.xml.xpath.XPath)
+     */
+    protected ResourceProxy createResourceProxy(final CMDIDocument cmdiDocument, final Node proxyNode) throws DOMException, MetadataException {
+        final Node resourceTypeNode = CMDIDomNavigation.getCMDChildElement(proxyNode, CMDIConstants.CMD_RESOURCE_PROXY_TYPE_ELEMENT);
+        if (resourceTypeNode == null) {
+            throw new MetadataException("Encountered resource proxy without ResourceType");
+        }
+        final Node resourceRefNode = CMDIDomNavigation.getCMDChildElement(proxyNode, CMDIConstants.CMD_RESOURCE_PROXY_REF_ELEMENT);
+        if (resourceRefNode == null) {
+            throw new MetadataException("Encountered resource proxy without ResourceRef");
+        }
+        return createResourceProxy(proxyNode, resourceTypeNode, resourceRefNode);
+    }
+
+    private ResourceProxy createResourceProxy(final Node proxyNode, final Node resourceTypeNode, final Node resourceRefNode) throws DOMException, MetadataException {
+        final String resourceType = resourceTypeNode.getTextContent();
         final String id = getResourceProxyId(proxyNode);
-        final URI resourceRef = getResourceRef(resourceRefNode, xPath);
+        final URI resourceRef = getResourceRef(resourceRefNode.getTextContent());
         final URI location = getFileLocation(resourceRefNode);
-        final String type = resourceTypeNode.getTextContent();
         final String mimeType = getResourceProxyMimeType(resourceTypeNode);
 
+        return createResourceProxy(id, resourceType, resourceRef, location, mimeType);
+    }
+
+    /**
+     * Creates a ResourceProxy object from the values read for a resource proxy, e.g. by a streaming reader
+     *
+     * @param id identifier of the resource proxy
+     * @param resourceType text content of the ResourceType element
+     * @param resourceRef text content of the ResourceRef element
+     * @param location value of the location attribute of the ResourceRef element, can be null
+     * @param mimeType value of the mimetype attribute of the ResourceType element, can be null
+     * @return new resource proxy based on the provided values
+     * @throws MetadataException if a required value is missing or a URI is invalid
+     * @see #createResourceProxy(nl.mpi.metadata.cmdi.api.model.CMDIDocument, org.w3c.dom.Node, javax.xml.xpath.XPath)
+     */
+    ResourceProxy createResourceProxy(final String id, final String resourceType, final String resourceRef, final String location, final String mimeType) throws MetadataException {
+        if (resourceType == null) {
+            throw new MetadataException("Encountered resource proxy without ResourceType");
+        }
+        if (resourceRef == null) {
+            throw new MetadataException("Encountered resource proxy without ResourceRef");
+        }
+        if (id == null) {
+            throw new MetadataException("Encountered resource proxy without id");
+        }
+        return createResourceProxy(id, resourceType, getResourceRef(resourceRef), getFileLocation(location), mimeType);
+    }
+
+    private ResourceProxy createResourceProxy(final String id, final String type, final URI resourceRef, final URI location, final String mime) {
+        final CMDIValueInterner interner = valueInterner;
+        final String resourceType = interner == null ? type : interner.intern(type);
+        final String mimeType = interner == null ? mime : interner.intern(mime);
         if (CMDIConstants.CMD_RESOURCE_PROXY_TYPE_METADATA.equals(resourceType)) {
             return new MetadataResourceProxy(id, resourceRef, location, mimeType);
         } else {
             // Consider it to be a data resource proxy with the specified type
-            return new DataResourceProxy(id, resourceRef, location, type, mimeType);
+            return new DataResourceProxy(id, resourceRef, location, resourceType, mimeType);
         }
     }
 
@@ -145,8 +266,7 @@ public class CMDIResourceProxyReader {
         }
     }
 
-    private URI getResourceRef(final Node resourceRefNode, final XPath xPath) throws MetadataException, XPathExpressionException, DOMException {
-        final String resourceRef = resourceRefNode.getTextContent();
+    private URI getResourceRef(final String resourceRef) throws MetadataException {
         try {
             return new URI(resourceRef);
         } catch (URISyntaxException usEx) {
@@ -154,16 +274,24 @@ public class CMDIResourceProxyReader {
         }
     }
 
-    private URI getFileLocation(Node resourceRefNode) throws XPathExpressionException, MetadataException {
+    private URI getFileLocation(Node resourceRefNode) throws MetadataException {
         final Node locationAttribute = resourceRefNode.getAttributes().getNamedItemNS(CMDIConstants.CMD_RESOURCE_PROXY_LOCATION_ATTRIBUTE_NAMESPACE, CMDIConstants.CMD_RESOURCE_PROXY_LOCATION_ATTRIBUTE_NAME);
         if (locationAttribute == null) {
             logger.debug("No location attribute on resource proxy {}", resourceRefNode);
             return null;
+        } else {
+            return getFileLocation(locationAttribute.getNodeValue());
+        }
+    }
+
+    private URI getFileLocation(String location) throws MetadataException {
+        if (location == null) {
+            return null;
         } else {
             try {
-                return new URI(locationAttribute.getNodeValue());
+                return new URI(location);
             } catch (URISyntaxException ex) {
-                logger.warn("Failed to create URL for {}", locationAttribute.getNodeValue());
+                logger.warn("Failed to create URL for {}", location);
                 throw new MetadataException("URI syntax exception in ResourceRef location attribute", ex);
             }
         }
@@ -0,0 +1,455 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.dom;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import nl.mpi.metadata.api.MetadataDocumentException;
+import nl.mpi.metadata.api.MetadataException;
+import nl.mpi.metadata.api.dom.MetadataDocumentStreamReader;
+import nl.mpi.metadata.api.model.HeaderInfo;
+import nl.mpi.metadata.api.type.MetadataElementAttributeType;
+import nl.mpi.metadata.cmdi.api.CMDIConstants;
+import nl.mpi.metadata.cmdi.api.model.CMDIContainerMetadataElement;
+import nl.mpi.metadata.cmdi.api.model.CMDIDocument;
+import nl.mpi.metadata.cmdi.api.model.CMDIDocumentSummary;
+import nl.mpi.metadata.cmdi.api.model.CMDIMetadataElement;
+import nl.mpi.metadata.cmdi.api.model.CMDIMetadataElementFactory;
+import nl.mpi.metadata.cmdi.api.model.Element;
+import nl.mpi.metadata.cmdi.api.model.ResourceProxy;
+import nl.mpi.metadata.cmdi.api.model.impl.CMDIDocumentImpl;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileContainer;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streaming implementation of a metadata document reader for CMDI documents. Builds a {@link CMDIDocument} in a single
+ * forward pass over a StAX event stream, so that no DOM of the document needs to be kept in memory while reading.
+ *
+ * The resulting document is equivalent to the one produced by {@link CMDIDocumentReader}: components, elements,
+ * attributes and resource proxies are read with the same {@link CMDIComponentReader} and
+ * {@link CMDIResourceProxyReader} semantics, and the document is in a clean state after reading. Header, resources and
+ * components are read in document order, so resource proxies need to precede the components that refer to them (as
+ * required by the CMDI schema).
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDIStreamDocumentReader implements MetadataDocumentStreamReader<CMDIDocument> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CMDIStreamDocumentReader.class);
+    private final CMDIProfileContainer profileContainer;
+    private final CMDIComponentReader componentReader;
+    private final CMDIResourceProxyReader resourceReader;
+    private final XMLInputFactory inputFactory;
+
+    /**
+     * Creates a streaming CMDI document reader that uses the specified profile container and a new
+     * {@link CMDIComponentReader} and {@link CMDIResourceProxyReader}
+     *
+     * @param profileContainer profile container that should be used to retrieve CMDI profiles
+     * @param elementFactory metadata element factory to use for creating new components and elements
+     */
+    public CMDIStreamDocumentReader(CMDIProfileContainer profileContainer, CMDIMetadataElementFactory elementFactory) {
+        this(profileContainer, new CMDIComponentReader(elementFactory), new CMDIResourceProxyReader());
+    }
+
+    /**
+     * Creates a streaming CMDI document reader that uses the specified profile container, component reader and resource
+     * proxy reader
+     *
+     * @param profileContainer profile container that should be used to retrieve CMDI profiles
+     * @param componentReader component reader that should be used for creating CMDI components and reading attributes
+     * @param resourceReader resource proxy reader that should be used for creating resource proxies
+     */
+    public CMDIStreamDocumentReader(CMDIProfileContainer profileContainer, CMDIComponentReader componentReader, CMDIResourceProxyReader resourceReader) {
+        this.profileContainer = profileContainer;
+        this.componentReader = componentReader;
+        this.resourceReader = resourceReader;
+
+        this.inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    }
+
+    /**
+     * Reads a CMDI document from the specified stream into a new {@link CMDIDocument} instance
+     *
+     * @param documentStream stream to read the document from, will not be closed
+     * @param documentURI URI for the document. Can be null if no identifier is available
+     * @return representation of the read document
+     * @throws MetadataException if the document could not be parsed or an unexpected circumstance is detected while
+     * reading the document
+     * @throws IOException if an I/O error occurs while reading the profile schema through the
+     * {@link CMDIProfileContainer}
+     */
+    @Override
+    public CMDIDocument read(final InputStream documentStream, final URI documentURI) throws MetadataException, IOException {
+        try {
+            final String systemId = documentURI == null ? null : documentURI.toString();
+            final XMLStreamReader reader = inputFactory.createXMLStreamReader(systemId, documentStream);
+            try {
+                return read(reader, documentURI);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException xsEx) {
+            throw new MetadataException("XMLStreamException while reading document " + documentURI, xsEx);
+        }
+    }
+
+    /**
+     * Reads only the header and resource proxies of a CMDI document from the specified stream. Reading stops at the
+     * components of the document, and the profile of the document is not loaded.
+     *
+     * @param documentStream stream to read the document from, will not be closed
+     * @param documentURI URI for the document. Can be null if no identifier is available
+     * @return summary of the document
+     * @throws MetadataException if the document could not be parsed or has no header
+     */
+    public CMDIDocumentSummary readSummary(final InputStream documentStream, final URI documentURI) throws MetadataException {
+        try {
+            final String systemId = documentURI == null ? null : documentURI.toString();
+            final XMLStreamReader reader = inputFactory.createXMLStreamReader(systemId, documentStream);
+            try {
+                return readSummary(reader, documentURI);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException xsEx) {
+            throw new MetadataException("XMLStreamException while reading document " + documentURI, xsEx);
+        } catch (URISyntaxException uEx) {
+            throw new MetadataException("URISyntaxException while looking for profile URI in metadata document. See nested exception for details.", uEx);
+        }
+    }
+
+    private CMDIDocumentSummary readSummary(final XMLStreamReader reader, final URI documentURI) throws XMLStreamException, MetadataException, URISyntaxException {
+        if (nextElement(reader) != XMLStreamConstants.START_ELEMENT || !isCMDElement(reader, CMDIDomNavigation.CMD_ROOT_ELEMENT)) {
+            throw new MetadataException("Root element of document is not a CMD element: " + documentURI);
+        }
+        final String schemaLocationValue = getAttributeValue(reader, CMDIConstants.XSI_NAMESPACE, CMDIDomNavigation.XSI_SCHEMA_LOCATION_ATTRIBUTE);
+        URI profileURI = CMDIDocumentReader.getProfileURI(schemaLocationValue, reader.getNamespaceURI());
+        if (profileURI != null && documentURI != null) {
+            profileURI = documentURI.resolve(profileURI);
+        }
+
+        List<HeaderInfo> headerInformation = null;
+        final List<ResourceProxy> resourceProxies = new ArrayList<ResourceProxy>();
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            if (isCMDElement(reader, CMDIDomNavigation.CMD_HEADER_ELEMENT)) {
+                headerInformation = readHeader(reader, new ArrayList<HeaderInfo>());
+            } else if (isCMDElement(reader, CMDIDomNavigation.CMD_RESOURCES_ELEMENT)) {
+                readResources(reader, resourceProxies);
+            } else if (isCMDElement(reader, CMDIConstants.CMD_COMPONENTS_NODE_NAME)) {
+                // Header and resources precede the components, no need to read any further
+                break;
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        if (headerInformation == null) {
+            throw new MetadataException("Header node not found in CMDI document " + documentURI);
+        }
+        return new CMDIDocumentSummary(documentURI, profileURI, headerInformation, resourceProxies);
+    }
+
+    private CMDIDocument read(final XMLStreamReader reader, final URI documentURI) throws XMLStreamException, MetadataException, IOException {
+        if (nextElement(reader) != XMLStreamConstants.START_ELEMENT || !isCMDElement(reader, CMDIDomNavigation.CMD_ROOT_ELEMENT)) {
+            throw new MetadataException("Root element of document is not a CMD element: " + documentURI);
+        }
+
+        logger.debug("Getting profile for {}", documentURI);
+        final CMDIProfile profile = getProfileForDocument(reader, documentURI);
+        logger.debug("Creating document for {}", documentURI);
+        final CMDIDocument cmdiDocument = new CMDIDocumentImpl(profile, documentURI);
+
+        boolean headerRead = false;
+        boolean componentsRead = false;
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            if (isCMDElement(reader, CMDIDomNavigation.CMD_HEADER_ELEMENT)) {
+                logger.debug("Reading header for {}", documentURI);
+                for (HeaderInfo headerInfo : readHeader(reader, new ArrayList<HeaderInfo>())) {
+                    CMDIDocumentReader.addHeaderInformation(cmdiDocument, headerInfo);
+                }
+                headerRead = true;
+            } else if (isCMDElement(reader, CMDIDomNavigation.CMD_RESOURCES_ELEMENT)) {
+                logger.debug("Reading resource proxies for {}", documentURI);
+                for (ResourceProxy resourceProxy : readResources(reader, new ArrayList<ResourceProxy>())) {
+                    cmdiDocument.addDocumentResourceProxy(resourceProxy);
+                }
+            } else if (isCMDElement(reader, CMDIConstants.CMD_COMPONENTS_NODE_NAME)) {
+                logger.debug("Reading components for {}", documentURI);
+                componentsRead |= readComponents(reader, cmdiDocument, profile);
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        if (!headerRead) {
+            throw new MetadataDocumentException(cmdiDocument, "Header node not found in CMDI document");
+        }
+        if (!componentsRead) {
+            throw new MetadataException(String.format("Root component node not found at specified path: %1$s", profile.getPathString()));
+        }
+
+        cmdiDocument.setAllClean();
+        return cmdiDocument;
+    }
+
+    private CMDIProfile getProfileForDocument(final XMLStreamReader reader, final URI documentURI) throws MetadataException, IOException {
+        final String schemaLocationValue = getAttributeValue(reader, CMDIConstants.XSI_NAMESPACE, CMDIDomNavigation.XSI_SCHEMA_LOCATION_ATTRIBUTE);
+        try {
+            final URI profileURI = CMDIDocumentReader.getProfileURI(schemaLocationValue, reader.getNamespaceURI());
+            return CMDIDocumentReader.getProfile(profileContainer, profileURI, documentURI);
+        } catch (URISyntaxException uEx) {
+            throw new MetadataException("URISyntaxException while looking for profile URI in metadata document. See nested exception for details.", uEx);
+        }
+    }
+
+    /**
+     * Reads the header fields into the provided list. Leaves the reader at the end of the header element.
+     *
+     * @return the provided list
+     */
+    private List<HeaderInfo> readHeader(final XMLStreamReader reader, final List<HeaderInfo> headerInformation) throws XMLStreamException {
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            final String name = reader.getLocalName();
+            headerInformation.add(new HeaderInfo(name, readTextContent(reader)));
+        }
+        return headerInformation;
+    }
+
+    /**
+     * Reads the resource proxies into the provided list, skipping (and logging) resource proxies that cannot be
+     * constructed. Leaves the reader at the end of the resources element.
+     *
+     * @return the provided list
+     */
+    private List<ResourceProxy> readResources(final XMLStreamReader reader, final List<ResourceProxy> resourceProxies) throws XMLStreamException {
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            if (isCMDElement(reader, CMDIDomNavigation.CMD_RESOURCE_PROXY_LIST_ELEMENT)) {
+                while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+                    if (isCMDElement(reader, CMDIConstants.CMD_RESOURCE_PROXY_ELEMENT)) {
+                        final ResourceProxy resourceProxy = readResourceProxy(reader);
+                        if (resourceProxy != null) {
+                            resourceProxies.add(resourceProxy);
+                        }
+                    } else {
+                        skipElement(reader);
+                    }
+                }
+            } else {
+                skipElement(reader);
+            }
+        }
+        return resourceProxies;
+    }
+
+    /**
+     *
+     * @return the resource proxy, or null if it could not be constructed
+     */
+    private ResourceProxy readResourceProxy(final XMLStreamReader reader) throws XMLStreamException {
+        final String id = getAttributeValue(reader, null, CMDIConstants.CMD_RESOURCE_PROXY_ID_ATTRIBUTE);
+        String resourceType = null;
+        String mimeType = null;
+        String resourceRef = null;
+        String location = null;
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            if (resourceType == null && isCMDElement(reader, CMDIConstants.CMD_RESOURCE_PROXY_TYPE_ELEMENT)) {
+                mimeType = getAttributeValue(reader, null, CMDIConstants.CMD_RESOURCE_PROXY_TYPE_MIMETYPE_ATTRIBUTE);
+                resourceType = readTextContent(reader);
+            } else if (resourceRef == null && isCMDElement(reader, CMDIConstants.CMD_RESOURCE_PROXY_REF_ELEMENT)) {
+                location = getAttributeValue(reader, CMDIConstants.CMD_RESOURCE_PROXY_LOCATION_ATTRIBUTE_NAMESPACE, CMDIConstants.CMD_RESOURCE_PROXY_LOCATION_ATTRIBUTE_NAME);
+                resourceRef = readTextContent(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        try {
+            return resourceReader.createResourceProxy(id, resourceType, resourceRef, location, mimeType);
+        } catch (MetadataException mEx) {
+            logger.warn("Skipping resource proxy due to error. See exception for details.", mEx);
+            return null;
+        }
+    }
+
+    /**
+     *
+     * @return whether the root component of the profile was found and read
+     */
+    private boolean readComponents(final XMLStreamReader reader, final CMDIDocument cmdiDocument, final CMDIProfile profile) throws XMLStreamException, MetadataException {
+        boolean rootComponentRead = false;
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            if (!rootComponentRead && isCMDElement(reader, profile.getName())) {
+                readContainer(reader, cmdiDocument, profile);
+                rootComponentRead = true;
+            } else {
+                skipElement(reader);
+            }
+        }
+        return rootComponentRead;
+    }
+
+    /**
+     * Reads the attributes and children of a container element. Expects the reader to be positioned at the start of
+     * the container element, leaves it at the end of the container element.
+     */
+    private void readContainer(final XMLStreamReader reader, final CMDIContainerMetadataElement container, final ComponentType type) throws XMLStreamException, MetadataException {
+        readAttributes(reader, container, type);
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            final CMDIProfileElement childType = type.getType(reader.getLocalName());
+            if (childType == null) {
+                throw new MetadataException(String.format("Cannot infer component type for element: %1$s", reader.getName()));
+            }
+            final CMDIMetadataElement childElement = componentReader.createElementInstance(container, childType);
+            if (childElement instanceof CMDIContainerMetadataElement) {
+                if (!(childType instanceof ComponentType)) {
+                    throw new AssertionError("Found Component node but specified type is not a ComponentType");
+                }
+                container.addChildElement(childElement);
+                readContainer(reader, (CMDIContainerMetadataElement) childElement, (ComponentType) childType);
+            } else {
+                // Attributes have to be read before the text content, which moves the reader past the start element
+                readAttributes(reader, childElement, childType);
+                if (childElement instanceof Element) {
+                    ((Element) childElement).setValue(componentReader.internElementValue(childType, readTextContent(reader)));
+                } else {
+                    skipElement(reader);
+                }
+                container.addChildElement(childElement);
+                // Element is freshly read and has not been altered. Unsetting the default 'dirty' state!
+                childElement.setDirty(false);
+            }
+        }
+        // Container is freshly read and has not been altered. Unsetting the default 'dirty' state!
+        container.setDirty(false);
+    }
+
+    private void readAttributes(final XMLStreamReader reader, final CMDIMetadataElement element, final CMDIProfileElement type) {
+        if (reader.getAttributeCount() > 0) {
+            for (MetadataElementAttributeType attributeType : type.getAllAttributes()) {
+                final String value = getAttributeValue(reader, attributeType.getNamespaceURI(), attributeType.getName());
+                if (value != null) {
+                    componentReader.readAttribute(element, attributeType, value);
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * @param namespaceURI namespace of the attribute, null or empty for attributes without a namespace
+     * @return value of the attribute on the current start element, null if not present
+     */
+    private static String getAttributeValue(final XMLStreamReader reader, final String namespaceURI, final String localName) {
+        final int count = reader.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            if (localName.equals(reader.getAttributeLocalName(i)) && isSameNamespace(namespaceURI, reader.getAttributeNamespace(i))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSameNamespace(final String namespaceURI, final String otherNamespaceURI) {
+        if (namespaceURI == null || namespaceURI.length() == 0) {
+            return otherNamespaceURI == null || otherNamespaceURI.length() == 0;
+        } else {
+            return namespaceURI.equals(otherNamespaceURI);
+        }
+    }
+
+    private static boolean isCMDElement(final XMLStreamReader reader, final String localName) {
+        return localName.equals(reader.getLocalName()) && CMDIConstants.CMD_NAMESPACE.equals(reader.getNamespaceURI());
+    }
+
+    /**
+     * Moves the reader to the next start or end element, skipping text, comments and processing instructions
+     *
+     * @return the type of the event the reader is positioned at, {@link XMLStreamConstants#START_ELEMENT},
+     * {@link XMLStreamConstants#END_ELEMENT} or {@link XMLStreamConstants#END_DOCUMENT}
+     */
+    private static int nextElement(final XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+                return event;
+            }
+        }
+        return XMLStreamConstants.END_DOCUMENT;
+    }
+
+    /**
+     * Reads the text content of the current element, including that of any descendant elements (equivalent to
+     * {@link org.w3c.dom.Node#getTextContent()}). Leaves the reader at the end of the current element.
+     */
+    private static String readTextContent(final XMLStreamReader reader) throws XMLStreamException {
+        String text = "";
+        StringBuilder textBuilder = null;
+        for (int depth = 1; depth > 0;) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    // Most elements have a single (coalesced) text event, only build when there are more
+                    if (textBuilder != null) {
+                        textBuilder.append(reader.getText());
+                    } else if (text.length() == 0) {
+                        text = reader.getText();
+                    } else {
+                        textBuilder = new StringBuilder(text).append(reader.getText());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return textBuilder == null ? text : textBuilder.toString();
+    }
+
+    /**
+     * Skips the current element including all of its content. Leaves the reader at the end of the current element.
+     */
+    private static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+        for (int depth = 1; depth > 0;) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
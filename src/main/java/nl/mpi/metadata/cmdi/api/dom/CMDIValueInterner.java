@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.dom;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
+import nl.mpi.metadata.cmdi.api.type.ControlledVocabularyElementType;
+
+/**
+ * Bounded pool of strings read from CMDI documents, so that equal values of elements, attributes and resource proxies
+ * share a single instance across all documents read with the same interner. Values of controlled vocabulary elements,
+ * language codes, resource types and MIME types are interned regardless of their length; other values only if they are
+ * not longer than the configured maximum value length.
+ *
+ * The pool stops accepting new values once it holds the maximum number of values; values that are not accepted are
+ * returned as is. Interned values are held strongly until the pool is {@link #clear() cleared}. This class is
+ * thread-safe.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see CMDIComponentReader#setValueInterner(nl.mpi.metadata.cmdi.api.dom.CMDIValueInterner)
+ * @see CMDIResourceProxyReader#setValueInterner(nl.mpi.metadata.cmdi.api.dom.CMDIValueInterner)
+ */
+public class CMDIValueInterner {
+
+    /**
+     * Default maximum number of values in the pool
+     */
+    public final static int DEFAULT_MAX_SIZE = 65536;
+    /**
+     * Default maximum length of free text values that get interned
+     */
+    public final static int DEFAULT_MAX_VALUE_LENGTH = 32;
+    private final static CMDIValueInterner sharedInstance = new CMDIValueInterner();
+    private final ConcurrentMap<String, String> values = new ConcurrentHashMap<String, String>();
+    private final int maxSize;
+    private final int maxValueLength;
+
+    /**
+     * Creates an interner with the {@link #DEFAULT_MAX_SIZE default maximum size} and
+     * {@link #DEFAULT_MAX_VALUE_LENGTH default maximum value length}
+     */
+    public CMDIValueInterner() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     *
+     * @param maxSize maximum number of values in the pool
+     * @param maxValueLength maximum length of free text values that get interned, 0 to only intern values of controlled
+     * vocabulary elements, language codes, resource types and MIME types
+     */
+    public CMDIValueInterner(int maxSize, int maxValueLength) {
+        if (maxSize < 0 || maxValueLength < 0) {
+            throw new IllegalArgumentException("Maximum size and value length cannot be negative");
+        }
+        this.maxSize = maxSize;
+        this.maxValueLength = maxValueLength;
+    }
+
+    /**
+     *
+     * @return an interner instance that is shared within the JVM
+     */
+    public static CMDIValueInterner getSharedInstance() {
+        return sharedInstance;
+    }
+
+    /**
+     * Interns a value that is drawn from a limited set, such as a language code, resource type or MIME type
+     *
+     * @param value value to intern, can be null
+     * @return a pooled string equal to the value, or the value itself if it has not been pooled
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        final String existing = values.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (values.size() >= maxSize) {
+            return value;
+        }
+        final String previous = values.putIfAbsent(value, value);
+        return previous == null ? value : previous;
+    }
+
+    /**
+     * Interns the value of an element. Values of {@link ControlledVocabularyElementType controlled vocabulary elements}
+     * are always interned, other values only if they do not exceed the maximum value length.
+     *
+     * @param type type of the element
+     * @param value value of the element, can be null
+     * @return a pooled string equal to the value, or the value itself if it has not been pooled
+     */
+    public String internElementValue(CMDIProfileElement type, String value) {
+        if (type instanceof ControlledVocabularyElementType) {
+            return intern(value);
+        } else {
+            return internFreeText(value);
+        }
+    }
+
+    /**
+     * Interns a value that is not drawn from a limited set, if it does not exceed the maximum value length
+     *
+     * @param value value to intern, can be null
+     * @return a pooled string equal to the value, or the value itself if it has not been pooled
+     */
+    public String internFreeText(String value) {
+        if (value != null && value.length() <= maxValueLength) {
+            return intern(value);
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     *
+     * @return number of values in the pool
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     *
+     * @return maximum number of values in the pool
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     *
+     * @return maximum length of free text values that get interned
+     */
+    public int getMaxValueLength() {
+        return maxValueLength;
+    }
+
+    /**
+     * Removes all values from the pool. Values that have already been read keep referring to the pooled instances.
+     */
+    public void clear() {
+        values.clear();
+    }
+}
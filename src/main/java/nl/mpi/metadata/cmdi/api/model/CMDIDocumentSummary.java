@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.model;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import nl.mpi.metadata.api.model.HeaderInfo;
+import nl.mpi.metadata.cmdi.api.CMDIConstants;
+
+/**
+ * Lightweight view of a CMDI document that only contains its header information and resource proxies. A summary can
+ * be read without loading the profile of the document or reading its components, which makes it suitable for tasks
+ * like link checking that do not need the metadata contents. Use
+ * {@link nl.mpi.metadata.cmdi.api.CMDIApi#getMetadataDocument(nl.mpi.metadata.cmdi.api.model.CMDIDocumentSummary)} to
+ * load the full document.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see nl.mpi.metadata.cmdi.api.CMDIApi#getMetadataDocumentSummary(java.net.URL)
+ */
+public class CMDIDocumentSummary {
+
+    private final URI documentURI;
+    private final URI profileURI;
+    private final List<HeaderInfo> headerInformation;
+    private final Map<String, ResourceProxy> resourceProxies;
+
+    /**
+     *
+     * @param documentURI URI of the document, can be null
+     * @param profileURI location of the profile schema as specified in the document (resolved against the document
+     * URI), can be null
+     * @param headerInformation header information in order of the document
+     * @param resourceProxies resource proxies in order of the document
+     */
+    public CMDIDocumentSummary(URI documentURI, URI profileURI, List<HeaderInfo> headerInformation, List<ResourceProxy> resourceProxies) {
+        this.documentURI = documentURI;
+        this.profileURI = profileURI;
+        this.headerInformation = Collections.unmodifiableList(new ArrayList<HeaderInfo>(headerInformation));
+        final Map<String, ResourceProxy> proxiesMap = new LinkedHashMap<String, ResourceProxy>(); // LinkedHashMap so that order is preserved
+        for (ResourceProxy resourceProxy : resourceProxies) {
+            proxiesMap.put(resourceProxy.getId(), resourceProxy);
+        }
+        this.resourceProxies = Collections.unmodifiableMap(proxiesMap);
+    }
+
+    /**
+     *
+     * @return URI of the summarized document, null if not known
+     */
+    public URI getDocumentURI() {
+        return documentURI;
+    }
+
+    /**
+     *
+     * @return location of the profile schema of the document, null if not specified
+     */
+    public URI getProfileURI() {
+        return profileURI;
+    }
+
+    /**
+     *
+     * @return unmodifiable list of the header information, in order of the document
+     */
+    public List<HeaderInfo> getHeaderInformation() {
+        return headerInformation;
+    }
+
+    /**
+     *
+     * @param name name of the header field
+     * @return the first header information with the specified name, null if not present
+     */
+    public HeaderInfo getHeaderInformation(String name) {
+        for (HeaderInfo headerInfo : headerInformation) {
+            if (headerInfo.getName().equals(name)) {
+                return headerInfo;
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @return value of the MdSelfLink header field, null if not present
+     */
+    public String getSelfLink() {
+        final HeaderInfo selfLink = getHeaderInformation(CMDIConstants.CMD_HEADER_MD_SELF_LINK);
+        return selfLink == null ? null : selfLink.getValue();
+    }
+
+    /**
+     *
+     * @return the resource proxies, in order of the document
+     */
+    public List<ResourceProxy> getResourceProxies() {
+        return new ArrayList<ResourceProxy>(resourceProxies.values());
+    }
+
+    /**
+     *
+     * @param id identifier of the resource proxy
+     * @return the resource proxy with the specified identifier, null if not present
+     */
+    public ResourceProxy getResourceProxy(String id) {
+        return resourceProxies.get(id);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d header fields, %d resource proxies)", documentURI, headerInformation.size(), resourceProxies.size());
+    }
+}
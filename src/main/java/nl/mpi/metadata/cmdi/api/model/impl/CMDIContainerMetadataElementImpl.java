@@ -18,12 +18,11 @@ package nl.mpi.metadata.cmdi.api.model.impl;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import nl.mpi.metadata.api.MetadataElementException;
+import nl.mpi.metadata.api.MetadataException;
 import nl.mpi.metadata.api.events.MetadataElementListener;
 import nl.mpi.metadata.api.model.MetadataElement;
 import nl.mpi.metadata.api.type.ContainedMetadataElementType;
@@ -62,18 +61,26 @@ public abstract class CMDIContainerMetadataElementImpl extends CMDIMetadataEleme
     private static final int PATH_PATTERN_CHILD_PATH_GROUP = 8;
     private static final int PATH_PATTERN_ELEMENT_NAME_GROUP = 4;
     private static final int PATH_PATTERN_ELEMENT_INDEX_GROUP = 6;
+    private static final int INITIAL_CHILDREN_CAPACITY = 4;
     private final ComponentType type;
-    private final List<CMDIMetadataElement> children;
     /**
-     * Map of {type name => child elements}
+     * Child elements in document order. Children are kept ordered by the position of their type among the containable
+     * types of this container, so children of the same type are contiguous and can be found by binary search. Null until
+     * the first child is added.
      */
-    private final Map<String, List<CMDIMetadataElement>> childrenTypeMap;
+    private List<CMDIMetadataElement> children;
+    /**
+     * Loader for children that have not been materialized yet, null if all children have been loaded
+     */
+    private volatile ChildElementsLoader childElementsLoader;
+    /**
+     * Whether the children loader is running; only accessed while holding the lock on the document
+     */
+    private boolean loadingChildElements;
     //private final DisplayValueStrategy displayValueStrategy;
     
     public CMDIContainerMetadataElementImpl(final ComponentType type) {
 	this.type = type;
-	this.children = Collections.synchronizedList(new ArrayList<CMDIMetadataElement>());
-	this.childrenTypeMap = new HashMap<String, List<CMDIMetadataElement>>();
     }
 
     /**
@@ -83,93 +90,105 @@ public abstract class CMDIContainerMetadataElementImpl extends CMDIMetadataEleme
      * @return whether the child was added. Will be false if the child is already registered as a child.
      */
     @Override
-    public synchronized boolean addChildElement(CMDIMetadataElement element) throws MetadataElementException {
-	if (!children.contains(element)) {
-            setDirty(true);
-	    addToChildren(element);
-	    addToChildrenTypeMap(element);
+    public boolean addChildElement(CMDIMetadataElement element) throws MetadataElementException {
+	ensureChildElementsLoaded();
+	synchronized (this) {
+	    if (children == null) {
+		children = new ArrayList<CMDIMetadataElement>(INITIAL_CHILDREN_CAPACITY);
+	    } else if (children.contains(element)) {
+		return false;
+	    }
+	    setDirty(true);
+	    // Insert after existing children of the same type or types that precede it
+	    children.add(getChildrenUpperBound(getTypeIndex(element.getType().getName())), element);
 	    return true;
 	}
-	return false;
     }
 
     /**
-     * Inserts element to {@link CMDIContainerMetadataElementImpl#children} in the appropriate position
      *
-     * @param element element to add
-     * @throws MetadataElementException if {@code children.add(element)} returns false
+     * @param typeName name of a child type
+     * @return position of the type among the containable types of this container, -1 if not containable
      */
-    private synchronized void addToChildren(CMDIMetadataElement element) throws MetadataElementException {
-	// Find insert-before type
-	CMDIMetadataElement insertBeforeElement = getInsertBeforeElement(element);
-	// Insert at valid position
-	if (insertBeforeElement == null) {
-	    // insert at end of list
-	    if (!children.add(element)) {
-		throw new MetadataElementException(this, String.format("Failed to add child lement %1$s", element));
+    private int getTypeIndex(String typeName) {
+	if (type instanceof ComponentTypeImpl) {
+	    // Indexed by name
+	    return ((ComponentTypeImpl) type).getTypeIndex(typeName);
+	}
+	final List<MetadataElementType> containableTypes = type.getContainableTypes();
+	for (int i = 0; i < containableTypes.size(); i++) {
+	    if (containableTypes.get(i).getName().equals(typeName)) {
+		return i;
 	    }
-	} else {
-	    // add before first child of insert-before type
-	    int index = children.indexOf(insertBeforeElement);
-	    children.add(index, element);
 	}
+	return -1;
     }
 
     /**
-     * Finds the existing child the new child should be added <em>before</em>
      *
-     * @param element element to add
-     * @return first element that should supersede specified element. Null if no such element, i.e. the element should be added to the end
+     * @return index of the first child of a type at or after the specified type index
      */
-    private CMDIMetadataElement getInsertBeforeElement(final CMDIMetadataElement element) {
-	final CMDIProfileElement elementType = element.getType();
-	final List<MetadataElementType> parentTypeChildren = elementType.getParent().getContainableTypes();
-	for (int childTypeIndex = parentTypeChildren.indexOf(elementType) + 1; childTypeIndex < parentTypeChildren.size(); childTypeIndex++) {
-	    final MetadataElementType insertBeforeType = parentTypeChildren.get(childTypeIndex);
-	    // See if this element has any children of the current type
-	    final String typeName = insertBeforeType.getName();
-	    final List<CMDIMetadataElement> insertBeforeTypeElements = childrenTypeMap.get(typeName);
-	    if (insertBeforeTypeElements != null && insertBeforeTypeElements.size() > 0) {
-		return insertBeforeTypeElements.get(0);
+    private int getChildrenLowerBound(int typeIndex) {
+	int low = 0;
+	int high = children.size();
+	while (low < high) {
+	    final int middle = (low + high) >>> 1;
+	    if (getTypeIndex(children.get(middle).getType().getName()) < typeIndex) {
+		low = middle + 1;
+	    } else {
+		high = middle;
 	    }
 	}
-	return null;
+	return low;
     }
 
     /**
-     * Inserts element to {@link CMDIContainerMetadataElementImpl#childrenTypeMap} at the end of the list on the appropriate key. Creates a
-     * list
-     * if no value is present yet. Assumes child was not already in map!
      *
-     * @param element element to add
-     * @throws MetadataElementException if {@code elements.add(element)} returns false, for example if child was already in map
+     * @return index of the first child of a type after the specified type index
+     */
+    private int getChildrenUpperBound(int typeIndex) {
+	return getChildrenLowerBound(typeIndex + 1);
+    }
+
+    /**
+     *
+     * @param typeName name of child type
+     * @return the children of the specified type, an empty list if there are none. This is a view that is only valid
+     * until children are added or removed!
      */
-    private synchronized void addToChildrenTypeMap(CMDIMetadataElement element) throws MetadataElementException {
-	final String typeName = element.getType().getName();
-	List<CMDIMetadataElement> elements = childrenTypeMap.get(typeName);
-	if (elements == null) {
-	    elements = new ArrayList<CMDIMetadataElement>();
-	    childrenTypeMap.put(typeName, elements);
+    private List<CMDIMetadataElement> getChildrenOfType(String typeName) {
+	if (children == null) {
+	    return Collections.emptyList();
 	}
-	if (!elements.add(element)) {
-	    throw new MetadataElementException(this, String.format("Failed to add child element to childrenTypeMap %1$s", element));
+	final int typeIndex = getTypeIndex(typeName);
+	if (typeIndex < 0) {
+	    return Collections.emptyList();
 	}
+	return children.subList(getChildrenLowerBound(typeIndex), getChildrenUpperBound(typeIndex));
     }
-    
+
+    /**
+     *
+     * @param child child element
+     * @return index of the child among the children of its type, -1 if it is not a child of this container
+     */
+    int getIndexAmongChildrenOfType(CMDIMetadataElement child) {
+	ensureChildElementsLoaded();
+	synchronized (this) {
+	    return getChildrenOfType(child.getType().getName()).indexOf(child);
+	}
+    }
+
     @Override
-    public synchronized boolean removeChildElement(CMDIMetadataElement element) throws MetadataElementException {
-	if (children.remove(element)) {
-	    setDirty(true);
-	    List<CMDIMetadataElement> elements = childrenTypeMap.get(element.getType().getName());
-	    if (elements == null) {
-		throw new AssertionError("No list in children map for removed child element");
-	    }
-	    if (!elements.remove(element)) {
-		throw new MetadataElementException(this, String.format("Child %1$s was removed but could not be deleted from map", element));
+    public boolean removeChildElement(CMDIMetadataElement element) throws MetadataElementException {
+	ensureChildElementsLoaded();
+	synchronized (this) {
+	    if (children != null && children.remove(element)) {
+		setDirty(true);
+		return true;
+	    } else {
+		return false;
 	    }
-	    return true;
-	} else {
-	    return false;
 	}
     }
     
@@ -198,12 +217,15 @@ public abstract class CMDIContainerMetadataElementImpl extends CMDIMetadataEleme
      * collection
      */
     @Override
-    public synchronized CMDIMetadataElement getChildElement(CMDIProfileElement type, int index) throws IndexOutOfBoundsException {
-	List<CMDIMetadataElement> elements = childrenTypeMap.get(type.getName());
-	if (elements == null) {
-	    return null;
-	} else {
-	    return elements.get(index);
+    public CMDIMetadataElement getChildElement(CMDIProfileElement type, int index) throws IndexOutOfBoundsException {
+	ensureChildElementsLoaded();
+	synchronized (this) {
+	    final List<CMDIMetadataElement> elements = getChildrenOfType(type.getName());
+	    if (elements.isEmpty()) {
+		return null;
+	    } else {
+		return elements.get(index);
+	    }
 	}
     }
 
@@ -273,30 +295,34 @@ public abstract class CMDIContainerMetadataElementImpl extends CMDIMetadataEleme
      * @return child element if match is found. Null if not found.
      * @throws NumberFormatException
      */
-    private synchronized CMDIMetadataElement getChildElement(final String elementName, final String elementIndexString, final String childPath) throws NumberFormatException {
-	final List<CMDIMetadataElement> elements = childrenTypeMap.get(elementName);
-	if (elements != null) {
+    private CMDIMetadataElement getChildElement(final String elementName, final String elementIndexString, final String childPath) throws NumberFormatException {
+	ensureChildElementsLoaded();
+	final CMDIMetadataElement childElement;
+	synchronized (this) {
+	    final List<CMDIMetadataElement> elements = getChildrenOfType(elementName);
+	    if (elements.isEmpty()) {
+		return null;
+	    }
 	    final int elementIndex = (elementIndexString == null || elementIndexString.length() == 0)
 		    ? 0
 		    : Integer.parseInt(elementIndexString) - 1; // In the path, counting starts at 1, so substract to get array index
-	    try {
-		final CMDIMetadataElement childElement = elements.get(elementIndex);
-		if (childPath != null && childPath.length() > 0) {
-		    // Path specifies child path
-		    if (childElement instanceof CMDIContainerMetadataElement) {
-			return ((CMDIContainerMetadataElement) childElement).getChildElement(childPath);
-		    }
-		} else {
-		    // End of path
-		    return childElement;
-		}
-	    } catch (IndexOutOfBoundsException ioobEx) {
+	    if (elementIndex < 0 || elementIndex >= elements.size()) {
 		logger.warn("Requested node has index >= collection size: {}[{}]. Remaining child path:", new Object[]{elementName, elementIndexString, childPath});
-		logger.debug("IndexOutOfBoundsException details:", ioobEx);
 		return null;
 	    }
+	    childElement = elements.get(elementIndex);
+	}
+	// Descend without holding the lock on this container, so that locks are never taken from child to parent
+	if (childPath != null && childPath.length() > 0) {
+	    // Path specifies child path
+	    if (childElement instanceof CMDIContainerMetadataElement) {
+		return ((CMDIContainerMetadataElement) childElement).getChildElement(childPath);
+	    }
+	    return null;
+	} else {
+	    // End of path
+	    return childElement;
 	}
-	return null;
     }
 
     /**
@@ -304,22 +330,39 @@ public abstract class CMDIContainerMetadataElementImpl extends CMDIMetadataEleme
      * @return An <em>unmodifiable</em> copy of the list of children
      */
     @Override
-    public synchronized List<MetadataElement> getChildren() {
-	return Collections.<MetadataElement>unmodifiableList(children);
+    public List<MetadataElement> getChildren() {
+	ensureChildElementsLoaded();
+	synchronized (this) {
+	    if (children == null) {
+		return Collections.emptyList();
+	    }
+	    return Collections.<MetadataElement>unmodifiableList(children);
+	}
     }
-    
+
+    /**
+     *
+     * @return An <em>unmodifiable</em> snapshot of the list of children of the specified type
+     */
     @Override
-    public synchronized List<MetadataElement> getChildren(ContainedMetadataElementType childType) {
-	if (childrenTypeMap.containsKey(childType.getName())) {
-	    return Collections.<MetadataElement>unmodifiableList(childrenTypeMap.get(childType.getName()));
-	} else {
-	    return Collections.emptyList();
+    public List<MetadataElement> getChildren(ContainedMetadataElementType childType) {
+	ensureChildElementsLoaded();
+	synchronized (this) {
+	    final List<CMDIMetadataElement> elements = getChildrenOfType(childType.getName());
+	    if (elements.isEmpty()) {
+		return Collections.emptyList();
+	    } else {
+		return Collections.<MetadataElement>unmodifiableList(new ArrayList<CMDIMetadataElement>(elements));
+	    }
 	}
     }
     
     @Override
     public int getChildrenCount() {
-	return children.size();
+	ensureChildElementsLoaded();
+	synchronized (this) {
+	    return children == null ? 0 : children.size();
+	}
     }
 
     /**
@@ -329,14 +372,79 @@ public abstract class CMDIContainerMetadataElementImpl extends CMDIMetadataEleme
      * @return number of childern of the specified type
      */
     @Override
-    public synchronized int getChildrenCount(CMDIProfileElement childType) {
-	if (childrenTypeMap.containsKey(childType.getName())) {
-	    return childrenTypeMap.get(childType.getName()).size();
-	} else {
-	    return 0;
+    public int getChildrenCount(CMDIProfileElement childType) {
+	ensureChildElementsLoaded();
+	synchronized (this) {
+	    return getChildrenOfType(childType.getName()).size();
 	}
     }
     
+    /**
+     * Defers reading the children of this container to the specified loader, which will be invoked on the first access to
+     * the children. Existing children are kept.
+     *
+     * @param childElementsLoader loader for the children of this container, null to cancel a pending load
+     */
+    public synchronized void setChildElementsLoader(ChildElementsLoader childElementsLoader) {
+	this.childElementsLoader = childElementsLoader;
+    }
+
+    /**
+     *
+     * @return whether the children of this container have been materialized, i.e. no load is pending
+     */
+    public synchronized boolean isChildElementsLoaded() {
+	return childElementsLoader == null;
+    }
+
+    /**
+     * Materializes the children of this container and all of its descendants
+     */
+    public void loadAllChildElements() {
+	ensureChildElementsLoaded();
+	final List<MetadataElement> childrenCopy;
+	synchronized (this) {
+	    childrenCopy = children == null ? Collections.<MetadataElement>emptyList() : new ArrayList<MetadataElement>(children);
+	}
+	for (MetadataElement child : childrenCopy) {
+	    if (child instanceof CMDIContainerMetadataElementImpl) {
+		((CMDIContainerMetadataElementImpl) child).loadAllChildElements();
+	    }
+	}
+    }
+
+    /**
+     * Invokes the pending children loader, if any. Loading is serialized on the containing document, since loaders may
+     * share a source (e.g. a DOM) that is not safe for concurrent access. Must be called <em>before</em> taking the lock
+     * on this container, so that the document lock is never requested while holding the lock on a container; other
+     * threads wait on the document lock until the children are complete. The dirty state of this container is not
+     * affected.
+     *
+     * @throws IllegalStateException if the loader fails
+     */
+    private void ensureChildElementsLoaded() throws IllegalStateException {
+	if (childElementsLoader != null) {
+	    synchronized (getMetadataDocument()) {
+		final ChildElementsLoader loader = childElementsLoader;
+		// Skip if loaded by another thread, or if called back by the loader adding children to this container
+		if (loader != null && !loadingChildElements) {
+		    loadingChildElements = true;
+		    final boolean wasDirty = isDirty();
+		    logger.debug("Loading child elements of {}", this);
+		    try {
+			loader.loadChildElements(this);
+		    } catch (MetadataException mEx) {
+			throw new IllegalStateException(String.format("Failed to load child elements of %1$s", getType().getName()), mEx);
+		    } finally {
+			loadingChildElements = false;
+			childElementsLoader = null;
+		    }
+		    setDirty(wasDirty);
+		}
+	    }
+	}
+    }
+
     @Override
     public void addMetadataElementListener(MetadataElementListener listener) {
 	throw new UnsupportedOperationException("Not supported yet.");
@@ -310,12 +310,16 @@ public class CMDIDocumentImpl extends CMDIContainerMetadataElementImpl implement
      * @return an <em>immutable</em> collection of metadata elements that references the specified proxy. Can be an empty collection, never
      * null.
      */
-    public synchronized Collection<MetadataElement> getResourceProxyReferences(Reference proxy) {
-	final Collection<CMDIMetadataElement> references = resourceProxyReferences.get(proxy);
-	if (references == null) {
-	    return Collections.emptySet();
-	} else {
-	    return Collections.<MetadataElement>unmodifiableCollection(references);
+    public Collection<MetadataElement> getResourceProxyReferences(Reference proxy) {
+	// Elements register their references when they are loaded, so any lazily read elements have to be loaded first
+	loadAllChildElements();
+	synchronized (this) {
+	    final Collection<CMDIMetadataElement> references = resourceProxyReferences.get(proxy);
+	    if (references == null) {
+		return Collections.emptySet();
+	    } else {
+		return Collections.<MetadataElement>unmodifiableCollection(references);
+	    }
 	}
     }
 
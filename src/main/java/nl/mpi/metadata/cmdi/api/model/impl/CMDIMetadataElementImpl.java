@@ -18,13 +18,12 @@ package nl.mpi.metadata.cmdi.api.model.impl;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import nl.mpi.metadata.api.MetadataException;
 import nl.mpi.metadata.api.model.ContainedMetadataElement;
-import nl.mpi.metadata.api.model.MetadataElement;
 import nl.mpi.metadata.api.model.Reference;
 import nl.mpi.metadata.cmdi.api.model.Attribute;
 import nl.mpi.metadata.cmdi.api.model.CMDIMetadataElement;
@@ -41,8 +40,16 @@ import org.slf4j.LoggerFactory;
 public abstract class CMDIMetadataElementImpl implements CMDIMetadataElement {
 
     private final static Logger logger = LoggerFactory.getLogger(CMDIMetadataElementImpl.class);
-    private final Collection<Attribute> attributes;
-    private final List<ResourceProxy> resourceProxies;
+    /**
+     * Most elements have no or very few attributes, so they are kept in an array of exactly the number of attributes
+     * rather than in a collection. The array is replaced on every change (which is rare compared to reading), null while
+     * there are no attributes.
+     */
+    private Attribute[] attributes = null;
+    /**
+     * Allocated on the first added reference
+     */
+    private List<ResourceProxy> resourceProxies = null;
     private CharSequence pathCharSequence = null;
     private boolean dirty = true;
 
@@ -52,8 +59,6 @@ public abstract class CMDIMetadataElementImpl implements CMDIMetadataElement {
      * @see #isDirty()
      */
     protected CMDIMetadataElementImpl() {
-	this.attributes = new HashSet<Attribute>();
-	this.resourceProxies = new ArrayList<ResourceProxy>();
     }
 
     /**
@@ -65,12 +70,17 @@ public abstract class CMDIMetadataElementImpl implements CMDIMetadataElement {
      */
     @Override
     public synchronized boolean addAttribute(Attribute attribute) {
-	if (attributes.add(attribute)) {
-	    setDirty(true);
-	    return true;
-	} else {
+	if (attributes == null) {
+	    attributes = new Attribute[]{attribute};
+	} else if (indexOfAttribute(attribute) >= 0) {
 	    return false;
+	} else {
+	    final Attribute[] newAttributes = Arrays.copyOf(attributes, attributes.length + 1);
+	    newAttributes[attributes.length] = attribute;
+	    attributes = newAttributes;
 	}
+	setDirty(true);
+	return true;
     }
 
     /**
@@ -82,21 +92,43 @@ public abstract class CMDIMetadataElementImpl implements CMDIMetadataElement {
      */
     @Override
     public synchronized boolean removeAttribute(Attribute attribute) {
-	if (attributes.remove(attribute)) {
-	    setDirty(true);
-	    return true;
-	} else {
+	final int index = indexOfAttribute(attribute);
+	if (index < 0) {
 	    return false;
 	}
+	if (attributes.length == 1) {
+	    attributes = null;
+	} else {
+	    final Attribute[] newAttributes = new Attribute[attributes.length - 1];
+	    System.arraycopy(attributes, 0, newAttributes, 0, index);
+	    System.arraycopy(attributes, index + 1, newAttributes, index, attributes.length - index - 1);
+	    attributes = newAttributes;
+	}
+	setDirty(true);
+	return true;
+    }
+
+    private int indexOfAttribute(Attribute attribute) {
+	if (attributes != null) {
+	    for (int i = 0; i < attributes.length; i++) {
+		if (attributes[i].equals(attribute)) {
+		    return i;
+		}
+	    }
+	}
+	return -1;
     }
 
     /**
      *
-     * @return An <em>unmodifiable</em> collection of this element's attributes
+     * @return An <em>unmodifiable</em> snapshot of this element's attributes
      */
     @Override
     public synchronized Collection<Attribute> getAttributes() {
-	return Collections.unmodifiableCollection(attributes);
+	if (attributes == null) {
+	    return Collections.emptySet();
+	}
+	return Collections.unmodifiableList(Arrays.asList(attributes));
     }
 
     /**
@@ -114,6 +146,9 @@ public abstract class CMDIMetadataElementImpl implements CMDIMetadataElement {
     public synchronized ResourceProxy addDocumentResourceProxyReference(String id) {
 	ResourceProxy resourceProxy = getMetadataDocument().getDocumentResourceProxy(id);
 	if (resourceProxy != null) {
+	    if (resourceProxies == null) {
+		resourceProxies = new ArrayList<ResourceProxy>(1);
+	    }
 	    if (resourceProxies.add(resourceProxy)) {
 		setDirty(true);
 		getMetadataDocument().registerResourceProxyReference(resourceProxy, this);
@@ -138,7 +173,7 @@ public abstract class CMDIMetadataElementImpl implements CMDIMetadataElement {
     public synchronized ResourceProxy removeDocumentResourceProxyReference(String id) {
 	ResourceProxy resourceProxy = getMetadataDocument().getDocumentResourceProxy(id);
 	if (resourceProxy != null) {
-	    if (resourceProxies.remove(resourceProxy)) {
+	    if (resourceProxies != null && resourceProxies.remove(resourceProxy)) {
 		setDirty(true);
 		if (!getMetadataDocument().unregisterResourceProxyReference(resourceProxy, this)) {
 		    logger.warn("Removed resource proxy with id {} was not registered with document!");
@@ -150,8 +185,8 @@ public abstract class CMDIMetadataElementImpl implements CMDIMetadataElement {
     }
 
     @Override
-    public int getReferencesCount() {
-	return resourceProxies.size();
+    public synchronized int getReferencesCount() {
+	return resourceProxies == null ? 0 : resourceProxies.size();
     }
 
     /**
@@ -159,7 +194,10 @@ public abstract class CMDIMetadataElementImpl implements CMDIMetadataElement {
      * @return an <em>unmodifiable</em> copy of the collection of resource proxies referenced by this element
      */
     @Override
-    public List<Reference> getReferences() {
+    public synchronized List<Reference> getReferences() {
+	if (resourceProxies == null) {
+	    return Collections.emptyList();
+	}
 	return Collections.<Reference>unmodifiableList(resourceProxies);
     }
 
@@ -231,8 +269,7 @@ public abstract class CMDIMetadataElementImpl implements CMDIMetadataElement {
 		// Component and Element implement ContainedMetadataElement, path can be inferred from parent
 		final CMDIContainerMetadataElementImpl parentContainer = (CMDIContainerMetadataElementImpl) ((ContainedMetadataElement) this).getParent();
 		// Get index among siblings
-		final List<MetadataElement> siblings = parentContainer.getChildren(getType());
-		final int index = siblings.indexOf(this);
+		final int index = parentContainer.getIndexAmongChildrenOfType(this);
 		if (index < 0) {
 		    throw new RuntimeException("Node not found in parent's children");
 		}
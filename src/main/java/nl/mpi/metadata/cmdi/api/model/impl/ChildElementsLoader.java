@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.model.impl;
+
+import nl.mpi.metadata.api.MetadataException;
+import nl.mpi.metadata.cmdi.api.model.CMDIContainerMetadataElement;
+
+/**
+ * Deferred source of the child elements of a container. A container that has a loader set materializes its children on
+ * first access by invoking the loader once, after which the loader is discarded.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see CMDIContainerMetadataElementImpl#setChildElementsLoader(nl.mpi.metadata.cmdi.api.model.impl.ChildElementsLoader)
+ */
+public interface ChildElementsLoader {
+
+    /**
+     * Creates the child elements of the specified container and adds them to it. Invoked while holding the locks of both
+     * the container and the document that contains it.
+     *
+     * @param container container to load the children of
+     * @throws MetadataException if the children could not be loaded
+     */
+    void loadChildElements(CMDIContainerMetadataElement container) throws MetadataException;
+}
@@ -18,6 +18,9 @@ package nl.mpi.metadata.cmdi.api.type;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
 import nl.mpi.metadata.api.MetadataTypeException;
 
 /**
@@ -31,5 +34,33 @@ public interface CMDIProfileContainer {
     boolean containsProfile(CMDIProfile profile);
 
     CMDIProfile getProfile(URI profileUri) throws IOException, MetadataTypeException;
-    
+
+    /**
+     * Removes a profile from the container, so that it will be loaded again on the next request
+     *
+     * @param profileUri schema location of the profile to remove
+     */
+    void invalidate(URI profileUri);
+
+    /**
+     * Removes a profile from the container and loads it again
+     *
+     * @param profileUri schema location of the profile to refresh
+     * @return the newly loaded profile
+     * @throws IOException if the profile could not be retrieved
+     * @throws MetadataTypeException if the profile could not be read
+     */
+    CMDIProfile refresh(URI profileUri) throws IOException, MetadataTypeException;
+
+    /**
+     * Loads the specified profiles in parallel, so that they are available before the first document that needs them gets
+     * read. Blocks until all profiles have been loaded or have failed to load. Failures do not abort the preload, they are
+     * reported in the results.
+     *
+     * @param profileUris schema locations of the profiles to load
+     * @param executor executor to load the profiles on
+     * @return a result for each of the specified profiles, in the same order
+     * @throws InterruptedException if interrupted while waiting for the profiles to load
+     */
+    List<CMDIProfileLoadResult> preloadProfiles(Collection<URI> profileUris, Executor executor) throws InterruptedException;
 }
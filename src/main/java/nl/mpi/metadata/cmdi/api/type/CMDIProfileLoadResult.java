@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type;
+
+import java.net.URI;
+import nl.mpi.metadata.cmdi.util.LoadResult;
+
+/**
+ * Outcome of loading a single profile as part of a preload, either the loaded profile or the exception that caused the
+ * load to fail, together with the time it took
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see CMDIProfileContainer#preloadProfiles(java.util.Collection, java.util.concurrent.Executor)
+ */
+public class CMDIProfileLoadResult extends LoadResult<URI, CMDIProfile> {
+
+    /**
+     *
+     * @param profileUri schema location of the profile
+     * @param profile loaded profile, null if loading failed
+     * @param exception exception that caused loading to fail, null if loading succeeded
+     * @param durationMillis time spent loading or waiting for the profile, in milliseconds
+     */
+    public CMDIProfileLoadResult(URI profileUri, CMDIProfile profile, Exception exception, long durationMillis) {
+        super(profileUri, profile, exception, durationMillis);
+    }
+
+    public URI getProfileUri() {
+        return getKey();
+    }
+
+    /**
+     *
+     * @return the loaded profile, null if loading failed
+     */
+    public CMDIProfile getProfile() {
+        return getValue();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Persistent store for profiles that have been read before, allowing them to be restored without compiling the profile
+ * schema again (e.g. after a restart of the JVM)
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see CMDIProfileContainer
+ */
+public interface CMDIProfileStore {
+
+    /**
+     * Restores a profile from the store
+     *
+     * @param profileUri schema location of the profile to load
+     * @return the stored profile, or null if the store does not contain an up-to-date version of the profile
+     * @throws IOException if the store or the profile schema could not be accessed
+     * @throws CMDITypeException if the stored profile could not be restored
+     */
+    CMDIProfile loadProfile(URI profileUri) throws IOException, CMDITypeException;
+
+    /**
+     * Stores a profile so that it can be restored by {@link #loadProfile(java.net.URI) }
+     *
+     * @param profile profile to store
+     * @throws IOException if the profile could not be written to the store
+     */
+    void storeProfile(CMDIProfile profile) throws IOException;
+}
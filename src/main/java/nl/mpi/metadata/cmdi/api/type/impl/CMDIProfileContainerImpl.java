@@ -16,51 +16,539 @@
  */
 package nl.mpi.metadata.cmdi.api.type.impl;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.SoftReference;
 import java.net.URI;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 import nl.mpi.metadata.api.MetadataTypeException;
 import nl.mpi.metadata.api.type.MetadataDocumentTypeReader;
+import nl.mpi.metadata.api.type.MetadataElementType;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfileContainer;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileLoadResult;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileStore;
+import nl.mpi.metadata.cmdi.api.type.CMDITypeException;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import nl.mpi.metadata.cmdi.util.LoadTask;
+import org.apache.xmlbeans.SchemaProperty;
+import org.apache.xmlbeans.SchemaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Class for chaching CMDI profiles
+ * Class for chaching CMDI profiles. Optionally backed by a persistent {@link CMDIProfileStore}, which is consulted before
+ * reading a profile that has not been loaded yet and updated after reading it.
+ *
+ * This class is thread-safe. Retrieving a profile that has been loaded does not block. Each profile is loaded at most once
+ * at a time: concurrent requests for a profile that is being loaded wait for that load to complete, while different
+ * profiles can be loaded in parallel. A load that fails is not cached, so that the profile can be requested again later.
+ *
+ * The container can be bounded by a maximum weight, the weight of a profile being the number of profile elements it
+ * consists of (see {@link #weigh(nl.mpi.metadata.cmdi.api.type.CMDIProfile) }). When the total weight of the loaded
+ * profiles exceeds the maximum, the least recently used profiles are evicted. Evicted profiles can optionally be kept
+ * softly referenced, so that they can be restored without reloading until the garbage collector claims them.
+ *
+ * The set of loaded profiles can be written to a manifest (see {@link CMDIProfileManifest}), which can be used to preload
+ * the same profiles in a later process.
  * @see CMDIProfileImpl
  * @author Twan Goosen <twan.goosen@mpi.nl>
  */
 public class CMDIProfileContainerImpl implements CMDIProfileContainer {
 
-    private final Map<URI, CMDIProfile> profileMap;
+    private final static Logger logger = LoggerFactory.getLogger(CMDIProfileContainerImpl.class);
+    /**
+     * Maximum weight value for a container that never evicts profiles
+     */
+    public final static long UNBOUNDED = 0;
+    private final ConcurrentMap<URI, ProfileEntry> profileMap;
+    private final ConcurrentMap<URI, SoftReference<CMDIProfile>> evictedProfiles;
     private final MetadataDocumentTypeReader<CMDIProfile> profileReader;
+    private final CMDIProfileStore profileStore;
+    private final long maximumWeight;
+    private final boolean keepEvictedProfiles;
+    private final Object evictionLock = new Object();
+    private final AtomicLong accessClock = new AtomicLong();
+    private final AtomicLong totalWeight = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
 
     /**
      * Creates a profile container with no entityresolver set. In this implementation, {@link #getProfileReader() } 
      * will instantiate a new instance of {@link CMDIProfileReader} on first request.
      */
     public CMDIProfileContainerImpl(MetadataDocumentTypeReader<CMDIProfile> profileReader) {
+	this(profileReader, null);
+    }
+
+    /**
+     * Creates an unbounded profile container that checks the specified store before reading profiles
+     *
+     * @param profileReader reader for profiles not found in the store
+     * @param profileStore persistent store for read profiles. Can be null.
+     */
+    public CMDIProfileContainerImpl(MetadataDocumentTypeReader<CMDIProfile> profileReader, CMDIProfileStore profileStore) {
+	this(profileReader, profileStore, UNBOUNDED, false);
+    }
+
+    /**
+     * Creates a profile container that evicts the least recently used profiles once the total weight of its profiles
+     * exceeds the specified maximum
+     *
+     * @param profileReader reader for profiles not found in the store
+     * @param profileStore persistent store for read profiles. Can be null.
+     * @param maximumWeight maximum total weight of the profiles in the container, or {@link #UNBOUNDED}
+     * @param keepEvictedProfiles whether evicted profiles should be kept softly referenced
+     * @see #weigh(nl.mpi.metadata.cmdi.api.type.CMDIProfile)
+     */
+    public CMDIProfileContainerImpl(MetadataDocumentTypeReader<CMDIProfile> profileReader, CMDIProfileStore profileStore, long maximumWeight, boolean keepEvictedProfiles) {
 	this.profileReader = profileReader;
-	this.profileMap = new HashMap<URI, CMDIProfile>();
+	this.profileStore = profileStore;
+	this.maximumWeight = maximumWeight;
+	this.keepEvictedProfiles = keepEvictedProfiles;
+	this.profileMap = new ConcurrentHashMap<URI, ProfileEntry>();
+	this.evictedProfiles = new ConcurrentHashMap<URI, SoftReference<CMDIProfile>>();
     }
 
     @Override
-    public synchronized CMDIProfile getProfile(URI profileUri) throws IOException, MetadataTypeException {
-	CMDIProfile profile = profileMap.get(profileUri);
+    public CMDIProfile getProfile(final URI profileUri) throws IOException, MetadataTypeException {
+	ProfileEntry entry = profileMap.get(profileUri);
+	if (entry == null) {
+	    final ProfileEntry newEntry = new ProfileEntry(profileUri);
+	    entry = profileMap.putIfAbsent(profileUri, newEntry);
+	    if (entry == null) {
+		// No other thread is loading this profile, load it on this thread
+		entry = newEntry;
+		entry.touch();
+		newEntry.loadTask.run();
+		evictIfNeeded(newEntry);
+	    } else {
+		hitCount.incrementAndGet();
+	    }
+	} else {
+	    hitCount.incrementAndGet();
+	}
+	entry.touch();
+	return getLoadedProfile(entry);
+    }
+
+    @Override
+    public void invalidate(URI profileUri) {
+	evictedProfiles.remove(profileUri);
+	final ProfileEntry entry = profileMap.remove(profileUri);
+	if (entry != null) {
+	    logger.debug("Invalidated profile {}", profileUri);
+	    releaseWeight(entry);
+	}
+    }
+
+    @Override
+    public CMDIProfile refresh(URI profileUri) throws IOException, MetadataTypeException {
+	invalidate(profileUri);
+	return getProfile(profileUri);
+    }
+
+    @Override
+    public List<CMDIProfileLoadResult> preloadProfiles(Collection<URI> profileUris, Executor executor) throws InterruptedException {
+	final List<FutureTask<CMDIProfileLoadResult>> preloadTasks = new ArrayList<FutureTask<CMDIProfileLoadResult>>(profileUris.size());
+	for (URI profileUri : profileUris) {
+	    final FutureTask<CMDIProfileLoadResult> preloadTask = new FutureTask<CMDIProfileLoadResult>(new ProfileLoadTask(profileUri));
+	    preloadTasks.add(preloadTask);
+	    executor.execute(preloadTask);
+	}
+
+	final List<CMDIProfileLoadResult> results = new ArrayList<CMDIProfileLoadResult>(preloadTasks.size());
+	for (FutureTask<CMDIProfileLoadResult> preloadTask : preloadTasks) {
+	    results.add(LoadTask.getResult(preloadTask));
+	}
+	return results;
+    }
+
+    /**
+     * Preloads the profiles listed in a manifest
+     *
+     * @param manifestFile manifest listing the profiles to preload
+     * @param executor executor to load the profiles on
+     * @return a result for each of the listed profiles, in order of the manifest
+     * @throws IOException if the manifest could not be read
+     * @throws InterruptedException if interrupted while waiting for the profiles to load
+     * @see CMDIProfileManifest
+     * @see #preloadProfiles(java.util.Collection, java.util.concurrent.Executor)
+     */
+    public List<CMDIProfileLoadResult> preloadProfiles(File manifestFile, Executor executor) throws IOException, InterruptedException {
+	final List<URI> profileUris = CMDIProfileManifest.read(manifestFile);
+	logger.info("Preloading {} profiles from manifest {}", profileUris.size(), manifestFile);
+	return preloadProfiles(profileUris, executor);
+    }
+
+    /**
+     * Writes a manifest listing the profiles currently loaded in this container
+     *
+     * @param manifestFile manifest file to write, will be overwritten if it exists
+     * @throws IOException if the manifest could not be written
+     * @see CMDIProfileManifest
+     */
+    public void writeManifest(File manifestFile) throws IOException {
+	CMDIProfileManifest.write(manifestFile, getProfileUris());
+    }
+
+    /**
+     *
+     * @return the schema locations of the profiles that are currently loaded in this container
+     */
+    public Collection<URI> getProfileUris() {
+	final List<URI> profileUris = new ArrayList<URI>(profileMap.size());
+	for (ProfileEntry entry : profileMap.values()) {
+	    if (getProfileIfLoaded(entry) != null) {
+		profileUris.add(entry.profileUri);
+	    }
+	}
+	return profileUris;
+    }
+
+    /**
+     * Loads a profile into the container as part of a preload
+     */
+    private class ProfileLoadTask extends LoadTask<URI, CMDIProfile, CMDIProfileLoadResult> {
+
+	public ProfileLoadTask(URI profileUri) {
+	    super(profileUri);
+	}
+
+	@Override
+	protected CMDIProfile load(URI profileUri) throws Exception {
+	    return getProfile(profileUri);
+	}
+
+	@Override
+	protected CMDIProfileLoadResult createResult(URI profileUri, CMDIProfile profile, Exception exception, long durationMillis) {
+	    return new CMDIProfileLoadResult(profileUri, profile, exception, durationMillis);
+	}
+    }
+
+    /**
+     * Waits for a profile load to complete. If it has failed, it gets removed from the container and the cause of the failure
+     * gets rethrown.
+     */
+    private CMDIProfile getLoadedProfile(ProfileEntry entry) throws IOException, MetadataTypeException {
+	try {
+	    return entry.loadTask.get();
+	} catch (InterruptedException iEx) {
+	    Thread.currentThread().interrupt();
+	    final InterruptedIOException ioEx = new InterruptedIOException("Interrupted while waiting for profile " + entry.profileUri);
+	    ioEx.initCause(iEx);
+	    throw ioEx;
+	} catch (ExecutionException eEx) {
+	    profileMap.remove(entry.profileUri, entry);
+	    final Throwable cause = eEx.getCause();
+	    if (cause instanceof IOException) {
+		throw (IOException) cause;
+	    } else if (cause instanceof MetadataTypeException) {
+		throw (MetadataTypeException) cause;
+	    } else if (cause instanceof RuntimeException) {
+		throw (RuntimeException) cause;
+	    } else if (cause instanceof Error) {
+		throw (Error) cause;
+	    } else {
+		throw new IllegalStateException("Unexpected exception while loading profile " + entry.profileUri, cause);
+	    }
+	}
+    }
+
+    /**
+     *
+     * @return the profile if it has been loaded successfully, null if it is still being loaded or loading has failed
+     */
+    private static CMDIProfile getProfileIfLoaded(ProfileEntry entry) {
+	if (entry != null && entry.loadTask.isDone()) {
+	    try {
+		return entry.loadTask.get();
+	    } catch (InterruptedException iEx) {
+		// Cannot happen, task is done
+		Thread.currentThread().interrupt();
+	    } catch (ExecutionException eEx) {
+		// Failed load, will be removed on next request
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Loads the profile for an entry that has been added to the container, either from the evicted profiles, the profile
+     * store or the profile reader
+     */
+    private CMDIProfile loadEntry(ProfileEntry entry) throws IOException, MetadataTypeException {
+	final URI profileUri = entry.profileUri;
+	CMDIProfile profile = null;
+	final SoftReference<CMDIProfile> evictedProfile = evictedProfiles.remove(profileUri);
+	if (evictedProfile != null) {
+	    profile = evictedProfile.get();
+	}
 	if (profile == null) {
-	    profile = profileReader.read(profileUri);
-	    profileMap.put(profileUri, profile);
+	    missCount.incrementAndGet();
+	    profile = loadProfile(profileUri);
+	} else {
+	    logger.debug("Restored evicted profile {}", profileUri);
+	    hitCount.incrementAndGet();
+	}
+
+	// Count the weight before publishing it on the entry, so that a concurrent release never subtracts weight that has
+	// not been added yet
+	final long weight = weigh(profile);
+	totalWeight.addAndGet(weight);
+	entry.weight.set(weight);
+	if (profileMap.get(profileUri) != entry) {
+	    // Invalidated while loading
+	    releaseWeight(entry);
+	}
+	return profile;
+    }
+
+    private CMDIProfile loadProfile(URI profileUri) throws IOException, MetadataTypeException {
+	if (profileStore != null) {
+	    // Failures of the store are not fatal, the profile can still be read from its schema
+	    try {
+		final CMDIProfile storedProfile = profileStore.loadProfile(profileUri);
+		if (storedProfile != null) {
+		    logger.debug("Profile {} loaded from store", profileUri);
+		    return storedProfile;
+		}
+	    } catch (IOException ioEx) {
+		logger.warn("Could not load profile " + profileUri + " from store", ioEx);
+	    } catch (CMDITypeException ctEx) {
+		logger.warn("Could not restore profile " + profileUri + " from store", ctEx);
+	    }
+	}
+
+	final CMDIProfile profile = readProfile(profileUri);
+
+	if (profileStore != null) {
+	    try {
+		profileStore.storeProfile(profile);
+	    } catch (IOException ioEx) {
+		logger.warn("Could not write profile " + profileUri + " to store", ioEx);
+	    }
 	}
 	return profile;
     }
 
+    private CMDIProfile readProfile(URI profileUri) throws IOException, MetadataTypeException {
+	if (profileStore instanceof CMDIProfileDirectoryStore) {
+	    // The directory store has retrieved the schema to look for a stored profile, read from that rather than retrieving it again
+	    final byte[] schemaBytes = ((CMDIProfileDirectoryStore) profileStore).takeFetchedSchema(profileUri);
+	    if (schemaBytes != null && profileReader instanceof CMDIProfileReader) {
+		return ((CMDIProfileReader) profileReader).read(profileUri, schemaBytes);
+	    }
+	}
+	return profileReader.read(profileUri);
+    }
+
+    /**
+     * Evicts the least recently used profiles until the total weight does not exceed the maximum weight
+     *
+     * @param loadedEntry entry that has just been loaded, will not be evicted
+     */
+    private void evictIfNeeded(ProfileEntry loadedEntry) {
+	if (maximumWeight == UNBOUNDED || totalWeight.get() <= maximumWeight) {
+	    return;
+	}
+	synchronized (evictionLock) {
+	    // Sort on a snapshot of the access stamps, concurrent hits keep updating them while sorting
+	    final List<EvictionCandidate> candidates = new ArrayList<EvictionCandidate>(profileMap.size());
+	    for (ProfileEntry entry : profileMap.values()) {
+		if (entry != loadedEntry && entry.loadTask.isDone()) {
+		    candidates.add(new EvictionCandidate(entry, entry.lastAccess));
+		}
+	    }
+	    Collections.sort(candidates, LEAST_RECENTLY_USED_FIRST);
+
+	    for (Iterator<EvictionCandidate> iterator = candidates.iterator(); iterator.hasNext() && totalWeight.get() > maximumWeight;) {
+		evict(iterator.next().entry);
+	    }
+	    if (keepEvictedProfiles) {
+		removeClearedReferences();
+	    }
+	}
+    }
+
+    private void evict(ProfileEntry entry) {
+	if (profileMap.remove(entry.profileUri, entry)) {
+	    logger.debug("Evicting profile {} (weight {})", entry.profileUri, entry.weight);
+	    evictionCount.incrementAndGet();
+	    releaseWeight(entry);
+	    if (keepEvictedProfiles) {
+		final CMDIProfile profile = getProfileIfLoaded(entry);
+		if (profile != null) {
+		    evictedProfiles.put(entry.profileUri, new SoftReference<CMDIProfile>(profile));
+		}
+	    }
+	}
+    }
+
+    private void removeClearedReferences() {
+	for (Iterator<SoftReference<CMDIProfile>> iterator = evictedProfiles.values().iterator(); iterator.hasNext();) {
+	    if (iterator.next().get() == null) {
+		iterator.remove();
+	    }
+	}
+    }
+
+    private void releaseWeight(ProfileEntry entry) {
+	totalWeight.addAndGet(-entry.weight.getAndSet(0));
+    }
+
+    /**
+     * Determines the weight of a profile, used to bound the size of the container. This implementation counts the profile
+     * elements (components and elements) in the profile. Children of components that have not been read yet (lazy
+     * profiles) are counted from the schema type of the component, without reading them. The weight of a lazy profile
+     * therefore is the weight it has once all of its components have been read, so that the maximum weight still holds
+     * after components have been read.
+     *
+     * @param profile profile to weigh
+     * @return weight of the profile, should be positive
+     */
+    protected long weigh(CMDIProfile profile) {
+	return countProfileElements(profile);
+    }
+
+    private static long countProfileElements(CMDIProfileElement profileElement) {
+	if (profileElement instanceof ComponentTypeImpl && !((ComponentTypeImpl) profileElement).isChildrenRead()) {
+	    return countSchemaElements(profileElement.getSchemaElement().getType());
+	}
+	long count = 1;
+	if (profileElement instanceof ComponentType) {
+	    for (MetadataElementType childType : ((ComponentType) profileElement).getContainableTypes()) {
+		count += countProfileElements((CMDIProfileElement) childType);
+	    }
+	}
+	return count;
+    }
+
+    /**
+     * Counts the profile elements that will be read from a schema type, i.e. the type itself and the element types it
+     * contains
+     */
+    private static long countSchemaElements(SchemaType schemaType) {
+	long count = 1;
+	for (SchemaProperty childProperty : schemaType.getElementProperties()) {
+	    count += countSchemaElements(childProperty.getType());
+	}
+	return count;
+    }
+
     @Override
-    public synchronized boolean containsProfile(URI profileUri) {
-	return profileMap.containsKey(profileUri);
+    public boolean containsProfile(URI profileUri) {
+	return null != getProfileIfLoaded(profileMap.get(profileUri));
     }
 
     @Override
-    public synchronized boolean containsProfile(CMDIProfile profile) {
-	return profileMap.containsValue(profile);
+    public boolean containsProfile(CMDIProfile profile) {
+	for (ProfileEntry entry : profileMap.values()) {
+	    if (profile.equals(getProfileIfLoaded(entry))) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     *
+     * @return number of profile requests that were served without loading the profile
+     */
+    public long getHitCount() {
+	return hitCount.get();
+    }
+
+    /**
+     *
+     * @return number of profile requests that required the profile to be loaded
+     */
+    public long getMissCount() {
+	return missCount.get();
+    }
+
+    /**
+     *
+     * @return number of profiles that have been evicted because the maximum weight was exceeded
+     */
+    public long getEvictionCount() {
+	return evictionCount.get();
+    }
+
+    /**
+     *
+     * @return total weight of the profiles currently in the container
+     */
+    public long getTotalWeight() {
+	return totalWeight.get();
+    }
+
+    /**
+     *
+     * @return maximum total weight of the profiles in the container, or {@link #UNBOUNDED}
+     */
+    public long getMaximumWeight() {
+	return maximumWeight;
+    }
+
+    private final static Comparator<EvictionCandidate> LEAST_RECENTLY_USED_FIRST = new Comparator<EvictionCandidate>() {
+
+	public int compare(EvictionCandidate candidate1, EvictionCandidate candidate2) {
+	    return candidate1.lastAccess < candidate2.lastAccess ? -1 : (candidate1.lastAccess == candidate2.lastAccess ? 0 : 1);
+	}
+    };
+
+    /**
+     * Entry considered for eviction, with the time of its last access at the start of the eviction
+     */
+    private final static class EvictionCandidate {
+
+	private final ProfileEntry entry;
+	private final long lastAccess;
+
+	public EvictionCandidate(ProfileEntry entry, long lastAccess) {
+	    this.entry = entry;
+	    this.lastAccess = lastAccess;
+	}
+    }
+
+    /**
+     * Container entry for a profile, holds the task that loads the profile and the data needed for eviction
+     */
+    private final class ProfileEntry {
+
+	private final URI profileUri;
+	private final FutureTask<CMDIProfile> loadTask;
+	private final AtomicLong weight = new AtomicLong();
+	private volatile long lastAccess;
+
+	public ProfileEntry(URI profileUri) {
+	    this.profileUri = profileUri;
+	    this.loadTask = new FutureTask<CMDIProfile>(new Callable<CMDIProfile>() {
+
+		public CMDIProfile call() throws IOException, MetadataTypeException {
+		    return loadEntry(ProfileEntry.this);
+		}
+	    });
+	}
+
+	public void touch() {
+	    lastAccess = accessClock.incrementAndGet();
+	}
     }
 }
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.namespace.QName;
+import nl.mpi.metadata.api.type.ControlledVocabularyItem;
+import nl.mpi.metadata.api.type.MetadataElementAttributeType;
+import nl.mpi.metadata.api.type.MetadataElementType;
+import nl.mpi.metadata.cmdi.api.type.CMDIAttributeType;
+import nl.mpi.metadata.cmdi.api.type.CMDIControlledVocabularyItem;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
+import nl.mpi.metadata.cmdi.api.type.CMDITypeException;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import nl.mpi.metadata.cmdi.api.type.ControlledVocabularyElementType;
+import nl.mpi.metadata.cmdi.api.type.ElementType;
+import nl.mpi.metadata.cmdi.api.type.datacategory.DataCategory;
+import org.apache.xmlbeans.SchemaProperty;
+import org.apache.xmlbeans.impl.schema.SchemaPropertyImpl;
+
+/**
+ * Reads and writes profile descriptors: a compact binary representation of a profile that captures all information
+ * needed to read, build and write documents (names, paths, cardinalities, attributes, vocabularies, annotations and
+ * component ids). A profile can be restored from a descriptor without retrieving or compiling its schema.
+ *
+ * The schema elements of restored profile elements and attributes are stand-ins that only carry names, cardinalities
+ * and default values; they do not provide schema types. Operations that need the compiled schema (creating a new
+ * document from the schema, validation, storing in a {@link CMDIProfileDirectoryStore}) still retrieve and compile the
+ * schema.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see CMDIProfileDescriptorStore
+ */
+public final class CMDIProfileDescriptor {
+
+    /**
+     * Magic number, "CMDP"
+     */
+    private final static int MAGIC = 0x434D4450;
+    private final static short VERSION = 1;
+    private final static byte KIND_COMPONENT = 0;
+    private final static byte KIND_ELEMENT = 1;
+    private final static byte KIND_VOCABULARY_ELEMENT = 2;
+
+    private CMDIProfileDescriptor() {
+    }
+
+    /**
+     * Writes a descriptor for a profile. Profiles that have been read lazily are read completely.
+     *
+     * @param profile profile to describe
+     * @param outputStream stream to write to, will not be closed
+     * @throws IOException if the descriptor could not be written
+     */
+    public static void write(CMDIProfile profile, OutputStream outputStream) throws IOException {
+        final DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeUTF(profile.getSchemaLocation().toString());
+        writeNullableString(out, (profile instanceof CMDIProfileImpl) ? ((CMDIProfileImpl) profile).getSchemaDigest() : null);
+        out.writeInt(profile.getHeaderNames().size());
+        for (String headerName : profile.getHeaderNames()) {
+            out.writeUTF(headerName);
+        }
+        writeElement(out, profile);
+        out.flush();
+    }
+
+    /**
+     * Restores a profile from a descriptor
+     *
+     * @param inputStream stream to read from, will not be closed
+     * @return the restored profile
+     * @throws IOException if the descriptor could not be read
+     * @throws CMDITypeException if the stream does not contain a valid profile descriptor
+     */
+    public static CMDIProfile read(InputStream inputStream) throws IOException, CMDITypeException {
+        final DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC) {
+            throw new CMDITypeException(null, "Not a profile descriptor");
+        }
+        final short version = in.readShort();
+        if (version != VERSION) {
+            throw new CMDITypeException(null, "Unsupported profile descriptor version " + version);
+        }
+        final URI schemaLocation;
+        try {
+            schemaLocation = new URI(in.readUTF());
+        } catch (URISyntaxException usEx) {
+            throw new CMDITypeException(null, "Invalid schema location in profile descriptor", usEx);
+        }
+        final String schemaDigest = readNullableString(in);
+        final int headerCount = in.readInt();
+        final List<String> headerNames = new ArrayList<String>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            headerNames.add(in.readUTF());
+        }
+
+        if (in.readByte() != KIND_COMPONENT) {
+            throw new CMDITypeException(null, "Profile descriptor does not describe a root component");
+        }
+        final SchemaProperty rootProperty = readSchemaProperty(in, false);
+        final String rootPath = in.readUTF();
+        final CMDIProfileImpl profile = new CMDIProfileImpl(schemaLocation, rootProperty, new StringBuilder(rootPath), headerNames);
+        profile.setSchemaDigest(schemaDigest);
+        readElementContent(in, profile);
+        return profile;
+    }
+
+    private static void writeElement(DataOutputStream out, CMDIProfileElement element) throws IOException {
+        if (element instanceof ComponentType) {
+            out.writeByte(KIND_COMPONENT);
+        } else if (element instanceof ControlledVocabularyElementType) {
+            out.writeByte(KIND_VOCABULARY_ELEMENT);
+        } else {
+            out.writeByte(KIND_ELEMENT);
+        }
+        final SchemaProperty schemaElement = element.getSchemaElement();
+        writeSchemaProperty(out, schemaElement.getName(), schemaElement.getMinOccurs(), schemaElement.getMaxOccurs(), null);
+        out.writeUTF(element.getPathString());
+
+        writeNullableString(out, element.getDescription());
+        writeNullableString(out, element.getDataCategory() == null ? null : element.getDataCategory().getIdentifier().toString());
+        final Collection<MetadataElementAttributeType> attributes = element.getAttributes();
+        final Collection<MetadataElementAttributeType> allAttributes = element.getAllAttributes();
+        writeAttributes(out, attributes);
+        if (allAttributes == null || attributes == null) {
+            writeAttributes(out, null);
+        } else {
+            final List<MetadataElementAttributeType> excludedAttributes = new ArrayList<MetadataElementAttributeType>(allAttributes);
+            excludedAttributes.removeAll(attributes);
+            writeAttributes(out, excludedAttributes);
+        }
+
+        if (element instanceof ComponentType) {
+            final ComponentType component = (ComponentType) element;
+            writeNullableString(out, component.getComponentId());
+            out.writeInt(component.getContainableTypes().size());
+            for (MetadataElementType child : component.getContainableTypes()) {
+                writeElement(out, (CMDIProfileElement) child);
+            }
+        } else {
+            final ElementType elementType = (ElementType) element;
+            out.writeInt(elementType.getDisplayPriority());
+            out.writeBoolean(elementType.isMultilingual());
+            if (element instanceof ControlledVocabularyElementType) {
+                final List<ControlledVocabularyItem> items = ((ControlledVocabularyElementType) element).getItems();
+                out.writeInt(items.size());
+                for (ControlledVocabularyItem item : items) {
+                    out.writeUTF(item.getValue());
+                    writeNullableString(out, item.getDescription());
+                    final DataCategory itemDataCategory = (item instanceof CMDIControlledVocabularyItem) ? ((CMDIControlledVocabularyItem) item).getDataCategory() : null;
+                    writeNullableString(out, itemDataCategory == null ? null : itemDataCategory.getIdentifier().toString());
+                }
+            }
+        }
+    }
+
+    private static CMDIProfileElementImpl readElement(DataInputStream in, ComponentTypeImpl parent) throws IOException, CMDITypeException {
+        final byte kind = in.readByte();
+        final SchemaProperty schemaProperty = readSchemaProperty(in, false);
+        final String path = in.readUTF();
+        final CMDIProfileElementImpl element;
+        switch (kind) {
+            case KIND_COMPONENT:
+                element = new ComponentTypeImpl(schemaProperty, parent, new StringBuilder(path));
+                break;
+            case KIND_ELEMENT:
+                element = new ElementTypeImpl(schemaProperty, parent, path);
+                break;
+            case KIND_VOCABULARY_ELEMENT:
+                element = new ControlledVocabularyElementTypeImpl(schemaProperty, parent, path);
+                break;
+            default:
+                throw new CMDITypeException(null, "Unknown element kind in profile descriptor: " + kind);
+        }
+        readElementContent(in, element);
+        return element;
+    }
+
+    private static void readElementContent(DataInputStream in, CMDIProfileElementImpl element) throws IOException, CMDITypeException {
+        element.setDescription(readNullableString(in));
+        element.setDataCategory(readDataCategory(in));
+        element.setAttributes(readAttributes(in, element));
+        element.setExcludedAttributes(readAttributes(in, element));
+
+        if (element instanceof ComponentTypeImpl) {
+            final ComponentTypeImpl component = (ComponentTypeImpl) element;
+            component.setComponentId(readNullableString(in));
+            final int childCount = in.readInt();
+            final List<CMDIProfileElement> children = new ArrayList<CMDIProfileElement>(childCount);
+            for (int i = 0; i < childCount; i++) {
+                children.add(readElement(in, component));
+            }
+            component.setChildren(children);
+        } else {
+            final ElementTypeImpl elementType = (ElementTypeImpl) element;
+            elementType.setDisplayPriority(in.readInt());
+            elementType.setMultilingual(in.readBoolean());
+            if (element instanceof ControlledVocabularyElementTypeImpl) {
+                final int itemCount = in.readInt();
+                final List<ControlledVocabularyItem> items = new ArrayList<ControlledVocabularyItem>(itemCount);
+                for (int i = 0; i < itemCount; i++) {
+                    final CMDIControlledVocabularyItemImpl item = new CMDIControlledVocabularyItemImpl();
+                    item.setValue(in.readUTF());
+                    item.setDescription(readNullableString(in));
+                    item.setDataCategory(readDataCategory(in));
+                    items.add(item);
+                }
+                ((ControlledVocabularyElementTypeImpl) element).setItems(items);
+            }
+        }
+    }
+
+    private static void writeAttributes(DataOutputStream out, Collection<MetadataElementAttributeType> attributes) throws IOException {
+        if (attributes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(attributes.size());
+        for (MetadataElementAttributeType attribute : attributes) {
+            writeNullableString(out, attribute.getNamespaceURI());
+            out.writeUTF(attribute.getName());
+            writeNullableString(out, attribute.getType());
+            out.writeBoolean(attribute.isMandatory());
+            writeNullableString(out, attribute.getDefaultValue());
+            final SchemaProperty schemaElement = (attribute instanceof CMDIAttributeType) ? ((CMDIAttributeType) attribute).getSchemaElement() : null;
+            if (schemaElement == null) {
+                writeSchemaProperty(out, new QName(attribute.getNamespaceURI() == null ? "" : attribute.getNamespaceURI(), attribute.getName()), null, null, attribute.getDefaultValue());
+            } else {
+                writeSchemaProperty(out, schemaElement.getName(), schemaElement.getMinOccurs(), schemaElement.getMaxOccurs(), schemaElement.getDefaultText());
+            }
+        }
+    }
+
+    private static Collection<MetadataElementAttributeType> readAttributes(DataInputStream in, CMDIProfileElementImpl element) throws IOException {
+        final int count = in.readInt();
+        if (count < 0) {
+            return null;
+        } else if (count == 0) {
+            return Collections.emptySet();
+        }
+        final List<MetadataElementAttributeType> attributes = new ArrayList<MetadataElementAttributeType>(count);
+        for (int i = 0; i < count; i++) {
+            final String namespaceURI = readNullableString(in);
+            final String name = in.readUTF();
+            final String type = readNullableString(in);
+            final CMDIAttributeTypeImpl attribute = new CMDIAttributeTypeImpl(element.getPathString(), namespaceURI, name, type);
+            attribute.setMandatory(in.readBoolean());
+            attribute.setDefaultValue(readNullableString(in));
+            final SchemaProperty schemaProperty = readSchemaProperty(in, true);
+            attribute.setSchemaElement(schemaProperty);
+            attributes.add(attribute);
+        }
+        return attributes;
+    }
+
+    private static void writeSchemaProperty(DataOutputStream out, QName name, BigInteger minOccurs, BigInteger maxOccurs, String defaultText) throws IOException {
+        out.writeUTF(name.getNamespaceURI());
+        out.writeUTF(name.getLocalPart());
+        writeNullableString(out, minOccurs == null ? null : minOccurs.toString());
+        writeNullableString(out, maxOccurs == null ? null : maxOccurs.toString());
+        writeNullableString(out, defaultText);
+    }
+
+    private static SchemaProperty readSchemaProperty(DataInputStream in, boolean attribute) throws IOException {
+        final SchemaPropertyImpl property = new SchemaPropertyImpl();
+        property.setAttribute(attribute);
+        property.setName(new QName(in.readUTF(), in.readUTF()));
+        final String minOccurs = readNullableString(in);
+        property.setMinOccurs(minOccurs == null ? null : new BigInteger(minOccurs));
+        final String maxOccurs = readNullableString(in);
+        property.setMaxOccurs(maxOccurs == null ? null : new BigInteger(maxOccurs));
+        property.setDefaultText(readNullableString(in));
+        return property;
+    }
+
+    private static DataCategory readDataCategory(DataInputStream in) throws IOException {
+        final String identifier = readNullableString(in);
+        if (identifier == null) {
+            return null;
+        }
+        try {
+            return new DataCategory(new URI(identifier));
+        } catch (URISyntaxException usEx) {
+            throw new IOException("Invalid data category in profile descriptor: " + identifier, usEx);
+        }
+    }
+
+    private static void writeNullableString(DataOutputStream out, String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileStore;
+import nl.mpi.metadata.cmdi.api.type.CMDITypeException;
+import nl.mpi.metadata.cmdi.util.ContentDigest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Profile store that keeps {@link CMDIProfileDescriptor profile descriptors} in a directory on the file system, one
+ * file per schema location. Restoring a profile requires neither the schema nor the schema compiler, which makes this
+ * store suitable for fast startup.
+ *
+ * Unlike {@link CMDIProfileDirectoryStore}, this store does not retrieve the schema to check whether a stored profile is
+ * up to date. Stored profiles are replaced when they are read again, e.g. by
+ * {@link nl.mpi.metadata.cmdi.api.type.CMDIProfileContainer#refresh(java.net.URI)}.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDIProfileDescriptorStore implements CMDIProfileStore {
+
+    private final static Logger logger = LoggerFactory.getLogger(CMDIProfileDescriptorStore.class);
+    public final static String DESCRIPTOR_FILE_EXTENSION = ".cmdp";
+    private final File directory;
+
+    /**
+     *
+     * @param directory directory of the store, will be created if it does not exist
+     */
+    public CMDIProfileDescriptorStore(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public CMDIProfile loadProfile(URI profileUri) throws IOException, CMDITypeException {
+        final File descriptorFile = getDescriptorFile(profileUri);
+        if (!descriptorFile.isFile()) {
+            logger.debug("No stored profile descriptor for {}", profileUri);
+            return null;
+        }
+        logger.debug("Restoring profile {} from descriptor {}", profileUri, descriptorFile);
+        final InputStream inputStream = new BufferedInputStream(new FileInputStream(descriptorFile));
+        try {
+            final CMDIProfile profile = CMDIProfileDescriptor.read(inputStream);
+            if (!profileUri.equals(profile.getSchemaLocation())) {
+                logger.warn("Profile descriptor {} describes {} rather than {}", new Object[]{descriptorFile, profile.getSchemaLocation(), profileUri});
+                return null;
+            }
+            return profile;
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Override
+    public void storeProfile(CMDIProfile profile) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create store directory " + directory);
+        }
+        final File descriptorFile = getDescriptorFile(profile.getSchemaLocation());
+        final File tempFile = new File(directory, String.format("%s.%d.tmp", descriptorFile.getName(), System.nanoTime()));
+        final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
+        try {
+            CMDIProfileDescriptor.write(profile, outputStream);
+        } finally {
+            outputStream.close();
+        }
+        // Replace existing descriptor
+        if (!tempFile.renameTo(descriptorFile) && !(descriptorFile.delete() && tempFile.renameTo(descriptorFile))) {
+            tempFile.delete();
+            throw new IOException("Could not write profile descriptor " + descriptorFile);
+        }
+        logger.debug("Stored descriptor for profile {} in {}", profile.getSchemaLocation(), descriptorFile);
+    }
+
+    private File getDescriptorFile(URI profileUri) {
+        return new File(directory, ContentDigest.digest(profileUri.toString()) + DESCRIPTOR_FILE_EXTENSION);
+    }
+}
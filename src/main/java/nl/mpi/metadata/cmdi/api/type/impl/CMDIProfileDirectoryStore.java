@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import nl.mpi.metadata.api.type.MetadataElementType;
+import nl.mpi.metadata.cmdi.api.dom.CMDIApiDOMBuilderFactory;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileStore;
+import nl.mpi.metadata.cmdi.api.type.CMDITypeException;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import nl.mpi.metadata.cmdi.api.type.ElementType;
+import nl.mpi.metadata.cmdi.api.type.datacategory.DataCategory;
+import nl.mpi.metadata.cmdi.util.CMDIEntityResolver;
+import nl.mpi.metadata.cmdi.util.ContentDigest;
+import nl.mpi.metadata.cmdi.util.SchemaTypeSystemRegistry;
+import org.apache.xmlbeans.SchemaProperty;
+import org.apache.xmlbeans.SchemaType;
+import org.apache.xmlbeans.SchemaTypeLoader;
+import org.apache.xmlbeans.SchemaTypeSystem;
+import org.apache.xmlbeans.XmlBeans;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.EntityResolver;
+
+/**
+ * Profile store that keeps compiled profile schemas in a directory on the file system. Profiles are stored by schema
+ * location and content digest of the schema file:
+ * <pre>
+ * {directory}/{digest of schema location}/{digest of schema content}/
+ *     profile.properties      schema location and digest
+ *     annotations.properties  descriptions, data categories and display priorities by element path
+ *     types/                  compiled XmlBeans schema type system
+ * </pre>
+ *
+ * Looking up a profile requires retrieving the schema file (through the entity resolver) to determine its current digest,
+ * but no schema compilation or DOM processing. If the store does not have the profile, the retrieved schema is kept until
+ * it is taken by {@link #takeFetchedSchema(java.net.URI) }, so that the profile can be read without retrieving the
+ * schema again (see {@link CMDIProfileReader#read(java.net.URI, byte[]) }). Stored profiles are written to a temporary directory first, so that an
+ * interrupted write never results in a partially stored profile.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDIProfileDirectoryStore implements CMDIProfileStore {
+
+    private final static Logger logger = LoggerFactory.getLogger(CMDIProfileDirectoryStore.class);
+    public final static String PROFILE_PROPERTIES_FILE = "profile.properties";
+    public final static String ANNOTATIONS_PROPERTIES_FILE = "annotations.properties";
+    public final static String TYPE_SYSTEM_DIRECTORY = "types";
+    private final static String SCHEMA_LOCATION_PROPERTY = "schemaLocation";
+    private final static String SCHEMA_DIGEST_PROPERTY = "schemaDigest";
+    private final static String DESCRIPTION_SUFFIX = "#description";
+    private final static String DATA_CATEGORY_SUFFIX = "#datcat";
+    private final static String DISPLAY_PRIORITY_SUFFIX = "#displaypriority";
+    private final File directory;
+    private final EntityResolver entityResolver;
+    private final CMDIProfileReader profileReader;
+    private final SchemaTypeSystemRegistry typeSystemRegistry;
+    private final ConcurrentMap<URI, byte[]> fetchedSchemas = new ConcurrentHashMap<URI, byte[]>();
+
+    /**
+     * Creates a store in the specified directory, using a {@link CMDIEntityResolver} to retrieve profile schemas
+     *
+     * @param directory base directory of the store, will be created if it does not exist
+     */
+    public CMDIProfileDirectoryStore(File directory) {
+        this(directory, new CMDIEntityResolver());
+    }
+
+    /**
+     *
+     * @param directory base directory of the store, will be created if it does not exist
+     * @param entityResolver entity resolver to use for retrieving profile schemas. Can be null.
+     */
+    public CMDIProfileDirectoryStore(File directory, EntityResolver entityResolver) {
+        this(directory, entityResolver, new SchemaTypeSystemRegistry());
+    }
+
+    /**
+     *
+     * @param directory base directory of the store, will be created if it does not exist
+     * @param entityResolver entity resolver to use for retrieving profile schemas. Can be null.
+     * @param typeSystemRegistry registry to register the type systems of restored profiles with
+     */
+    public CMDIProfileDirectoryStore(File directory, EntityResolver entityResolver, SchemaTypeSystemRegistry typeSystemRegistry) {
+        this.directory = directory;
+        this.entityResolver = entityResolver;
+        this.typeSystemRegistry = typeSystemRegistry;
+        this.profileReader = new CMDIProfileReader(entityResolver, new CMDIApiDOMBuilderFactory(entityResolver), typeSystemRegistry);
+    }
+
+    @Override
+    public CMDIProfile loadProfile(URI profileUri) throws IOException, CMDITypeException {
+        final byte[] schemaBytes = fetchSchema(profileUri);
+        final String schemaDigest = ContentDigest.digest(schemaBytes);
+        final File profileDirectory = new File(getLocationDirectory(profileUri), schemaDigest);
+        final Properties profileProperties = readProperties(new File(profileDirectory, PROFILE_PROPERTIES_FILE));
+        if (profileProperties == null || !profileUri.toString().equals(profileProperties.getProperty(SCHEMA_LOCATION_PROPERTY))) {
+            logger.debug("No stored profile for {} with schema digest {}", profileUri, schemaDigest);
+            // Keep the schema for the reader that will read the profile instead
+            fetchedSchemas.put(profileUri, schemaBytes);
+            return null;
+        }
+        fetchedSchemas.remove(profileUri);
+
+        logger.debug("Restoring stored profile for {} from {}", profileUri, profileDirectory);
+        final SchemaType cmdType = loadCmdType(profileUri, new File(profileDirectory, TYPE_SYSTEM_DIRECTORY));
+        typeSystemRegistry.register(profileUri, cmdType.getTypeSystem());
+        final CMDIProfileImpl profile = profileReader.createProfile(profileUri, cmdType);
+        profile.setSchemaDigest(schemaDigest);
+        // Read the profile structure from the compiled types only, annotations that require the schema DOM are restored below
+        new CmdiProfileElementSchemaReader(null).readSchema(profile);
+
+        final Properties annotations = readProperties(new File(profileDirectory, ANNOTATIONS_PROPERTIES_FILE));
+        if (annotations != null) {
+            restoreAnnotations(profile, annotations);
+        }
+        return profile;
+    }
+
+    /**
+     * Takes the schema that was retrieved by the last call to {@link #loadProfile(java.net.URI) } for a profile that is not
+     * in the store, so that it can be read without retrieving the schema again
+     *
+     * @param profileUri schema location of the profile
+     * @return content of the schema, or null if it has already been taken or the last load found a stored profile
+     */
+    public byte[] takeFetchedSchema(URI profileUri) {
+        return fetchedSchemas.remove(profileUri);
+    }
+
+    @Override
+    public void storeProfile(CMDIProfile profile) throws IOException {
+        final URI profileUri = profile.getSchemaLocation();
+        fetchedSchemas.remove(profileUri);
+        String schemaDigest = null;
+        if (profile instanceof CMDIProfileImpl) {
+            schemaDigest = ((CMDIProfileImpl) profile).getSchemaDigest();
+        }
+        if (schemaDigest == null) {
+            schemaDigest = digestSchema(profileUri);
+        }
+
+        final File locationDirectory = getLocationDirectory(profileUri);
+        final File profileDirectory = new File(locationDirectory, schemaDigest);
+        if (new File(profileDirectory, PROFILE_PROPERTIES_FILE).isFile()) {
+            logger.debug("Profile {} with schema digest {} already in store", profileUri, schemaDigest);
+            return;
+        }
+
+        final File tempDirectory = new File(locationDirectory, String.format("%s.%d.tmp", schemaDigest, System.nanoTime()));
+        if (!tempDirectory.mkdirs()) {
+            throw new IOException("Could not create directory " + tempDirectory);
+        }
+        try {
+            logger.debug("Storing profile {} in {}", profileUri, profileDirectory);
+            saveTypeSystem(profile, new File(tempDirectory, TYPE_SYSTEM_DIRECTORY));
+
+            final Properties annotations = new Properties();
+            collectAnnotations(profile, annotations);
+            writeProperties(annotations, new File(tempDirectory, ANNOTATIONS_PROPERTIES_FILE));
+
+            // Profile properties mark the stored profile as complete, so written last
+            final Properties profileProperties = new Properties();
+            profileProperties.setProperty(SCHEMA_LOCATION_PROPERTY, profileUri.toString());
+            profileProperties.setProperty(SCHEMA_DIGEST_PROPERTY, schemaDigest);
+            writeProperties(profileProperties, new File(tempDirectory, PROFILE_PROPERTIES_FILE));
+
+            // Remove incomplete remains of earlier attempts
+            deleteRecursively(profileDirectory);
+            if (!tempDirectory.renameTo(profileDirectory)) {
+                throw new IOException("Could not move stored profile to " + profileDirectory);
+            }
+        } finally {
+            deleteRecursively(tempDirectory);
+        }
+    }
+
+    /**
+     *
+     * @return base directory of this store
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    private File getLocationDirectory(URI profileUri) {
+        return new File(directory, ContentDigest.digest(profileUri.toString()));
+    }
+
+    private String digestSchema(URI profileUri) throws IOException {
+        return ContentDigest.digest(fetchSchema(profileUri));
+    }
+
+    private byte[] fetchSchema(URI profileUri) throws IOException {
+        final InputStream schemaStream = CMDIEntityResolver.getInputStreamForURI(entityResolver, profileUri);
+        try {
+            return ContentDigest.readFully(schemaStream);
+        } finally {
+            schemaStream.close();
+        }
+    }
+
+    private SchemaType loadCmdType(URI profileUri, File typeSystemDirectory) throws CMDITypeException {
+        final SchemaTypeLoader typeLoader = XmlBeans.typeLoaderUnion(new SchemaTypeLoader[]{
+                    XmlBeans.typeLoaderForResource(XmlBeans.resourceLoaderForPath(new File[]{typeSystemDirectory})),
+                    XmlBeans.getBuiltinTypeSystem()});
+        final SchemaType documentType = typeLoader.findDocumentType(CMDIProfileReader.CMD_TYPE_NAME);
+        if (documentType == null) {
+            throw new CMDITypeException(null, "Element CMD not found in stored type system for profile " + profileUri);
+        }
+        final SchemaProperty cmdProperty = documentType.getElementProperty(CMDIProfileReader.CMD_TYPE_NAME);
+        if (cmdProperty == null) {
+            throw new CMDITypeException(null, "Element CMD not found in stored type system for profile " + profileUri);
+        }
+        return cmdProperty.getType();
+    }
+
+    private void saveTypeSystem(CMDIProfile profile, File typeSystemDirectory) throws IOException {
+        final SchemaTypeSystem typeSystem = profile.getSchemaElement().getType().getTypeSystem();
+        try {
+            typeSystem.saveToDirectory(typeSystemDirectory);
+        } catch (RuntimeException rEx) {
+            // XmlBeans signals I/O problems while saving with runtime exceptions
+            throw new IOException("Could not save schema type system for profile " + profile.getSchemaLocation(), rEx);
+        }
+    }
+
+    /**
+     * Recursively collects the annotations for the specified element and its descendants, i.e. the profile information
+     * that cannot be derived from the schema type system
+     */
+    private void collectAnnotations(CMDIProfileElement profileElement, Properties annotations) {
+        final String path = profileElement.getPathString();
+        if (profileElement.getDescription() != null) {
+            annotations.setProperty(path + DESCRIPTION_SUFFIX, profileElement.getDescription());
+        }
+        final DataCategory dataCategory = profileElement.getDataCategory();
+        if (dataCategory != null && dataCategory.getIdentifier() != null) {
+            annotations.setProperty(path + DATA_CATEGORY_SUFFIX, dataCategory.getIdentifier().toString());
+        }
+        if (profileElement instanceof ElementType) {
+            final int displayPriority = ((ElementType) profileElement).getDisplayPriority();
+            if (displayPriority != 0) {
+                annotations.setProperty(path + DISPLAY_PRIORITY_SUFFIX, Integer.toString(displayPriority));
+            }
+        } else if (profileElement instanceof ComponentType) {
+            for (MetadataElementType childType : ((ComponentType) profileElement).getContainableTypes()) {
+                collectAnnotations((CMDIProfileElement) childType, annotations);
+            }
+        }
+    }
+
+    /**
+     * Recursively restores the annotations for the specified element and its descendants
+     */
+    private void restoreAnnotations(CMDIProfileElement profileElement, Properties annotations) {
+        final String path = profileElement.getPathString();
+        final String description = annotations.getProperty(path + DESCRIPTION_SUFFIX);
+        if (description != null) {
+            profileElement.setDescription(description);
+        }
+        final String dataCategory = annotations.getProperty(path + DATA_CATEGORY_SUFFIX);
+        if (dataCategory != null) {
+            try {
+                profileElement.setDataCategory(new DataCategory(new URI(dataCategory)));
+            } catch (URISyntaxException usEx) {
+                logger.warn(String.format("URISyntaxException in stored datcat (value: %1$s) for element %2$s", dataCategory, profileElement), usEx);
+            }
+        }
+        if (profileElement instanceof ElementType) {
+            final String displayPriority = annotations.getProperty(path + DISPLAY_PRIORITY_SUFFIX);
+            if (displayPriority != null) {
+                ((ElementType) profileElement).setDisplayPriority(Integer.parseInt(displayPriority));
+            }
+        } else if (profileElement instanceof ComponentType) {
+            for (MetadataElementType childType : ((ComponentType) profileElement).getContainableTypes()) {
+                restoreAnnotations((CMDIProfileElement) childType, annotations);
+            }
+        }
+    }
+
+    /**
+     *
+     * @return the properties read from the file, or null if the file does not exist
+     */
+    private static Properties readProperties(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        final InputStream inputStream = new FileInputStream(file);
+        try {
+            final Properties properties = new Properties();
+            properties.load(inputStream);
+            return properties;
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static void writeProperties(Properties properties, File file) throws IOException {
+        final OutputStream outputStream = new FileOutputStream(file);
+        try {
+            properties.store(outputStream, null);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        if (file.isDirectory()) {
+            for (File child : file.listFiles()) {
+                deleteRecursively(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            logger.warn("Could not delete {}", file);
+        }
+    }
+}
@@ -16,9 +16,12 @@
  */
 package nl.mpi.metadata.cmdi.api.type.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import javax.xml.namespace.QName;
 import nl.mpi.metadata.api.type.MetadataElementAttributeType;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
@@ -39,11 +42,25 @@ public abstract class CMDIProfileElementImpl implements CMDIProfileElement {
     protected DataCategory dataCategory;
     private Collection<MetadataElementAttributeType> attributes;
     private Collection<MetadataElementAttributeType> excludedAttributes;
+    /**
+     * Attributes including excluded attributes, derived when (excluded) attributes are set
+     */
+    private Collection<MetadataElementAttributeType> allAttributes;
+    /**
+     * All attributes by name, for each name in order of appearance in {@link #allAttributes}; derived when (excluded)
+     * attributes are set
+     */
+    private Map<String, MetadataElementAttributeType[]> attributesByName = Collections.emptyMap();
+    /**
+     * Hash code, computed at construction from the (immutable) parent and name
+     */
+    private final int hash;
 
     protected CMDIProfileElementImpl(SchemaProperty schemaElement, ComponentTypeImpl parent) {
 	this.parent = parent;
 	this.schemaElement = schemaElement;
 	this.qName = schemaElement.getName();
+	this.hash = computeHashCode();
     }
 
     /**
@@ -57,10 +74,12 @@ public abstract class CMDIProfileElementImpl implements CMDIProfileElement {
      */
     @Override
     public MetadataElementAttributeType getAttributeTypeByName(String namespaceURI, String name) {
-	for (MetadataElementAttributeType child : getAllAttributes()) {
-	    if ((namespaceURI == null || namespaceURI.equals(child.getNamespaceURI()))
-		    && child.getName().equals(name)) {
-		return child;
+	final MetadataElementAttributeType[] candidates = attributesByName.get(name);
+	if (candidates != null) {
+	    for (int i = 0; i < candidates.length; i++) {
+		if (namespaceURI == null || namespaceURI.equals(candidates[i].getNamespaceURI())) {
+		    return candidates[i];
+		}
 	    }
 	}
 	return null;
@@ -78,14 +97,39 @@ public abstract class CMDIProfileElementImpl implements CMDIProfileElement {
      */
     @Override
     public Collection<MetadataElementAttributeType> getAllAttributes() {
-	// TODO: Maybe cache this
-	if (excludedAttributes == null || excludedAttributes.isEmpty()) {
-	    return attributes;
+	return allAttributes;
+    }
+
+    /**
+     * Derives the combined attribute collection and the attribute name index from the attributes and excluded
+     * attributes, so that these do not have to be computed for every lookup
+     */
+    private void updateAttributeTables() {
+	if (excludedAttributes == null || excludedAttributes.isEmpty() || attributes == null) {
+	    allAttributes = attributes;
+	} else {
+	    final Collection<MetadataElementAttributeType> combined = new LinkedHashSet<MetadataElementAttributeType>(attributes.size() + excludedAttributes.size());
+	    combined.addAll(attributes);
+	    combined.addAll(excludedAttributes);
+	    allAttributes = Collections.unmodifiableList(new ArrayList<MetadataElementAttributeType>(combined));
+	}
+
+	if (allAttributes == null || allAttributes.isEmpty()) {
+	    attributesByName = Collections.emptyMap();
 	} else {
-	    Set<MetadataElementAttributeType> result = new HashSet<MetadataElementAttributeType>(attributes.size() + excludedAttributes.size());
-	    result.addAll(attributes);
-	    result.addAll(excludedAttributes);
-	    return result;
+	    final Map<String, MetadataElementAttributeType[]> byName = new HashMap<String, MetadataElementAttributeType[]>(allAttributes.size() * 2);
+	    for (MetadataElementAttributeType attribute : allAttributes) {
+		final MetadataElementAttributeType[] existing = byName.get(attribute.getName());
+		if (existing == null) {
+		    byName.put(attribute.getName(), new MetadataElementAttributeType[]{attribute});
+		} else {
+		    final MetadataElementAttributeType[] extended = new MetadataElementAttributeType[existing.length + 1];
+		    System.arraycopy(existing, 0, extended, 0, existing.length);
+		    extended[existing.length] = attribute;
+		    byName.put(attribute.getName(), extended);
+		}
+	    }
+	    attributesByName = byName;
 	}
     }
 
@@ -156,8 +200,20 @@ public abstract class CMDIProfileElementImpl implements CMDIProfileElement {
 	return parent;
     }
 
+    /**
+     * Profile elements are equal if they have the same type, name and parent. Within a profile, each element is
+     * represented by a single instance, so comparisons within a profile are decided by identity or (for unequal elements)
+     * mostly by the precomputed hash codes; only elements of different instances of the same profile are compared
+     * structurally.
+     *
+     * @param obj object to compare to
+     * @return whether the object represents the same profile element
+     */
     @Override
     public boolean equals(Object obj) {
+	if (obj == this) {
+	    return true;
+	}
 	if (obj == null) {
 	    return false;
 	}
@@ -165,23 +221,30 @@ public abstract class CMDIProfileElementImpl implements CMDIProfileElement {
 	    return false;
 	}
 	final CMDIProfileElementImpl other = (CMDIProfileElementImpl) obj;
-	if (this.parent != other.parent && (this.parent == null || !this.parent.equals(other.parent))) {
+	if (this.hash != other.hash) {
 	    return false;
 	}
 	if (this.qName != other.qName && (this.qName == null || !this.qName.equals(other.qName))) {
 	    return false;
 	}
+	if (this.parent != other.parent && (this.parent == null || !this.parent.equals(other.parent))) {
+	    return false;
+	}
 	return true;
     }
 
     @Override
     public int hashCode() {
-	int hash = 7;
-	hash = 67 * hash + (this.parent != null ? this.parent.hashCode() : 0);
-	hash = 67 * hash + (this.qName != null ? this.qName.hashCode() : 0);
 	return hash;
     }
 
+    private int computeHashCode() {
+	int result = 7;
+	result = 67 * result + (this.parent != null ? this.parent.hashCode() : 0);
+	result = 67 * result + (this.qName != null ? this.qName.hashCode() : 0);
+	return result;
+    }
+
     @Override
     public String toString() {
 	return qName.getLocalPart();
@@ -193,6 +256,7 @@ public abstract class CMDIProfileElementImpl implements CMDIProfileElement {
     @Override
     public void setAttributes(Collection<MetadataElementAttributeType> attributes) {
 	this.attributes = attributes;
+	updateAttributeTables();
     }
 
     /**
@@ -205,5 +269,6 @@ public abstract class CMDIProfileElementImpl implements CMDIProfileElement {
     @Override
     public void setExcludedAttributes(Collection<MetadataElementAttributeType> excludedAttributes) {
 	this.excludedAttributes = excludedAttributes;
+	updateAttributeTables();
     }
 }
@@ -36,6 +36,7 @@ public class CMDIProfileImpl extends ComponentTypeImpl implements CMDIProfile {
 
     private final URI schemaLocation;
     private final List<String> headerNames;
+    private String schemaDigest;
 
     /**
      * Constructs a new profile object for a schema element with the specified location and root path.
@@ -65,4 +66,21 @@ public class CMDIProfileImpl extends ComponentTypeImpl implements CMDIProfile {
     public List<String> getHeaderNames() {
 	return headerNames;
     }
+
+    /**
+     *
+     * @return hexadecimal digest of the content of the schema this profile was read from, or null if unknown
+     * @see nl.mpi.metadata.cmdi.util.ContentDigest
+     */
+    public String getSchemaDigest() {
+	return schemaDigest;
+    }
+
+    /**
+     *
+     * @param schemaDigest hexadecimal digest of the content of the schema this profile was read from
+     */
+    void setSchemaDigest(String schemaDigest) {
+	this.schemaDigest = schemaDigest;
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes profile manifests: plain text (UTF-8) files that list profile schema locations, one per line. Empty
+ * lines and lines starting with '#' are ignored.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see CMDIProfileContainerImpl#writeManifest(java.io.File)
+ * @see CMDIProfileContainerImpl#preloadProfiles(java.io.File, java.util.concurrent.Executor)
+ */
+public final class CMDIProfileManifest {
+
+    private final static String ENCODING = "UTF-8";
+    private final static String COMMENT_PREFIX = "#";
+
+    private CMDIProfileManifest() {
+    }
+
+    /**
+     *
+     * @param manifestFile manifest file to read
+     * @return the profile URIs listed in the manifest, in order of appearance
+     * @throws IOException if the file could not be read or contains an invalid URI
+     */
+    public static List<URI> read(File manifestFile) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifestFile), ENCODING));
+        try {
+            final List<URI> profileUris = new ArrayList<URI>();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith(COMMENT_PREFIX)) {
+                    try {
+                        profileUris.add(new URI(line));
+                    } catch (URISyntaxException usEx) {
+                        throw new IOException("Invalid profile URI in manifest " + manifestFile + ": " + line, usEx);
+                    }
+                }
+            }
+            return profileUris;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     *
+     * @param manifestFile manifest file to write, will be overwritten if it exists
+     * @param profileUris profile URIs to list in the manifest
+     * @throws IOException if the file could not be written
+     */
+    public static void write(File manifestFile, Collection<URI> profileUris) throws IOException {
+        final PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(manifestFile), ENCODING));
+        try {
+            writer.println(COMMENT_PREFIX + " CMDI profile manifest, one profile schema location per line");
+            for (URI profileUri : profileUris) {
+                writer.println(profileUri.toString());
+            }
+            if (writer.checkError()) {
+                throw new IOException("Error while writing manifest " + manifestFile);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
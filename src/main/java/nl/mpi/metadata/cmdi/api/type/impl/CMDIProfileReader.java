@@ -16,6 +16,7 @@
  */
 package nl.mpi.metadata.cmdi.api.type.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -24,7 +25,6 @@ import java.util.Collections;
 import java.util.List;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.ParserConfigurationException;
 import nl.mpi.metadata.api.type.MetadataDocumentTypeReader;
 import nl.mpi.metadata.cmdi.api.CMDIConstants;
 import nl.mpi.metadata.cmdi.api.dom.CMDIApiDOMBuilderFactory;
@@ -32,6 +32,8 @@ import nl.mpi.metadata.cmdi.api.dom.DOMBuilderFactory;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
 import nl.mpi.metadata.cmdi.api.type.CMDITypeException;
 import nl.mpi.metadata.cmdi.util.CMDIEntityResolver;
+import nl.mpi.metadata.cmdi.util.ContentDigest;
+import nl.mpi.metadata.cmdi.util.SchemaTypeSystemRegistry;
 import org.apache.xmlbeans.SchemaProperty;
 import org.apache.xmlbeans.SchemaType;
 import org.apache.xmlbeans.SchemaTypeSystem;
@@ -58,6 +60,10 @@ public class CMDIProfileReader implements MetadataDocumentTypeReader<CMDIProfile
     public final static QName HEADER_TYPE_NAME = new QName(CMDIConstants.CMD_NAMESPACE, "Header");
     private final EntityResolver entityResolver;
     private DOMBuilderFactory domBuilderFactory;
+    private final SchemaTypeSystemRegistry typeSystemRegistry;
+    private boolean lazy = false;
+    private CMDIProfileRegistry profileRegistry;
+    private CMDITypeInterner typeInterner = CMDITypeInterner.getSharedInstance();
 
     /**
      * Constructs new CMDIProfileReader with a {@link CMDIEntityResolver} and a {@link CMDIApiDOMBuilderFactory} using that entity resolver
@@ -86,35 +92,150 @@ public class CMDIProfileReader implements MetadataDocumentTypeReader<CMDIProfile
      * @param domBuilderFactory DOM builder factory to be used for creating dom representation of profile schema
      */
     public CMDIProfileReader(EntityResolver entityResolver, DOMBuilderFactory domBuilderFactory) {
+	this(entityResolver, domBuilderFactory, new SchemaTypeSystemRegistry());
+    }
+
+    /**
+     * Constructs a CMDIProfileReader that registers the schema type systems it compiles with the specified registry
+     *
+     * @param entityResolver Entity resolver to be used while parsing the schema file
+     * @param domBuilderFactory DOM builder factory to be used for creating dom representation of profile schema
+     * @param typeSystemRegistry registry to register compiled schema type systems with
+     */
+    public CMDIProfileReader(EntityResolver entityResolver, DOMBuilderFactory domBuilderFactory, SchemaTypeSystemRegistry typeSystemRegistry) {
 	this.entityResolver = entityResolver;
 	this.domBuilderFactory = domBuilderFactory;
+	this.typeSystemRegistry = typeSystemRegistry;
     }
 
     @Override
     public CMDIProfile read(URI uri) throws IOException, CMDITypeException {
 	logger.debug("Reading profile at {}", uri);
 
-	SchemaType schemaRoot = loadSchemaRootElement(uri);
+	if (profileRegistry != null) {
+	    final CMDIProfile registeredProfile = profileRegistry.getProfile(uri);
+	    if (registeredProfile != null) {
+		logger.debug("Using profile registered for location {}", uri);
+		registerTypeSystem(uri, registeredProfile);
+		return registeredProfile;
+	    }
+	}
+	// Retrieve schema once, both the type system and the annotation reader work on the same DOM
+	return read(uri, loadSchemaBytes(uri));
+    }
+
+    /**
+     * Reads a profile from schema content that has already been retrieved, e.g. by a profile store that needed the
+     * schema to check whether it has an up-to-date version of the profile
+     *
+     * @param uri location of the schema
+     * @param schemaBytes content of the schema at the specified location
+     * @return the profile defined by the schema
+     * @throws IOException if the schema could not be parsed
+     * @throws CMDITypeException if the schema could not be compiled or is not a valid profile schema
+     */
+    public CMDIProfile read(URI uri, byte[] schemaBytes) throws IOException, CMDITypeException {
+	final String schemaDigest = ContentDigest.digest(schemaBytes);
+	if (profileRegistry != null) {
+	    final CMDIProfile registeredProfile = profileRegistry.getProfileByDigest(uri, schemaDigest);
+	    if (registeredProfile != null) {
+		logger.debug("Using registered profile for {}", uri);
+		registerTypeSystem(uri, registeredProfile);
+		return registeredProfile;
+	    }
+	}
+	final Document schemaDom = getSchemaDocument(uri, schemaBytes);
+	SchemaType schemaRoot = loadSchemaRootElement(uri, schemaDom);
+	// Instantiate profile
+	CMDIProfileImpl profile = createProfile(uri, schemaRoot);
+	profile.setSchemaDigest(schemaDigest);
+	// Read schema, schema reader needs dom to get annotations
+	CmdiProfileElementSchemaReader schemaReader = new CmdiProfileElementSchemaReader(schemaDom, lazy, typeInterner);
+	schemaReader.readSchema(profile);
+	if (profileRegistry != null) {
+	    return profileRegistry.register(profile);
+	}
+	return profile;
+    }
+
+    /**
+     *
+     * @return whether profiles are read lazily
+     * @see #setLazy(boolean)
+     */
+    public boolean isLazy() {
+	return lazy;
+    }
+
+    /**
+     * Sets whether profiles should be read lazily. In lazy mode, the children of a component (with their attributes and
+     * annotations) are only read from the schema when first requested from that component. This reduces load time and
+     * memory usage for applications that only use parts of a profile, at the cost of retaining the schema DOM for as
+     * long as not all components have been read. Defaults to false.
+     *
+     * @param lazy whether to read profiles lazily
+     */
+    public void setLazy(boolean lazy) {
+	this.lazy = lazy;
+    }
+
+    /**
+     *
+     * @return the registry of canonical profiles used by this reader, null if none
+     */
+    public CMDIProfileRegistry getProfileRegistry() {
+	return profileRegistry;
+    }
+
+    /**
+     * Sets a registry of canonical profiles. If set, the reader returns the registered instance for profiles that are
+     * equivalent to a profile read before (same profile id or schema content), regardless of the location they are read
+     * from. Schemas are not retrieved again from locations that have been registered (remove the location from the
+     * registry to pick up changes), schemas retrieved from other locations are not compiled again if their content is
+     * known. Defaults to null (no registry).
+     *
+     * @param profileRegistry registry to use, can be null
+     * @see CMDIProfileRegistry#getSharedInstance()
+     */
+    public void setProfileRegistry(CMDIProfileRegistry profileRegistry) {
+	this.profileRegistry = profileRegistry;
+    }
+
+    /**
+     *
+     * @return the interner used to share vocabularies, data categories and descriptions between profiles, null if none
+     */
+    public CMDITypeInterner getTypeInterner() {
+	return typeInterner;
+    }
+
+    /**
+     * Sets the interner used to share vocabularies, data categories and descriptions between profiles that embed the same
+     * components. Defaults to the {@link CMDITypeInterner#getSharedInstance() shared instance}.
+     *
+     * @param typeInterner interner to use, null to not intern
+     */
+    public void setTypeInterner(CMDITypeInterner typeInterner) {
+	this.typeInterner = typeInterner;
+    }
+
+    /**
+     * Instantiates a profile for a CMD root element type. Does not read the profile schema (i.e. children, attributes and
+     * annotations), for this use a {@link CmdiProfileElementSchemaReader}.
+     *
+     * @param uri schema location of the profile
+     * @param schemaRoot the type for the root element (/CMD)
+     * @return a new profile object for the root component found in the schema type
+     * @throws CMDITypeException if the root component or header could not be found
+     */
+    CMDIProfileImpl createProfile(URI uri, SchemaType schemaRoot) throws CMDITypeException {
 	// Find the schema element
 	SchemaProperty schemaElement = loadRootComponentProperty(schemaRoot);
 	// Determine root path
 	StringBuilder rootPath = new StringBuilder("/cmd:CMD/cmd:Components/cmd:").append(schemaElement.getName().getLocalPart());
 
 	List<String> headerNames = readHeaderNames(schemaRoot);
-	// Instantiate profile
-	CMDIProfileImpl profile = new CMDIProfileImpl(uri, schemaElement, rootPath, headerNames);
-	try {
-	    // Get schema dom, schema reader needs it to get annotations
-	    Document schemaDom = getSchemaDocument(uri);
-	    // Read schema
-	    CmdiProfileElementSchemaReader schemaReader = new CmdiProfileElementSchemaReader(schemaDom);
-	    schemaReader.readSchema(profile);
-	    return profile;
-	} catch (ParserConfigurationException pcEx) {
-	    throw new CMDITypeException(profile, "Parser configuration exception while reading profile schema", pcEx);
-	} catch (SAXException sEx) {
-	    throw new CMDITypeException(profile, "Parser exception while reading profile schema", sEx);
-	}
+	return new CMDIProfileImpl(uri, schemaElement, rootPath, headerNames);
     }
 
     /**
@@ -141,14 +262,50 @@ public class CMDIProfileReader implements MetadataDocumentTypeReader<CMDIProfile
     }
 
     /**
-     * Loads the schema file, i.e. finds the root component element
+     * Retrieves the content of the schema file through the entity resolver
      *
-     * @return the type for the root element (/CMD)
+     * @param uri location of the schema
+     * @return bytes of the schema file
      * @throws IOException
-     * @throws CMDITypeException
      */
-    private SchemaType loadSchemaRootElement(URI uri) throws IOException, CMDITypeException {
+    private byte[] loadSchemaBytes(URI uri) throws IOException {
 	InputStream inputStream = CMDIEntityResolver.getInputStreamForURI(entityResolver, uri);
+	try {
+	    return ContentDigest.readFully(inputStream);
+	} finally {
+	    inputStream.close();
+	}
+    }
+
+    /**
+     * Makes the type system of a registered profile, which may have been compiled by another reader, available under
+     * the requested location and the location of the profile so that documents can be created for it without compiling
+     * the schema again
+     *
+     * @param uri location the profile has been requested from
+     * @param profile registered profile
+     */
+    private void registerTypeSystem(URI uri, CMDIProfile profile) {
+	final SchemaProperty root = profile.getSchemaElement();
+	if (root != null && root.getType() != null) {
+	    final SchemaTypeSystem typeSystem = root.getType().getTypeSystem();
+	    if (typeSystemRegistry.getTypeSystem(uri) == null) {
+		typeSystemRegistry.register(uri, typeSystem);
+	    }
+	    if (typeSystemRegistry.getTypeSystem(profile.getSchemaLocation()) == null) {
+		typeSystemRegistry.register(profile.getSchemaLocation(), typeSystem);
+	    }
+	}
+    }
+
+    /**
+     * Compiles the schema, i.e. finds the root component element
+     *
+     * @param schemaDom DOM representation of the schema
+     * @return the type for the root element (/CMD)
+     * @throws CMDITypeException
+     */
+    private SchemaType loadSchemaRootElement(URI uri, Document schemaDom) throws CMDITypeException {
 	try {
 	    XmlOptions xmlOptions = new XmlOptions();
 	    xmlOptions.setCharacterEncoding("UTF-8");
@@ -156,13 +313,13 @@ public class CMDIProfileReader implements MetadataDocumentTypeReader<CMDIProfile
 		xmlOptions.setEntityResolver(entityResolver);
 	    }
 	    // Compile schema
-	    SchemaTypeSystem sts = XmlBeans.compileXsd(new XmlObject[]{XmlObject.Factory.parse(inputStream, xmlOptions)}, XmlBeans.getBuiltinTypeSystem(), xmlOptions);
+	    SchemaTypeSystem sts = XmlBeans.compileXsd(new XmlObject[]{XmlObject.Factory.parse(schemaDom, xmlOptions)}, XmlBeans.getBuiltinTypeSystem(), xmlOptions);
+	    // Make available to other components that need the type system (e.g. DOM builder)
+	    typeSystemRegistry.register(uri, sts);
 	    // Find document root element type (CMD)
 	    return findCmdType(sts);
 	} catch (XmlException ex) {
 	    throw new CMDITypeException(null, "XML exception while loading schema " + uri, ex);
-	} finally {
-	    inputStream.close();
 	}
     }
 
@@ -202,14 +359,12 @@ public class CMDIProfileReader implements MetadataDocumentTypeReader<CMDIProfile
 	return componentsChildren[0];
     }
 
-    private Document getSchemaDocument(URI uri) throws ParserConfigurationException, IOException, SAXException {
-	DocumentBuilder documentBuilder = domBuilderFactory.newDOMBuilder();
-	InputStream schemaDomInputStream = CMDIEntityResolver.getInputStreamForURI(entityResolver, uri);
+    private Document getSchemaDocument(URI uri, byte[] schemaBytes) throws IOException, CMDITypeException {
 	try {
-	    Document document = documentBuilder.parse(schemaDomInputStream);
-	    return document;
-	} finally {
-	    schemaDomInputStream.close();
+	    DocumentBuilder documentBuilder = domBuilderFactory.newDOMBuilder();
+	    return documentBuilder.parse(new ByteArrayInputStream(schemaBytes), uri.toString());
+	} catch (SAXException sEx) {
+	    throw new CMDITypeException(null, "Parser exception while reading profile schema " + uri, sEx);
 	}
     }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of canonical profile instances, which allows profiles that are read from different locations (e.g. http and
+ * https, registry mirrors or different query variants) or by different readers to be represented by a single instance.
+ * Profiles are identified by the digest of their schema content, and by the component id of their root component (the
+ * CMD profile id) only if no digest is available. A registry can be shared between {@link CMDIProfileReader}s (and thereby
+ * between API instances), see {@link #getSharedInstance()}.
+ *
+ * Note that the schema location of a canonical profile is the location it was first read from. Profiles are referenced
+ * weakly, so the registry does not keep profiles that are no longer in use alive; registrations of profiles that have
+ * been garbage collected are purged when the registry is next accessed. This class is thread-safe.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see CMDIProfileReader#setProfileRegistry(nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileRegistry)
+ */
+public class CMDIProfileRegistry {
+
+    private final static Logger logger = LoggerFactory.getLogger(CMDIProfileRegistry.class);
+    private final static CMDIProfileRegistry sharedInstance = new CMDIProfileRegistry();
+    private final ConcurrentMap<String, ProfileReference> profilesById = new ConcurrentHashMap<String, ProfileReference>();
+    private final ConcurrentMap<String, ProfileReference> profilesByDigest = new ConcurrentHashMap<String, ProfileReference>();
+    private final ConcurrentMap<URI, ProfileReference> profilesByLocation = new ConcurrentHashMap<URI, ProfileReference>();
+    /**
+     * Queue that references are enqueued in once their profile has been garbage collected
+     */
+    private final ReferenceQueue<CMDIProfile> clearedReferences = new ReferenceQueue<CMDIProfile>();
+
+    /**
+     *
+     * @return a registry instance that is shared within the JVM
+     */
+    public static CMDIProfileRegistry getSharedInstance() {
+        return sharedInstance;
+    }
+
+    /**
+     *
+     * @param schemaLocation location a profile has been read from
+     * @return the canonical profile registered for the location, or null if there is none
+     */
+    public CMDIProfile getProfile(URI schemaLocation) {
+        purgeClearedReferences();
+        return get(profilesByLocation, schemaLocation);
+    }
+
+    /**
+     * Looks up a profile by the digest of its schema content, and if found registers the specified location as an alias
+     * for it
+     *
+     * @param schemaLocation location the schema has been retrieved from
+     * @param schemaDigest digest of the schema content
+     * @return the canonical profile for the schema content, or null if there is none
+     * @see nl.mpi.metadata.cmdi.util.ContentDigest
+     */
+    public CMDIProfile getProfileByDigest(URI schemaLocation, String schemaDigest) {
+        purgeClearedReferences();
+        final CMDIProfile profile = get(profilesByDigest, schemaDigest);
+        if (profile != null) {
+            logger.debug("Profile at {} has the same content as {}", schemaLocation, profile.getSchemaLocation());
+            putReference(profilesByLocation, schemaLocation, profile);
+        }
+        return profile;
+    }
+
+    /**
+     * Registers a profile. If a profile with the same schema content has already been registered, that profile is
+     * returned and the location of the new profile is registered as an alias for it. Profiles with the same profile id
+     * but different content are registered separately, so that changed schemas are picked up. The profile id is only
+     * used to match profiles for which no digest is available.
+     *
+     * @param profile newly read profile
+     * @return the canonical instance of the profile, which is either the specified profile or a previously registered one
+     */
+    public CMDIProfile register(CMDIProfile profile) {
+        purgeClearedReferences();
+        final String profileId = profile.getComponentId();
+        final String digest = getSchemaDigest(profile);
+
+        CMDIProfile canonical = null;
+        if (digest != null) {
+            canonical = putIfAbsent(profilesByDigest, digest, new ProfileReference(profile, profilesByDigest, digest, clearedReferences));
+        } else if (profileId != null) {
+            final CMDIProfile existing = putIfAbsent(profilesById, profileId, new ProfileReference(profile, profilesById, profileId, clearedReferences));
+            // An id match can only be trusted if the content of neither profile is known
+            if (existing != null && getSchemaDigest(existing) == null) {
+                canonical = existing;
+            }
+        }
+        if (canonical == null) {
+            canonical = profile;
+        } else if (canonical != profile) {
+            logger.debug("Profile at {} is equivalent to {}, using the latter", profile.getSchemaLocation(), canonical.getSchemaLocation());
+        }
+        putReference(profilesByLocation, profile.getSchemaLocation(), canonical);
+        return canonical;
+    }
+
+    private static String getSchemaDigest(CMDIProfile profile) {
+        return (profile instanceof CMDIProfileImpl) ? ((CMDIProfileImpl) profile).getSchemaDigest() : null;
+    }
+
+    /**
+     * Removes the registration of a location. Other locations of the same profile remain registered.
+     *
+     * @param schemaLocation location to remove
+     */
+    public void remove(URI schemaLocation) {
+        profilesByLocation.remove(schemaLocation);
+    }
+
+    /**
+     * Removes all registered profiles
+     */
+    public void clear() {
+        profilesById.clear();
+        profilesByDigest.clear();
+        profilesByLocation.clear();
+    }
+
+    private <K> void putReference(ConcurrentMap<K, ProfileReference> map, K key, CMDIProfile profile) {
+        map.put(key, new ProfileReference(profile, map, key, clearedReferences));
+    }
+
+    /**
+     * Removes the registrations of all profiles that have been garbage collected since the last purge
+     */
+    private void purgeClearedReferences() {
+        Reference<? extends CMDIProfile> reference;
+        while ((reference = clearedReferences.poll()) != null) {
+            ((ProfileReference) reference).unregister();
+        }
+    }
+
+    private static <K> CMDIProfile get(ConcurrentMap<K, ProfileReference> map, K key) {
+        final ProfileReference reference = map.get(key);
+        if (reference != null) {
+            final CMDIProfile profile = reference.get();
+            if (profile != null) {
+                return profile;
+            }
+            map.remove(key, reference);
+        }
+        return null;
+    }
+
+    /**
+     * Puts the reference in the map unless a live profile is registered for the key
+     *
+     * @return the live profile registered for the key (which is the profile referenced by the specified reference if none
+     * was registered before)
+     */
+    private static <K> CMDIProfile putIfAbsent(ConcurrentMap<K, ProfileReference> map, K key, ProfileReference reference) {
+        while (true) {
+            final ProfileReference existing = map.putIfAbsent(key, reference);
+            if (existing == null) {
+                return reference.get();
+            }
+            final CMDIProfile existingProfile = existing.get();
+            if (existingProfile != null) {
+                return existingProfile;
+            }
+            // cleared reference, replace it
+            if (map.replace(key, existing, reference)) {
+                return reference.get();
+            }
+        }
+    }
+
+    /**
+     * Weak reference to a registered profile that knows the registration it belongs to, so that it can be removed once
+     * the profile has been garbage collected
+     */
+    private static final class ProfileReference extends WeakReference<CMDIProfile> {
+
+        private final ConcurrentMap<?, ProfileReference> map;
+        private final Object key;
+
+        public ProfileReference(CMDIProfile profile, ConcurrentMap<?, ProfileReference> map, Object key, ReferenceQueue<CMDIProfile> queue) {
+            super(profile, queue);
+            this.map = map;
+            this.key = key;
+        }
+
+        /**
+         * Removes this reference from its map, unless it has been replaced in the mean time
+         */
+        public void unregister() {
+            map.remove(key, this);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import nl.mpi.metadata.api.type.ControlledVocabularyItem;
+import nl.mpi.metadata.cmdi.api.type.datacategory.DataCategory;
+import nl.mpi.metadata.cmdi.util.ContentDigest;
+
+/**
+ * Interns the parts of profile types that do not depend on their position in a profile, so that profiles that embed
+ * the same components share them: controlled vocabularies (keyed by component id, element name and content digest),
+ * data categories and descriptions.
+ *
+ * Component and element types themselves cannot be shared between profiles, since they refer to their parent and
+ * carry their absolute path, both of which depend on where the component is embedded. Interned objects are referenced
+ * weakly. This class is thread-safe.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see CMDIProfileReader#setTypeInterner(nl.mpi.metadata.cmdi.api.type.impl.CMDITypeInterner)
+ */
+public class CMDITypeInterner {
+
+    private final static CMDITypeInterner sharedInstance = new CMDITypeInterner();
+    private final ConcurrentMap<String, VocabularyReference> vocabularies = new ConcurrentHashMap<String, VocabularyReference>();
+    /**
+     * Queue that references are enqueued in once their vocabulary has been garbage collected
+     */
+    private final ReferenceQueue<List<ControlledVocabularyItem>> clearedVocabularies = new ReferenceQueue<List<ControlledVocabularyItem>>();
+    private final Map<Object, WeakReference<Object>> values = new WeakHashMap<Object, WeakReference<Object>>();
+
+    /**
+     *
+     * @return an interner instance that is shared within the JVM
+     */
+    public static CMDITypeInterner getSharedInstance() {
+        return sharedInstance;
+    }
+
+    /**
+     * Interns the items of a controlled vocabulary
+     *
+     * @param componentId id of the component that contains the vocabulary element, can be null
+     * @param elementName name of the vocabulary element
+     * @param items vocabulary items
+     * @return an unmodifiable list of vocabulary items with the same values, descriptions and data categories as the
+     * specified items
+     */
+    public List<ControlledVocabularyItem> internVocabulary(String componentId, String elementName, List<ControlledVocabularyItem> items) {
+        if (items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        removeClearedVocabularies();
+        final String key = String.format("%s/%s#%s", componentId, elementName, digestVocabulary(items));
+        final VocabularyReference existing = vocabularies.get(key);
+        if (existing != null) {
+            final List<ControlledVocabularyItem> existingItems = existing.get();
+            if (existingItems != null) {
+                return existingItems;
+            }
+        }
+        final List<ControlledVocabularyItem> internedItems = Collections.unmodifiableList(items);
+        vocabularies.put(key, new VocabularyReference(key, internedItems, clearedVocabularies));
+        return internedItems;
+    }
+
+    /**
+     *
+     * @param dataCategory data category to intern, can be null
+     * @return an equal data category instance
+     */
+    public DataCategory internDataCategory(DataCategory dataCategory) {
+        return intern(dataCategory);
+    }
+
+    /**
+     *
+     * @param description description to intern, can be null
+     * @return an equal string instance
+     */
+    public String internDescription(String description) {
+        return intern(description);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        final WeakReference<Object> existing = values.get(value);
+        if (existing != null) {
+            final Object existingValue = existing.get();
+            if (existingValue != null) {
+                return (T) existingValue;
+            }
+        }
+        values.put(value, new WeakReference<Object>(value));
+        return value;
+    }
+
+    private static String digestVocabulary(List<ControlledVocabularyItem> items) {
+        final StringBuilder content = new StringBuilder();
+        for (ControlledVocabularyItem item : items) {
+            content.append(item.getValue()).append('\u0000');
+            content.append(item.getDescription()).append('\u0000');
+            if (item instanceof CMDIControlledVocabularyItemImpl && ((CMDIControlledVocabularyItemImpl) item).getDataCategory() != null) {
+                content.append(((CMDIControlledVocabularyItemImpl) item).getDataCategory().getIdentifier());
+            }
+            content.append('\n');
+        }
+        return ContentDigest.digest(content.toString());
+    }
+
+    /**
+     * Removes the entries of vocabularies that have been garbage collected since the last call
+     */
+    private void removeClearedVocabularies() {
+        Reference<? extends List<ControlledVocabularyItem>> reference;
+        while ((reference = clearedVocabularies.poll()) != null) {
+            // only remove the entry if it has not been replaced in the mean time
+            vocabularies.remove(((VocabularyReference) reference).key, reference);
+        }
+    }
+
+    /**
+     * Weak reference to an interned vocabulary that knows its key, so that its entry can be removed once the vocabulary
+     * has been garbage collected
+     */
+    private static final class VocabularyReference extends WeakReference<List<ControlledVocabularyItem>> {
+
+        private final String key;
+
+        public VocabularyReference(String key, List<ControlledVocabularyItem> items, ReferenceQueue<List<ControlledVocabularyItem>> queue) {
+            super(items, queue);
+            this.key = key;
+        }
+    }
+}
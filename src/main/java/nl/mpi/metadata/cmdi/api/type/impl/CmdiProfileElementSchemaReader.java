@@ -22,16 +22,13 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.xml.namespace.QName;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import nl.mpi.metadata.api.type.ControlledVocabularyItem;
 import nl.mpi.metadata.api.type.MetadataElementAttributeType;
 import nl.mpi.metadata.cmdi.api.CMDIConstants;
-import nl.mpi.metadata.cmdi.api.dom.CMDINamespaceContext;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
 import nl.mpi.metadata.cmdi.api.type.CMDITypeException;
 import nl.mpi.metadata.cmdi.api.type.datacategory.DataCategory;
@@ -43,6 +40,7 @@ import org.apache.xmlbeans.XmlAnySimpleType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 
@@ -55,20 +53,32 @@ import org.w3c.dom.Node;
  * SchemaProperties) rather than manipulates them. This requires fewer setters
  * on the type model objects
  *
- * TODO: Make reading annotations optional (because it requires DOM to be loaded
- * and does XPath processing, which slow things down)
+ * TODO: Make reading annotations optional (because it requires DOM to be loaded,
+ * which slows things down)
  *
- * TODO: performance could potentially be improved by scanning the document once
- * for all annotations, storing them in a map with element path as key, and
- * looking them up in this phase.
+ * Annotations on complex type elements are looked up in an index of element
+ * specifications by path, which is built by a single scan of the schema
+ * document on first use.
+ *
+ * In lazy mode, the children of components are not read along with the
+ * component itself but when they are first requested from the component (see
+ * {@link ComponentTypeImpl#getContainableTypes()}). Until then, the reader and
+ * the schema document it holds are kept alive by the unread components. Reading
+ * of deferred children is synchronized on the reader.
  *
  * @author Twan Goosen <twan.goosen@mpi.nl>
  */
 public class CmdiProfileElementSchemaReader {
 
     private final static Logger logger = LoggerFactory.getLogger(CmdiProfileElementSchemaReader.class);
+    private final static String NAME_ATTRIBUTE = "name";
     private final Document schemaDocument;
-    private final XPath xPath;
+    private final boolean lazy;
+    private final CMDITypeInterner typeInterner;
+    /**
+     * Element specifications by path, lazily built from the schema document
+     */
+    private Map<String, Node> elementSpecIndex;
 
     /**
      * Creates a new schema reader for the specified document
@@ -78,9 +88,33 @@ public class CmdiProfileElementSchemaReader {
      * priorities, data categories and element documentation).
      */
     public CmdiProfileElementSchemaReader(Document document) {
+        this(document, false);
+    }
+
+    /**
+     * Creates a new schema reader for the specified document
+     *
+     * @param document DOM representation of the profile schema file to read
+     * @param lazy whether to defer reading the children of components until they
+     * are first requested
+     */
+    public CmdiProfileElementSchemaReader(Document document, boolean lazy) {
+        this(document, lazy, null);
+    }
+
+    /**
+     * Creates a new schema reader for the specified document
+     *
+     * @param document DOM representation of the profile schema file to read
+     * @param lazy whether to defer reading the children of components until they
+     * are first requested
+     * @param typeInterner interner for vocabularies, data categories and
+     * descriptions shared with other profiles, can be null
+     */
+    public CmdiProfileElementSchemaReader(Document document, boolean lazy, CMDITypeInterner typeInterner) {
         this.schemaDocument = document;
-        this.xPath = XPathFactory.newInstance().newXPath();
-        xPath.setNamespaceContext(new CMDINamespaceContext());
+        this.lazy = lazy;
+        this.typeInterner = typeInterner;
     }
 
     public void readSchema(CMDIProfileElementImpl profileElement) throws CMDITypeException {
@@ -93,7 +127,27 @@ public class CmdiProfileElementSchemaReader {
         readAttributes(profileElement);
 
         if (profileElement instanceof ComponentTypeImpl) {
-            readChildren((ComponentTypeImpl) profileElement);
+            if (lazy) {
+                ((ComponentTypeImpl) profileElement).setChildrenReader(this);
+            } else {
+                readChildren((ComponentTypeImpl) profileElement);
+            }
+        }
+    }
+
+    /**
+     * Reads the children of a component for which reading has been deferred
+     * (lazy mode). Only reads one level; components among the children in turn
+     * defer reading of their own children.
+     *
+     * @param componentType component to read the children of
+     */
+    synchronized void readDeferredChildren(ComponentTypeImpl componentType) {
+        logger.debug("Reading deferred children of {}", componentType.getPathString());
+        try {
+            readChildren(componentType);
+        } catch (CMDITypeException ex) {
+            throw new IllegalStateException("Could not read children of " + componentType.getPathString(), ex);
         }
     }
 
@@ -233,6 +287,9 @@ public class CmdiProfileElementSchemaReader {
         } else {
             items = Collections.emptyList();
         }
+        if (typeInterner != null) {
+            items = typeInterner.internVocabulary(profileElement.getParent().getComponentId(), profileElement.getName(), items);
+        }
         profileElement.setItems(items);
     }
 
@@ -248,29 +305,74 @@ public class CmdiProfileElementSchemaReader {
         } else {
             // In case of complex type, try on element specification (xs:element)
             if (schemaDocument != null) {
-                // Path to element specification in schema file
-                final String elementPath = profileElement.getPathString().replaceFirst("/cmd:", "//*[@name='").replaceAll("/cmd:", "']//*[@name='") + "']";
-                try {
-                    // Get element specification
-                    Node elementSpecNode = (Node) xPath.evaluate(elementPath, schemaDocument, XPathConstants.NODE);
-                    if (elementSpecNode != null) {
-                        // Get all attributes on the xs:element and look for annotation data
-                        NamedNodeMap attributes = elementSpecNode.getAttributes();
-                        for (int i = 0; i < attributes.getLength(); i++) {
-                            final Node attrNode = attributes.item(i);
-                            // Convert to {nsUri}localname format
-                            final String nodeName = new QName(attrNode.getNamespaceURI(), attrNode.getLocalName()).toString();
-                            // Check for annotation data and if so save to data structure
-                            saveAnnotationData(profileElement, nodeName, attrNode.getNodeValue());
-                        }
+                // Get element specification
+                final Node elementSpecNode = getElementSpecIndex().get(profileElement.getPathString());
+                if (elementSpecNode != null) {
+                    // Get all attributes on the xs:element and look for annotation data
+                    NamedNodeMap attributes = elementSpecNode.getAttributes();
+                    for (int i = 0; i < attributes.getLength(); i++) {
+                        final Node attrNode = attributes.item(i);
+                        // Convert to {nsUri}localname format
+                        final String nodeName = new QName(attrNode.getNamespaceURI(), attrNode.getLocalName()).toString();
+                        // Check for annotation data and if so save to data structure
+                        saveAnnotationData(profileElement, nodeName, attrNode.getNodeValue());
                     }
-                } catch (XPathExpressionException ex) {
-                    logger.error(String.format("XPathExpressionException while reading annotation for profile element $1%s", profileElement), ex);
                 }
             }
         }
     }
 
+    private Map<String, Node> getElementSpecIndex() {
+        if (elementSpecIndex == null) {
+            elementSpecIndex = indexElementSpecs(schemaDocument);
+            logger.debug("Indexed {} element specifications in schema", elementSpecIndex.size());
+        }
+        return elementSpecIndex;
+    }
+
+    /**
+     * Indexes the named nodes of a schema document by path (see
+     * {@link #indexElementSpecs(org.w3c.dom.Element, java.lang.String, java.util.Map)}).
+     * Each node is visited once, and the index has at most one entry per named
+     * node.
+     *
+     * @param schemaDocument schema document to index
+     * @return element specifications by profile element path
+     */
+    static Map<String, Node> indexElementSpecs(Document schemaDocument) {
+        final Map<String, Node> index = new HashMap<String, Node>();
+        indexElementSpecs(schemaDocument.getDocumentElement(), "", index);
+        return index;
+    }
+
+    /**
+     * Recursively adds all named nodes in the schema to the index, with a path
+     * in the format of profile element paths that consists of the names of the
+     * named node and its named ancestors (e.g. /cmd:CMD/cmd:Components/cmd:Profile).
+     * If multiple nodes have the same path, the first one in document order is
+     * indexed.
+     *
+     * Every named ancestor is part of the path. A child element of a component
+     * is therefore found by the path of the component, also if an element with
+     * the same name occurs earlier in the document deeper within that component
+     * (which a descendant search of the names in the path would find instead).
+     */
+    private static void indexElementSpecs(Element element, String parentPath, Map<String, Node> index) {
+        String path = parentPath;
+        final String name = element.getAttributeNS(null, NAME_ATTRIBUTE);
+        if (name.length() > 0) {
+            path = parentPath + "/cmd:" + name;
+            if (!index.containsKey(path)) {
+                index.put(path, element);
+            }
+        }
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                indexElementSpecs((Element) child, path, index);
+            }
+        }
+    }
+
     private void saveAnnotationData(CMDIProfileElementImpl profileElement, SchemaLocalElement schemaLocalElement) {
         SchemaAnnotation schemaAnnotation = schemaLocalElement.getAnnotation();
         if (schemaAnnotation != null) {
@@ -299,7 +401,7 @@ public class CmdiProfileElementSchemaReader {
                 }
             }
             if ("{http://www.clarin.eu}documentation".equals(annotationName)) {
-                profileElement.setDescription(annotationValue);
+                profileElement.setDescription(typeInterner == null ? annotationValue : typeInterner.internDescription(annotationValue));
             }
             DataCategory datCat = null;
             if ("{http://www.isocat.org/ns/dcr}datcat".equals(annotationName)) {
@@ -311,7 +413,7 @@ public class CmdiProfileElementSchemaReader {
                 }
             }
             if (datCat != null) {
-                profileElement.setDataCategory(datCat);
+                profileElement.setDataCategory(typeInterner == null ? datCat : typeInterner.internDataCategory(datCat));
             }
         }
     }
@@ -17,7 +17,11 @@
 package nl.mpi.metadata.cmdi.api.type.impl;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import nl.mpi.metadata.api.type.MetadataElementType;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
 import nl.mpi.metadata.cmdi.api.type.ComponentType;
@@ -33,7 +37,11 @@ import org.apache.xmlbeans.SchemaProperty;
 public class ComponentTypeImpl extends CMDIProfileElementImpl implements ComponentType {
 
     private final StringBuilder path;
-    private List<CMDIProfileElement> children;
+    private volatile ChildTypes children;
+    /**
+     * Reader for children that have not been read yet (lazy loading), null once the children have been read
+     */
+    private CmdiProfileElementSchemaReader childrenReader;
     private String componentId;
 
     /**
@@ -50,22 +58,30 @@ public class ComponentTypeImpl extends CMDIProfileElementImpl implements Compone
 
     @Override
     public List<MetadataElementType> getContainableTypes() {
-	return Collections.<MetadataElementType>unmodifiableList(children);
+	return getChildren().types;
     }
 
     @Override
     public CMDIProfileElement getType(String name) {
-	for (CMDIProfileElement type : children) {
-	    if (type.getName().equals(name)) {
-		return type;
-	    }
-	}
-	return null;
+	final ChildTypes childTypes = getChildren();
+	final Integer index = childTypes.indexesByName.get(name);
+	return index == null ? null : (CMDIProfileElement) childTypes.types.get(index);
+    }
+
+    /**
+     *
+     * @param name name of a child type
+     * @return position of the (first) child type with the specified name among the {@link #getContainableTypes()
+     * containable types}, -1 if there is none
+     */
+    public int getTypeIndex(String name) {
+	final Integer index = getChildren().indexesByName.get(name);
+	return index == null ? -1 : index;
     }
 
     @Override
     public boolean canContainType(CMDIProfileElement type) {
-	return children.contains(type);
+	return getChildren().typeSet.contains(type);
     }
 
     @Override
@@ -79,7 +95,39 @@ public class ComponentTypeImpl extends CMDIProfileElementImpl implements Compone
     }
 
     protected void setChildren(List<CMDIProfileElement> children) {
-	this.children = children;
+	this.children = new ChildTypes(children);
+    }
+
+    /**
+     * Defers reading of the children of this component until they are first requested
+     *
+     * @param childrenReader schema reader that will read the children
+     */
+    void setChildrenReader(CmdiProfileElementSchemaReader childrenReader) {
+	this.childrenReader = childrenReader;
+    }
+
+    /**
+     *
+     * @return whether the children of this component have been read, i.e. false if reading has been deferred and they have
+     * not been requested yet
+     */
+    boolean isChildrenRead() {
+	return children != null;
+    }
+
+    private ChildTypes getChildren() {
+	ChildTypes result = children;
+	if (result == null) {
+	    synchronized (this) {
+		if (children == null && childrenReader != null) {
+		    childrenReader.readDeferredChildren(this);
+		    childrenReader = null;
+		}
+		result = children;
+	    }
+	}
+	return result;
     }
 
     protected void setComponentId(String componentId) {
@@ -90,4 +138,29 @@ public class ComponentTypeImpl extends CMDIProfileElementImpl implements Compone
     public String getPathString() {
 	return path.toString();
     }
+
+    /**
+     * Immutable set of child types with indexes for lookup by name (which also gives the position of a type among the
+     * children, used to keep child elements ordered) and containment checks, so that resolving child types (which happens
+     * for every node while reading a document) does not require scanning the list of children
+     */
+    private static final class ChildTypes {
+
+	private final List<MetadataElementType> types;
+	private final Map<String, Integer> indexesByName;
+	private final Set<CMDIProfileElement> typeSet;
+
+	public ChildTypes(List<CMDIProfileElement> children) {
+	    this.types = Collections.<MetadataElementType>unmodifiableList(children);
+	    final Map<String, Integer> byName = new HashMap<String, Integer>(children.size() * 2);
+	    for (int i = 0; i < children.size(); i++) {
+		// first type with a given name takes precedence
+		if (!byName.containsKey(children.get(i).getName())) {
+		    byName.put(children.get(i).getName(), i);
+		}
+	    }
+	    this.indexesByName = Collections.unmodifiableMap(byName);
+	    this.typeSet = Collections.unmodifiableSet(new HashSet<CMDIProfileElement>(children));
+	}
+    }
 }
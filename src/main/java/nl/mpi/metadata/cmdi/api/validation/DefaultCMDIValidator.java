@@ -18,6 +18,7 @@ package nl.mpi.metadata.cmdi.api.validation;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import javax.xml.XMLConstants;
 import javax.xml.transform.stream.StreamSource;
@@ -27,9 +28,11 @@ import javax.xml.validation.Validator;
 import nl.mpi.metadata.api.util.DefaultResourceResolver;
 import nl.mpi.metadata.api.validation.MetadataValidator;
 import nl.mpi.metadata.cmdi.api.model.CMDIDocument;
+import nl.mpi.metadata.cmdi.util.CMDIEntityResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
 
@@ -41,6 +44,7 @@ public class DefaultCMDIValidator implements MetadataValidator<CMDIDocument> {
 
     private final static Logger logger = LoggerFactory.getLogger(DefaultCMDIValidator.class);
     private LSResourceResolver resourceResolver;
+    private final EntityResolver schemaResolver;
 
     /**
      * Construct with DefaultResourceResolver
@@ -52,7 +56,24 @@ public class DefaultCMDIValidator implements MetadataValidator<CMDIDocument> {
     }
 
     public DefaultCMDIValidator(LSResourceResolver resourceResolver) {
+        this(resourceResolver, null);
+    }
+
+    /**
+     * Construct with an entity resolver that is used to retrieve the profile
+     * schema and (through a {@link DefaultResourceResolver}) all resources it
+     * refers to
+     *
+     * @param entityResolver entity resolver to use
+     * @see nl.mpi.metadata.cmdi.util.MirroringEntityResolver
+     */
+    public DefaultCMDIValidator(EntityResolver entityResolver) {
+        this(new DefaultResourceResolver(entityResolver), entityResolver);
+    }
+
+    private DefaultCMDIValidator(LSResourceResolver resourceResolver, EntityResolver schemaResolver) {
         this.resourceResolver = resourceResolver;
+        this.schemaResolver = schemaResolver;
         logger.debug("Metadata validator instantiated with resourceResolver {}", resourceResolver);
     }
 
@@ -77,7 +98,21 @@ public class DefaultCMDIValidator implements MetadataValidator<CMDIDocument> {
         schemaFactory.setResourceResolver(getResourceResolver());
 
         logger.debug("Creating schema for {} with {}", schemaFile, schemaFactory);
-        final Schema schema = schemaFactory.newSchema(schemaFile);
+        final Schema schema;
+        if (schemaResolver == null) {
+            schema = schemaFactory.newSchema(schemaFile);
+        } else {
+            try {
+                final InputStream schemaStream = CMDIEntityResolver.getInputStreamForURI(schemaResolver, schemaFile.toString());
+                try {
+                    schema = schemaFactory.newSchema(new StreamSource(schemaStream, schemaFile.toString()));
+                } finally {
+                    schemaStream.close();
+                }
+            } catch (IOException ioEx) {
+                throw new SAXException("Could not retrieve schema " + schemaFile, ioEx);
+            }
+        }
         final Validator validator = schema.newValidator();
 
         logger.debug("Validator of type '{}' created", validator.getClass());
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream that reads from a byte buffer, typically a memory mapped file. Reading copies directly from the buffer
+ * into the caller's array, without intermediate buffering or system calls. Not thread-safe.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see #map(java.io.File)
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    /**
+     *
+     * @param buffer buffer to read from, starting at its current position
+     */
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps a file into memory and creates a stream that reads from the mapping. The file is not held open, but the
+     * mapping remains in effect until the buffer is garbage collected; on some platforms (notably Windows) the file cannot
+     * be modified or deleted while it is mapped.
+     *
+     * @param file file to read
+     * @return stream that reads the content of the file from memory
+     * @throws IOException if the file could not be opened or mapped
+     */
+    public static ByteBufferInputStream map(File file) throws IOException {
+        final FileInputStream fileStream = new FileInputStream(file);
+        try {
+            final FileChannel channel = fileStream.getChannel();
+            return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            fileStream.close();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        final int count = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final int count = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        buffer.mark();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        try {
+            buffer.reset();
+        } catch (InvalidMarkException imEx) {
+            throw new IOException("Stream has not been marked", imEx);
+        }
+    }
+}
@@ -34,7 +34,7 @@ import org.xml.sax.SAXException;
 public class CMDIEntityResolver implements EntityResolver {
 
     private static Logger logger = LoggerFactory.getLogger(CMDIEntityResolver.class);
-    private static final String W3ORG_XML_XSD_URI = "http://www.w3.org/2001/xml.xsd";
+    protected static final String W3ORG_XML_XSD_URI = "http://www.w3.org/2001/xml.xsd";
 
     public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
 	if (systemId.equalsIgnoreCase(W3ORG_XML_XSD_URI)) {
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Directory that stores content by its digest ({@code objects/<sha1 digest>}), with an index that maps keys (e.g. URLs
+ * or system ids) to content digests and optional attributes ({@code index.properties}). Records are appended to the
+ * index as content is stored, so that storing does not require rewriting the entire index; the index is compacted when
+ * it is opened and once it holds more records than entries. Objects that are no longer referenced by any key are
+ * removed.
+ *
+ * Only one instance should use a directory at a time. This class is thread-safe.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see HttpDocumentCache
+ * @see MirroringEntityResolver
+ */
+public class ContentAddressedStore {
+
+    private final static Logger logger = LoggerFactory.getLogger(ContentAddressedStore.class);
+    private final static String INDEX_FILE = "index.properties";
+    private final static String OBJECTS_DIRECTORY = "objects";
+    private final static char ATTRIBUTE_SEPARATOR = '#';
+    /**
+     * Minimum number of records appended to the index before it gets compacted
+     */
+    private final static int MIN_COMPACTION_RECORDS = 1000;
+    private final File directory;
+    private final File objectsDirectory;
+    private final String description;
+    private final Properties index = new Properties();
+    /**
+     * Number of records appended to the index file since it was last compacted
+     */
+    private int appendedRecords;
+
+    /**
+     *
+     * @param directory store directory, will be created if it does not exist
+     * @param description description of the stored content, used as a comment in the index file
+     * @throws IOException if the store directory could not be created or its index could not be read
+     */
+    public ContentAddressedStore(File directory, String description) throws IOException {
+        this.directory = directory;
+        this.objectsDirectory = new File(directory, OBJECTS_DIRECTORY);
+        this.description = description;
+        if (!objectsDirectory.isDirectory() && !objectsDirectory.mkdirs()) {
+            throw new IOException("Could not create directory " + objectsDirectory);
+        }
+        final File indexFile = new File(directory, INDEX_FILE);
+        if (indexFile.exists()) {
+            final InputStream indexStream = new FileInputStream(indexFile);
+            try {
+                // Later records override earlier ones, empty values mark removed attributes
+                index.load(indexStream);
+            } finally {
+                indexStream.close();
+            }
+            index.values().removeAll(Collections.singleton(""));
+            compactIndex();
+        }
+    }
+
+    /**
+     *
+     * @param key key of the content
+     * @return the file that holds the content stored for the key, or null if there is none
+     */
+    public synchronized File getFile(String key) {
+        final String digest = index.getProperty(key);
+        if (digest != null) {
+            final File file = new File(objectsDirectory, digest);
+            if (file.isFile()) {
+                return file;
+            }
+            logger.warn("Stored object {} for {} is missing", digest, key);
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param key key of the content
+     * @return a stream to read the content stored for the key from, or null if there is none
+     * @throws IOException if the stored content could not be opened
+     */
+    public synchronized InputStream openStream(String key) throws IOException {
+        final File file = getFile(key);
+        if (file == null) {
+            return null;
+        }
+        return new FileInputStream(file);
+    }
+
+    /**
+     *
+     * @param key key of the content
+     * @param name name of the attribute
+     * @return the value of the attribute as stored with the content, or null if it has not been set
+     */
+    public synchronized String getAttribute(String key, String name) {
+        return index.getProperty(key + ATTRIBUTE_SEPARATOR + name);
+    }
+
+    /**
+     * Stores content for a key, replacing any content and attributes previously stored for it
+     *
+     * @param key key of the content
+     * @param content content to store
+     * @param attributes attributes to store with the content, attributes with a null value are removed
+     * @return the digest of the content
+     * @throws IOException if the content or the index could not be written
+     */
+    public synchronized String store(String key, byte[] content, Map<String, String> attributes) throws IOException {
+        final String digest = ContentDigest.digest(content);
+        final File objectFile = new File(objectsDirectory, digest);
+        if (!objectFile.exists()) {
+            writeAtomically(objectFile, content);
+        }
+
+        final Properties record = new Properties();
+        record.setProperty(key, digest);
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            final String attributeKey = key + ATTRIBUTE_SEPARATOR + attribute.getKey();
+            if (attribute.getValue() == null) {
+                index.remove(attributeKey);
+                record.setProperty(attributeKey, "");
+            } else {
+                index.setProperty(attributeKey, attribute.getValue());
+                record.setProperty(attributeKey, attribute.getValue());
+            }
+        }
+        final String previousDigest = (String) index.setProperty(key, digest);
+        appendIndexRecord(record);
+        logger.debug("Stored {} as {}", key, digest);
+
+        // Remove the previous content, unless another key refers to the same content
+        if (previousDigest != null && !previousDigest.equals(digest) && !index.containsValue(previousDigest)) {
+            final File previousFile = new File(objectsDirectory, previousDigest);
+            if (previousFile.exists() && !previousFile.delete()) {
+                logger.warn("Could not delete previous object {}", previousFile);
+            }
+        }
+        return digest;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Appends a record to the index file. The index is compacted once the number of appended records exceeds the
+     * number of entries.
+     */
+    private void appendIndexRecord(Properties record) throws IOException {
+        final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        record.store(recordBytes, null);
+        final OutputStream indexStream = new FileOutputStream(new File(directory, INDEX_FILE), true);
+        try {
+            // Skip the timestamp comment that precedes the record
+            final byte[] bytes = recordBytes.toByteArray();
+            int start = 0;
+            if (bytes.length > 0 && bytes[0] == '#') {
+                while (start < bytes.length && bytes[start] != '\n') {
+                    start++;
+                }
+                start++;
+            }
+            indexStream.write(bytes, start, bytes.length - start);
+        } finally {
+            indexStream.close();
+        }
+        if (++appendedRecords > Math.max(MIN_COMPACTION_RECORDS, index.size())) {
+            compactIndex();
+        }
+    }
+
+    /**
+     * Rewrites the index file to contain only the current entries
+     */
+    private void compactIndex() throws IOException {
+        final File tempIndexFile = new File(directory, INDEX_FILE + ".tmp");
+        final OutputStream indexStream = new FileOutputStream(tempIndexFile);
+        try {
+            index.store(indexStream, description);
+        } finally {
+            indexStream.close();
+        }
+        final File indexFile = new File(directory, INDEX_FILE);
+        if (!tempIndexFile.renameTo(indexFile) && !(indexFile.delete() && tempIndexFile.renameTo(indexFile))) {
+            throw new IOException("Could not write index " + indexFile);
+        }
+        appendedRecords = 0;
+    }
+
+    private static void writeAtomically(File file, byte[] content) throws IOException {
+        final File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        final OutputStream outputStream = new FileOutputStream(tempFile);
+        try {
+            outputStream.write(content);
+        } finally {
+            outputStream.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Could not write object " + file);
+        }
+    }
+}
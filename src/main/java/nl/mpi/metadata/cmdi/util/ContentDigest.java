@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Static helpers for computing (hexadecimal) SHA-1 content digests, used to identify schema files and other resources by
+ * their content
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public final class ContentDigest {
+
+    public final static String DIGEST_ALGORITHM = "SHA-1";
+    private final static char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private final static int BUFFER_SIZE = 8192;
+
+    private ContentDigest() {
+    }
+
+    /**
+     *
+     * @return a new message digest for {@link #DIGEST_ALGORITHM}
+     */
+    public static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException nsaEx) {
+            // Every Java platform is required to support SHA-1
+            throw new IllegalStateException(DIGEST_ALGORITHM + " not supported by platform", nsaEx);
+        }
+    }
+
+    /**
+     *
+     * @param bytes content to digest
+     * @return hexadecimal representation of the digest of the specified content
+     */
+    public static String digest(byte[] bytes) {
+        return toHexString(newMessageDigest().digest(bytes));
+    }
+
+    /**
+     *
+     * @param string string to digest, will be encoded as UTF-8
+     * @return hexadecimal representation of the digest of the specified string
+     */
+    public static String digest(String string) {
+        try {
+            return digest(string.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException ueEx) {
+            throw new IllegalStateException("UTF-8 not supported by platform", ueEx);
+        }
+    }
+
+    /**
+     * Reads the specified stream until the end and digests its content. Does not close the stream.
+     *
+     * @param inputStream stream to digest
+     * @return hexadecimal representation of the digest of the stream content
+     * @throws IOException if reading from the stream fails
+     */
+    public static String digest(InputStream inputStream) throws IOException {
+        final MessageDigest messageDigest = newMessageDigest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        for (int read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+            messageDigest.update(buffer, 0, read);
+        }
+        return toHexString(messageDigest.digest());
+    }
+
+    /**
+     * Reads the specified stream until the end. Does not close the stream.
+     *
+     * @param inputStream stream to read
+     * @return all bytes read from the stream
+     * @throws IOException if reading from the stream fails
+     */
+    public static byte[] readFully(InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(BUFFER_SIZE);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        for (int read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     *
+     * @param bytes bytes to represent
+     * @return lower case hexadecimal representation of the specified bytes
+     */
+    public static String toHexString(byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local cache of remote documents that makes repeated retrieval of unchanged documents conditional. Bodies of HTTP
+ * responses that carry a validator ({@code ETag} or {@code Last-Modified}) are stored in a
+ * {@link ContentAddressedStore}, with the validators as attributes. Later requests for the same URL carry
+ * {@code If-None-Match} and {@code If-Modified-Since} headers, and a {@code 304 Not Modified} response is served from
+ * disk.
+ *
+ * The cache works on connections rather than retrieving documents itself, so that the caller stays in control of
+ * redirects and other connection settings. Only one instance should use a directory at a time. This class is
+ * thread-safe.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see nl.mpi.metadata.cmdi.api.CMDIApi#setDocumentCache(nl.mpi.metadata.cmdi.util.HttpDocumentCache)
+ */
+public class HttpDocumentCache {
+
+    private final static Logger logger = LoggerFactory.getLogger(HttpDocumentCache.class);
+    private final static String ETAG_ATTRIBUTE = "etag";
+    private final static String LAST_MODIFIED_ATTRIBUTE = "lastModified";
+    private final ContentAddressedStore store;
+
+    /**
+     *
+     * @param directory cache directory, will be created if it does not exist
+     * @throws IOException if the cache directory could not be created or its index could not be read
+     */
+    public HttpDocumentCache(File directory) throws IOException {
+        this.store = new ContentAddressedStore(directory, "Cached documents by URL");
+    }
+
+    /**
+     * Makes a request conditional on the cached version of the document, if any. Has no effect on non-HTTP connections
+     * or if the document is not in the cache. Must be called before the connection is opened.
+     *
+     * @param url URL the document is requested for (i.e. before any redirects)
+     * @param connection connection that has not been opened yet
+     */
+    public void addValidators(URL url, URLConnection connection) {
+        if (connection instanceof HttpURLConnection) {
+            final String key = url.toString();
+            if (store.getFile(key) != null) {
+                final String etag = store.getAttribute(key, ETAG_ATTRIBUTE);
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", etag);
+                }
+                final String lastModified = store.getAttribute(key, LAST_MODIFIED_ATTRIBUTE);
+                if (lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", lastModified);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the stream to read the document from for a connection of which the response has been received. A
+     * {@code 304 Not Modified} response is served from the cache; the body of a successful response that carries a
+     * validator is stored in the cache. Other responses are passed through.
+     *
+     * @param url URL the document was requested for (i.e. before any redirects)
+     * @param connection connection for the final response (i.e. after any redirects)
+     * @return stream to read the document from, or null if the document was not modified but is no longer in the cache,
+     * in which case it should be requested again unconditionally
+     * @throws IOException if reading the response or the cache fails
+     */
+    public InputStream getResponseStream(URL url, URLConnection connection) throws IOException {
+        final InputStream responseStream = connection.getInputStream();
+        if (!(connection instanceof HttpURLConnection)) {
+            return responseStream;
+        }
+        final HttpURLConnection http = (HttpURLConnection) connection;
+        final String key = url.toString();
+        final int status = http.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            responseStream.close();
+            final InputStream cachedStream = store.openStream(key);
+            if (cachedStream == null) {
+                logger.warn("{} not modified, but no longer in cache", url);
+            } else {
+                logger.debug("{} not modified, reading from cache", url);
+            }
+            return cachedStream;
+        } else if (status == HttpURLConnection.HTTP_OK) {
+            final String etag = http.getHeaderField("ETag");
+            final String lastModified = http.getHeaderField("Last-Modified");
+            if (etag == null && lastModified == null) {
+                logger.debug("No validators for {}, not caching", url);
+                return responseStream;
+            }
+            final byte[] content;
+            try {
+                content = ContentDigest.readFully(responseStream);
+            } finally {
+                responseStream.close();
+            }
+            final Map<String, String> validators = new HashMap<String, String>();
+            validators.put(ETAG_ATTRIBUTE, etag);
+            validators.put(LAST_MODIFIED_ATTRIBUTE, lastModified);
+            store.store(key, content, validators);
+            return new ByteArrayInputStream(content);
+        } else {
+            return responseStream;
+        }
+    }
+
+    /**
+     *
+     * @param url URL of a document
+     * @return whether a version of the document is available in the cache
+     */
+    public boolean isCached(URL url) {
+        return store.getFile(url.toString()) != null;
+    }
+
+    public File getDirectory() {
+        return store.getDirectory();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+/**
+ * Outcome of loading a single object as part of a batch, either the loaded object or the exception that caused the load
+ * to fail, together with the time it took
+ *
+ * @param <K> type of the key (e.g. location) the object is loaded by
+ * @param <V> type of the loaded object
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ * @see LoadTask
+ */
+public class LoadResult<K, V> {
+
+    private final K key;
+    private final V value;
+    private final Exception exception;
+    private final long durationMillis;
+
+    /**
+     *
+     * @param key key the object was loaded by
+     * @param value loaded object, null if loading failed
+     * @param exception exception that caused loading to fail, null if loading succeeded
+     * @param durationMillis time spent loading the object, in milliseconds
+     */
+    public LoadResult(K key, V value, Exception exception, long durationMillis) {
+        this.key = key;
+        this.value = value;
+        this.exception = exception;
+        this.durationMillis = durationMillis;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    /**
+     *
+     * @return the loaded object, null if loading failed
+     */
+    public V getValue() {
+        return value;
+    }
+
+    /**
+     *
+     * @return the exception that caused loading to fail, null if loading succeeded
+     */
+    public Exception getException() {
+        return exception;
+    }
+
+    public boolean isSuccess() {
+        return exception == null;
+    }
+
+    /**
+     *
+     * @return time spent loading the object, in milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        if (isSuccess()) {
+            return String.format("%s loaded in %d ms", key, durationMillis);
+        } else {
+            return String.format("%s failed after %d ms: %s", key, durationMillis, exception);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+/**
+ * Receives the results of a batch load one at a time, so that the results do not have to be collected before they can
+ * be processed
+ *
+ * @param <R> type of the load results
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public interface LoadResultHandler<R extends LoadResult<?, ?>> {
+
+    /**
+     *
+     * @param result result of loading a single object, successful or not
+     */
+    void handleResult(R result);
+}
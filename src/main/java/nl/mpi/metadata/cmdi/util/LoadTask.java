@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task that loads a single object as part of a batch. Failures are isolated: an exception thrown while loading is
+ * reported in the result rather than thrown from {@link #call()}, so that it does not affect the other loads in the
+ * batch.
+ *
+ * @param <K> type of the key (e.g. location) the object is loaded by
+ * @param <V> type of the loaded object
+ * @param <R> type of the load result
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public abstract class LoadTask<K, V, R extends LoadResult<K, V>> implements Callable<R> {
+
+    private final static Logger logger = LoggerFactory.getLogger(LoadTask.class);
+    private final K key;
+
+    /**
+     *
+     * @param key key of the object to load
+     */
+    protected LoadTask(K key) {
+        this.key = key;
+    }
+
+    @Override
+    public R call() {
+        final long startTime = System.nanoTime();
+        V value = null;
+        Exception exception = null;
+        try {
+            value = load(key);
+        } catch (Exception ex) {
+            exception = ex;
+        }
+        final R result = createResult(key, value, exception, (System.nanoTime() - startTime) / 1000000);
+        if (result.isSuccess()) {
+            logger.debug("Loaded {} in {} ms", key, result.getDurationMillis());
+        } else {
+            logger.warn("Could not load " + key, exception);
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @param key key of the object to load
+     * @return the loaded object
+     * @throws Exception if the object could not be loaded
+     */
+    protected abstract V load(K key) throws Exception;
+
+    /**
+     *
+     * @param key key of the object
+     * @param value loaded object, null if loading failed
+     * @param exception exception that caused loading to fail, null if loading succeeded
+     * @param durationMillis time spent loading the object, in milliseconds
+     * @return a result object for the load
+     */
+    protected abstract R createResult(K key, V value, Exception exception, long durationMillis);
+
+    /**
+     * Waits for a load task to complete
+     *
+     * @param <R> type of the load result
+     * @param loadTask future of a {@link LoadTask}
+     * @return the result of the load task
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static <R extends LoadResult<?, ?>> R getResult(Future<R> loadTask) throws InterruptedException {
+        try {
+            return loadTask.get();
+        } catch (ExecutionException eEx) {
+            // Load tasks catch exceptions, so this can only be an error
+            if (eEx.getCause() instanceof Error) {
+                throw (Error) eEx.getCause();
+            }
+            throw new IllegalStateException("Unexpected exception in load task", eEx.getCause());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Entity resolver that keeps a local mirror of all remote entities (profile schemas, included and imported schemas) it
+ * resolves. Entities are stored by system id in a {@link ContentAddressedStore}. Once mirrored, entities are read from
+ * disk only.
+ *
+ * Entities that are available locally anyway (such as xml.xsd, see {@link CMDIEntityResolver}) and non-remote system ids
+ * are not mirrored. The resolved input sources retain the original system id, so that relative references in mirrored
+ * schemas are resolved against their original location (and thereby also mirrored).
+ *
+ * In offline mode, no remote entities are retrieved and resolving an entity that has not been mirrored fails
+ * immediately. This class is thread-safe.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class MirroringEntityResolver extends CMDIEntityResolver {
+
+    private final static Logger logger = LoggerFactory.getLogger(MirroringEntityResolver.class);
+    private final ContentAddressedStore store;
+    private final EntityResolver delegate;
+    private final boolean offline;
+
+    /**
+     * Creates a mirroring resolver that retrieves remote entities from their system id
+     *
+     * @param directory mirror directory, will be created if it does not exist
+     * @param offline whether to run in offline mode, i.e. to only resolve entities from the mirror
+     * @throws IOException if the mirror directory could not be created or its index could not be read
+     */
+    public MirroringEntityResolver(File directory, boolean offline) throws IOException {
+        this(directory, null, offline);
+    }
+
+    /**
+     * Creates a mirroring resolver that retrieves remote entities through another entity resolver
+     *
+     * @param directory mirror directory, will be created if it does not exist
+     * @param delegate resolver to resolve entities that are not in the mirror with, null to retrieve them from their
+     * system id
+     * @param offline whether to run in offline mode, i.e. to only resolve entities from the mirror
+     * @throws IOException if the mirror directory could not be created or its index could not be read
+     */
+    public MirroringEntityResolver(File directory, EntityResolver delegate, boolean offline) throws IOException {
+        this.store = new ContentAddressedStore(directory, "Mirrored entities by system id");
+        this.delegate = delegate;
+        this.offline = offline;
+    }
+
+    @Override
+    public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
+        if (!isRemote(systemId)) {
+            return resolveUnmirrored(publicId, systemId);
+        }
+
+        final InputStream mirroredStream = store.openStream(systemId);
+        if (mirroredStream != null) {
+            logger.debug("Resolved {} from mirror", systemId);
+            return createInputSource(systemId, mirroredStream);
+        } else if (offline) {
+            throw new FileNotFoundException("Entity has not been mirrored and resolver is offline: " + systemId);
+        } else {
+            final byte[] content = retrieve(publicId, systemId);
+            final String digest = store.store(systemId, content, Collections.<String, String>emptyMap());
+            logger.debug("Mirrored {} as {}", systemId, digest);
+            return createInputSource(systemId, new ByteArrayInputStream(content));
+        }
+    }
+
+    /**
+     *
+     * @param systemId system id of an entity
+     * @return whether the entity is available in the mirror
+     */
+    public boolean isMirrored(String systemId) {
+        return store.getFile(systemId) != null;
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    private boolean isRemote(String systemId) {
+        if (systemId == null || systemId.equalsIgnoreCase(W3ORG_XML_XSD_URI)) {
+            return false;
+        }
+        final String lowerCaseSystemId = systemId.toLowerCase();
+        return lowerCaseSystemId.startsWith("http:") || lowerCaseSystemId.startsWith("https:") || lowerCaseSystemId.startsWith("ftp:");
+    }
+
+    private InputSource resolveUnmirrored(String publicId, String systemId) throws SAXException, IOException {
+        if (delegate != null) {
+            return delegate.resolveEntity(publicId, systemId);
+        } else {
+            return super.resolveEntity(publicId, systemId);
+        }
+    }
+
+    private byte[] retrieve(String publicId, String systemId) throws SAXException, IOException {
+        logger.debug("Retrieving {} for mirror", systemId);
+        final InputSource source = resolveUnmirrored(publicId, systemId);
+        final InputStream byteStream = (source == null) ? null : source.getByteStream();
+        final InputStream stream;
+        if (byteStream != null) {
+            stream = byteStream;
+        } else if (source != null && source.getSystemId() != null) {
+            stream = new URL(source.getSystemId()).openStream();
+        } else {
+            stream = new URL(systemId).openStream();
+        }
+        try {
+            return ContentDigest.readFully(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static InputSource createInputSource(String systemId, InputStream stream) {
+        final InputSource inputSource = new InputSource(stream);
+        inputSource.setSystemId(systemId);
+        return inputSource;
+    }
+}
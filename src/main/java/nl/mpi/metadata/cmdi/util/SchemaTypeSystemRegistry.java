@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.xmlbeans.SchemaTypeSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of compiled schema type systems by schema location, allowing components that need the type system of a schema
+ * (e.g. the profile reader and the DOM builder) to share a single compilation.
+ *
+ * Type systems are referenced weakly, so that a registered type system remains available as long as it is in use (e.g.
+ * by a loaded profile) and does not prevent unused type systems from being garbage collected. This class is thread-safe.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class SchemaTypeSystemRegistry {
+
+    private final static Logger logger = LoggerFactory.getLogger(SchemaTypeSystemRegistry.class);
+    private final ConcurrentMap<URI, WeakReference<SchemaTypeSystem>> typeSystems = new ConcurrentHashMap<URI, WeakReference<SchemaTypeSystem>>();
+
+    /**
+     *
+     * @param schemaLocation location of the schema
+     * @return the registered type system for the schema, or null if none has been registered or it has been garbage
+     * collected
+     */
+    public SchemaTypeSystem getTypeSystem(URI schemaLocation) {
+        final WeakReference<SchemaTypeSystem> reference = typeSystems.get(schemaLocation);
+        if (reference != null) {
+            final SchemaTypeSystem typeSystem = reference.get();
+            if (typeSystem != null) {
+                return typeSystem;
+            }
+            typeSystems.remove(schemaLocation, reference);
+        }
+        return null;
+    }
+
+    /**
+     * Registers the type system for a schema, replacing any previously registered type system for the same location
+     *
+     * @param schemaLocation location of the schema
+     * @param typeSystem type system compiled from the schema
+     */
+    public void register(URI schemaLocation, SchemaTypeSystem typeSystem) {
+        logger.debug("Registering type system {} for {}", typeSystem.getName(), schemaLocation);
+        typeSystems.put(schemaLocation, new WeakReference<SchemaTypeSystem>(typeSystem));
+        removeClearedReferences();
+    }
+
+    /**
+     * Removes the registered type system for a schema, if any
+     *
+     * @param schemaLocation location of the schema
+     */
+    public void remove(URI schemaLocation) {
+        typeSystems.remove(schemaLocation);
+    }
+
+    private void removeClearedReferences() {
+        for (Iterator<WeakReference<SchemaTypeSystem>> iterator = typeSystems.values().iterator(); iterator.hasNext();) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package nl.mpi.metadata.cmdi.api;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
@@ -119,6 +120,34 @@ public abstract class CMDIAPITestCase {
         return profile;
     }
 
+    /**
+     * Creates a new, empty directory for temporary files of a test
+     *
+     * @param prefix prefix of the directory name
+     * @return the created directory, to be removed with {@link #deleteRecursively(java.io.File) }
+     */
+    public static File createTempDirectory(String prefix) throws IOException {
+        final File directory = File.createTempFile(prefix, "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+        return directory;
+    }
+
+    /**
+     * Deletes a file or a directory including its contents
+     *
+     * @param file file or directory to delete
+     */
+    public static void deleteRecursively(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
     protected Document getDomDocumentForResource(final String documentResourceLocation) throws ParserConfigurationException, IOException, SAXException {
         final InputStream documentStream = getClass().getResourceAsStream(documentResourceLocation);
         DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
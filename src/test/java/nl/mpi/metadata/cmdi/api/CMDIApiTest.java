@@ -16,20 +16,42 @@
  */
 package nl.mpi.metadata.cmdi.api;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import nl.mpi.metadata.api.SimpleErrorHandler;
 import nl.mpi.metadata.cmdi.api.dom.CMDIDocumentWriter;
 import nl.mpi.metadata.cmdi.api.dom.MockCMDIDocumentReader;
 import nl.mpi.metadata.cmdi.api.model.CMDIDocument;
+import nl.mpi.metadata.cmdi.api.model.Element;
 import nl.mpi.metadata.cmdi.api.model.impl.CMDIMetadataElementFactoryImpl;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileDirectoryStore;
+import nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileRegistry;
 import nl.mpi.metadata.cmdi.api.type.impl.MockCMDIProfileReader;
 import nl.mpi.metadata.cmdi.api.validation.DefaultCMDIValidator;
 import nl.mpi.metadata.cmdi.api.validation.MockCMDIValidator;
 import nl.mpi.metadata.cmdi.util.CMDIEntityResolver;
+import nl.mpi.metadata.cmdi.util.HttpDocumentCache;
+import nl.mpi.metadata.cmdi.util.LoadResultHandler;
+import nl.mpi.metadata.cmdi.util.SchemaTypeSystemRegistry;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * TODO: Use JMock to mock readers, profile container, maybe element factory,
@@ -94,5 +116,176 @@ public class CMDIApiTest extends CMDIAPITestCase {
 	assertEquals(errors, errorHandler.getErrors().size());
 	assertEquals(fatalErrors, errorHandler.getFatalErrors().size());
     }
+
+    /**
+     * Test of loadDocuments method, of class CMDIApi.
+     */
+    @Test
+    public void testLoadDocuments() throws Exception {
+	final URL documentUrl = getClass().getResource(TEXT_CORPUS_INSTANCE_LOCATION);
+	final URL missingUrl = new File("does-not-exist.cmdi").toURI().toURL();
+	final List<URL> urls = Arrays.asList(documentUrl, missingUrl, documentUrl, documentUrl, documentUrl);
+
+	final List<CMDIDocumentLoadResult> results = api.loadDocuments(urls, 2);
+	// One result per URL, in input order
+	assertEquals(urls.size(), results.size());
+	for (int i = 0; i < urls.size(); i++) {
+	    assertEquals(urls.get(i), results.get(i).getDocumentUrl());
+	}
+	// Failure of one document should not affect the others
+	assertFalse(results.get(1).isSuccess());
+	assertNull(results.get(1).getDocument());
+	assertTrue(results.get(1).getException() instanceof IOException);
+	for (int i : new int[]{0, 2, 3, 4}) {
+	    assertTrue(results.get(i).isSuccess());
+	    assertSame(testDocument, results.get(i).getDocument());
+	}
+    }
+
+    /**
+     * Test of loadDocuments method, of class CMDIApi, with a result handler
+     */
+    @Test
+    public void testLoadDocumentsWithHandler() throws Exception {
+	final URL documentUrl = getClass().getResource(TEXT_CORPUS_INSTANCE_LOCATION);
+	final URL missingUrl = new File("does-not-exist.cmdi").toURI().toURL();
+	final List<URL> urls = new ArrayList<URL>();
+	for (int i = 0; i < 25; i++) {
+	    urls.add(i % 5 == 1 ? missingUrl : documentUrl);
+	}
+
+	final Thread callingThread = Thread.currentThread();
+	final List<CMDIDocumentLoadResult> results = new ArrayList<CMDIDocumentLoadResult>();
+	api.loadDocuments(urls, 2, new LoadResultHandler<CMDIDocumentLoadResult>() {
+
+	    @Override
+	    public void handleResult(CMDIDocumentLoadResult result) {
+		assertSame(callingThread, Thread.currentThread());
+		results.add(result);
+	    }
+	});
+	// One result per URL, in input order
+	assertEquals(urls.size(), results.size());
+	for (int i = 0; i < urls.size(); i++) {
+	    assertEquals(urls.get(i), results.get(i).getDocumentUrl());
+	    assertEquals(i % 5 != 1, results.get(i).isSuccess());
+	}
+    }
+
+    /**
+     * Test of getMetadataDocument method, of class CMDIApi, retrieving a redirected document through a document cache
+     */
+    @Test
+    public void testGetMetadataDocumentCachedRedirect() throws Exception {
+	final AtomicInteger notModifiedCount = new AtomicInteger();
+	final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+	server.createContext("/handle", new HttpHandler() {
+
+	    @Override
+	    public void handle(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Location", "/document.cmdi");
+		exchange.sendResponseHeaders(HttpURLConnection.HTTP_MOVED_TEMP, -1);
+		exchange.close();
+	    }
+	});
+	server.createContext("/document.cmdi", new HttpHandler() {
+
+	    @Override
+	    public void handle(HttpExchange exchange) throws IOException {
+		if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+		    notModifiedCount.incrementAndGet();
+		    exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+		} else {
+		    final byte[] document = "<CMD/>".getBytes("UTF-8");
+		    exchange.getResponseHeaders().set("ETag", "\"v1\"");
+		    exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, document.length);
+		    exchange.getResponseBody().write(document);
+		}
+		exchange.close();
+	    }
+	});
+	server.start();
+	final File cacheDirectory = createTempDirectory("document-cache");
+	try {
+	    final URL handleUrl = new URL("http", "localhost", server.getAddress().getPort(), "/handle");
+	    api.setDocumentCache(new HttpDocumentCache(cacheDirectory));
+	    assertSame(testDocument, api.getMetadataDocument(handleUrl));
+	    assertEquals(0, notModifiedCount.get());
+	    // Validators should be sent to the redirect target
+	    assertSame(testDocument, api.getMetadataDocument(handleUrl));
+	    assertEquals(1, notModifiedCount.get());
+	} finally {
+	    server.stop(0);
+	    deleteRecursively(cacheDirectory);
+	}
+    }
+
+    /**
+     * Test of getMetadataDocument method, of class CMDIApi, reading a local file through a memory mapping
+     */
+    @Test
+    public void testGetMetadataDocumentMemoryMapped() throws Exception {
+	final URL documentUrl = getClass().getResource(TEXT_CORPUS_INSTANCE_LOCATION);
+	assertEquals("file", documentUrl.getProtocol());
+	api = new CMDIApi(CMDI_API_TEST_ENTITY_RESOLVER, new DefaultCMDIValidator(), new CMDIMetadataElementFactoryImpl());
+	assertTrue(api.getMemoryMappingThreshold() < 0);
+	final CMDIDocument expected = api.getMetadataDocument(documentUrl);
+
+	api.setMemoryMappingThreshold(0);
+	final CMDIDocument mapped = api.getMetadataDocument(documentUrl);
+	assertEquals(expected.getHeaderInformation().size(), mapped.getHeaderInformation().size());
+	assertEquals(expected.getDocumentReferencesCount(), mapped.getDocumentReferencesCount());
+	assertEquals(expected.getChildrenCount(), mapped.getChildrenCount());
+	assertEquals(((Element) expected.getChildElement("Collection/GeneralInfo/Name")).getValue(), ((Element) mapped.getChildElement("Collection/GeneralInfo/Name")).getValue());
+    }
+
+    /**
+     * Test of createMetadataDocument method, of class CMDIApi, for profiles
+     * that have been restored from a profile store or obtained from a profile
+     * registry. The schema should only be retrieved to compute the digest of
+     * a stored profile, the compiled type system of the profile should be used
+     * to build the document.
+     */
+    @Test
+    public void testCreateMetadataDocumentWithoutRecompiling() throws Exception {
+	final URL remoteURL = new URL(REMOTE_TEXT_CORPUS_SCHEMA_URL);
+	final TestEntityResolver testResolver = new TestEntityResolver(remoteURL, testSchemaTextCorpus);
+	final File storeDirectory = createTempDirectory("profile-store");
+	try {
+	    // Store the profile
+	    final CMDIApi storingApi = new CMDIApi(testResolver, new DefaultCMDIValidator(), new CMDIMetadataElementFactoryImpl(), new CMDIProfileDirectoryStore(storeDirectory, testResolver));
+	    storingApi.getMetadataDocumentType(remoteURL.toURI());
+	    assertEquals(1, testResolver.byteStreamRequested);
+
+	    // Profile restored from the store
+	    final SchemaTypeSystemRegistry typeSystemRegistry = new SchemaTypeSystemRegistry();
+	    final CMDIProfileDirectoryStore store = new CMDIProfileDirectoryStore(storeDirectory, testResolver, typeSystemRegistry);
+	    final CMDIApi restoringApi = new CMDIApi(testResolver, new DefaultCMDIValidator(), new CMDIMetadataElementFactoryImpl(), store, null, typeSystemRegistry);
+	    final CMDIProfile restoredProfile = restoringApi.getMetadataDocumentType(remoteURL.toURI());
+	    assertEquals(2, testResolver.byteStreamRequested);
+	    final CMDIDocument restoredDocument = restoringApi.createMetadataDocument(restoredProfile);
+	    assertSame(restoredProfile, restoredDocument.getType());
+	    assertEquals(2, testResolver.byteStreamRequested);
+
+	    // Profile obtained from a registry shared with another API instance
+	    final CMDIProfileRegistry profileRegistry = new CMDIProfileRegistry();
+	    final CMDIApi readingApi = new CMDIApi(testResolver, new DefaultCMDIValidator(), new CMDIMetadataElementFactoryImpl(), null, profileRegistry);
+	    final CMDIProfile registeredProfile = readingApi.getMetadataDocumentType(remoteURL.toURI());
+	    assertEquals(3, testResolver.byteStreamRequested);
+	    final CMDIApi registryApi = new CMDIApi(testResolver, new DefaultCMDIValidator(), new CMDIMetadataElementFactoryImpl(), null, profileRegistry);
+	    assertSame(registeredProfile, registryApi.getMetadataDocumentType(remoteURL.toURI()));
+	    assertEquals(3, testResolver.byteStreamRequested);
+	    final CMDIDocument registryDocument = registryApi.createMetadataDocument(registeredProfile);
+	    assertSame(registeredProfile, registryDocument.getType());
+	    assertEquals(3, testResolver.byteStreamRequested);
+	} finally {
+	    deleteRecursively(storeDirectory);
+	}
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadDocumentsInvalidParallelism() throws Exception {
+	api.loadDocuments(Arrays.asList(getClass().getResource(TEXT_CORPUS_INSTANCE_LOCATION)), 0);
+    }
     //TODO Test constructors
 }
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathFactory;
+import nl.mpi.metadata.api.type.MetadataElementType;
+import nl.mpi.metadata.cmdi.api.dom.CMDIApiDOMBuilderFactory;
+import nl.mpi.metadata.cmdi.api.dom.CMDIComponentReader;
+import nl.mpi.metadata.cmdi.api.dom.CMDINamespaceContext;
+import nl.mpi.metadata.cmdi.api.dom.CMDIResourceProxyReader;
+import nl.mpi.metadata.cmdi.api.model.CMDIDocument;
+import nl.mpi.metadata.cmdi.api.model.impl.CMDIDocumentImpl;
+import nl.mpi.metadata.cmdi.api.model.impl.CMDIMetadataElementFactoryImpl;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import nl.mpi.metadata.cmdi.api.validation.DefaultCMDIValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Simple benchmark for document reading. Repeatedly reads a test document with a single API instance (so that the
+ * profile is only read once) and reports the average time per read, as well as the time spent on profile type
+ * operations that are performed for each node while reading (hashing, equality and containment checks), compared to
+ * the same operations with the parent walking equality and hash code that profile types used to have. Also compares
+ * reading resource proxies by XPath evaluation and by direct DOM navigation on a copy of the test document that has
+ * been extended to contain a large number of resource proxies, and compares eager and lazy reading of components when only
+ * the top level components are accessed. Finally compares reading a multi-megabyte local file through a stream and
+ * through a memory mapping; to compare the number of system calls, run the benchmark under a system call tracer (e.g.
+ * {@code strace -c -f}).
+ *
+ * Usage: CMDIDocumentReadBenchmark [iterations]
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDIDocumentReadBenchmark {
+
+    private final static Logger logger = LoggerFactory.getLogger(CMDIDocumentReadBenchmark.class);
+    private final static URL DOCUMENT = CMDIDocumentReadBenchmark.class.getResource(CMDIAPITestCase.TEXT_CORPUS_INSTANCE_LOCATION);
+    private final static int DEFAULT_ITERATIONS = 500;
+    private final static int RESOURCE_PROXY_COUNT = 2000;
+    private final static int LARGE_DOCUMENT_RESOURCE_PROXY_COUNT = 20000;
+
+    public static void main(String[] args) throws Exception {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        final CMDIApi api = new CMDIApi(CMDIAPITestCase.CMDI_API_TEST_ENTITY_RESOLVER, new DefaultCMDIValidator(), new CMDIMetadataElementFactoryImpl());
+
+        // Warm up, also loads the profile
+        final CMDIDocument document = api.getMetadataDocument(DOCUMENT);
+        readDocuments(api, DOCUMENT, iterations / 10);
+
+        final long readNanos = readDocuments(api, DOCUMENT, iterations);
+        logger.info("Document read: {} us/op ({} iterations)", readNanos / 1000 / iterations, iterations);
+
+        final List<CMDIProfileElement> types = collectTypes(document.getType(), new ArrayList<CMDIProfileElement>());
+        typeOperations(types, iterations / 10);
+        parentWalkingTypeOperations(types, iterations / 10);
+        final long typeNanos = typeOperations(types, iterations);
+        final long parentWalkingNanos = parentWalkingTypeOperations(types, iterations);
+        logger.info("Type operations on {} profile types, parent walking equals/hashCode: {} us/op ({} iterations)", new Object[]{types.size(), parentWalkingNanos / 1000 / iterations, iterations});
+        logger.info("Type operations on {} profile types, precomputed hash codes: {} us/op ({} iterations)", new Object[]{types.size(), typeNanos / 1000 / iterations, iterations});
+
+        final Document proxiesDom = createResourceProxiesDocument(DOCUMENT, RESOURCE_PROXY_COUNT);
+        final int proxyIterations = Math.max(1, iterations / 50);
+        readResourceProxies(document, proxiesDom, proxyIterations, true);
+        readResourceProxies(document, proxiesDom, proxyIterations, false);
+        final long xPathNanos = readResourceProxies(document, proxiesDom, proxyIterations, true);
+        final long navigationNanos = readResourceProxies(document, proxiesDom, proxyIterations, false);
+        logger.info("Resource proxies ({}) by XPath: {} us/op ({} iterations)", new Object[]{RESOURCE_PROXY_COUNT, xPathNanos / 1000 / proxyIterations, proxyIterations});
+        logger.info("Resource proxies ({}) by DOM navigation: {} us/op ({} iterations)", new Object[]{RESOURCE_PROXY_COUNT, navigationNanos / 1000 / proxyIterations, proxyIterations});
+
+        final Document dom = parseDocument(DOCUMENT);
+        readComponents(document, dom, iterations / 10, false);
+        readComponents(document, dom, iterations / 10, true);
+        final long eagerNanos = readComponents(document, dom, iterations, false);
+        final long lazyNanos = readComponents(document, dom, iterations, true);
+        logger.info("Components read eagerly, top level accessed: {} us/op ({} iterations)", eagerNanos / 1000 / iterations, iterations);
+        logger.info("Components read lazily, top level accessed: {} us/op ({} iterations)", lazyNanos / 1000 / iterations, iterations);
+
+        final File largeDocument = writeTempFile(createResourceProxiesDocument(DOCUMENT, LARGE_DOCUMENT_RESOURCE_PROXY_COUNT));
+        try {
+            final URL largeDocumentUrl = largeDocument.toURI().toURL();
+            final int largeIterations = Math.max(1, iterations / 50);
+            final double megabytes = largeDocument.length() / (1024.0 * 1024.0);
+            readDocuments(api, largeDocumentUrl, largeIterations);
+            final long streamNanos = readDocuments(api, largeDocumentUrl, largeIterations);
+            api.setMemoryMappingThreshold(0);
+            readDocuments(api, largeDocumentUrl, largeIterations);
+            final long mappedNanos = readDocuments(api, largeDocumentUrl, largeIterations);
+            api.setMemoryMappingThreshold(-1);
+            logger.info("Large document ({} MB) read through stream: {} MB/s ({} iterations)", new Object[]{String.format("%.1f", megabytes), String.format("%.1f", megabytes * largeIterations / (streamNanos / 1e9)), largeIterations});
+            logger.info("Large document ({} MB) read through memory mapping: {} MB/s ({} iterations)", new Object[]{String.format("%.1f", megabytes), String.format("%.1f", megabytes * largeIterations / (mappedNanos / 1e9)), largeIterations});
+        } finally {
+            largeDocument.delete();
+        }
+    }
+
+    private static long readDocuments(CMDIApi api, URL documentUrl, int iterations) throws Exception {
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            api.getMetadataDocument(documentUrl);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Reads all resource proxies from a DOM into a new document, either through XPath (creating an XPath instance for
+     * each read like the document reader used to) or by navigating the DOM
+     */
+    private static long readResourceProxies(CMDIDocument document, Document dom, int iterations, boolean useXPath) throws Exception {
+        final CMDIResourceProxyReader resourceReader = new CMDIResourceProxyReader();
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            final CMDIDocument target = new CMDIDocumentImpl(document.getType(), document.getFileLocation());
+            if (useXPath) {
+                final XPath xPath = XPathFactory.newInstance().newXPath();
+                xPath.setNamespaceContext(new CMDINamespaceContext());
+                resourceReader.readResourceProxies(target, dom, xPath);
+            } else {
+                resourceReader.readResourceProxies(target, dom);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Reads the components from a DOM into a new document and accesses the top level components
+     */
+    private static long readComponents(CMDIDocument document, Document dom, int iterations, boolean lazy) throws Exception {
+        final CMDIComponentReader componentReader = new CMDIComponentReader(new CMDIMetadataElementFactoryImpl(), lazy);
+        final long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < iterations; i++) {
+            final CMDIDocument target = new CMDIDocumentImpl(document.getType(), document.getFileLocation());
+            componentReader.readComponents(target, dom);
+            found += target.getChildren().size();
+        }
+        final long duration = System.nanoTime() - start;
+        logger.debug("{} components found", found);
+        return duration;
+    }
+
+    private static File writeTempFile(Document dom) throws Exception {
+        final File file = File.createTempFile("benchmark", ".cmdi");
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(dom), new StreamResult(file));
+        return file;
+    }
+
+    private static Document parseDocument(URL documentUrl) throws Exception {
+        final InputStream documentStream = documentUrl.openStream();
+        try {
+            return new CMDIApiDOMBuilderFactory(CMDIAPITestCase.CMDI_API_TEST_ENTITY_RESOLVER).newDOMBuilder().parse(documentStream, documentUrl.toExternalForm());
+        } finally {
+            documentStream.close();
+        }
+    }
+
+    /**
+     * Parses the document and adds copies of its first resource proxy (with unique identifiers) until it has the
+     * requested number of resource proxies
+     */
+    private static Document createResourceProxiesDocument(URL documentUrl, int proxyCount) throws Exception {
+        final Document dom = parseDocument(documentUrl);
+        final Node proxyList = dom.getElementsByTagNameNS(CMDIConstants.CMD_NAMESPACE, "ResourceProxyList").item(0);
+        final NodeList proxies = dom.getElementsByTagNameNS(CMDIConstants.CMD_NAMESPACE, CMDIConstants.CMD_RESOURCE_PROXY_ELEMENT);
+        final Node proxy = proxies.item(0);
+        for (int i = proxies.getLength(); i < proxyCount; i++) {
+            final Element copy = (Element) proxy.cloneNode(true);
+            copy.setAttribute(CMDIConstants.CMD_RESOURCE_PROXY_ID_ATTRIBUTE, "benchmark" + i);
+            proxyList.appendChild(copy);
+        }
+        return dom;
+    }
+
+    /**
+     * Hashes all types into a set and checks containment of each type in its parent and in the set
+     */
+    private static long typeOperations(List<CMDIProfileElement> types, int iterations) {
+        final long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < iterations; i++) {
+            final Set<CMDIProfileElement> typeSet = new HashSet<CMDIProfileElement>(types);
+            for (CMDIProfileElement type : types) {
+                if (typeSet.contains(type) && (type.getParent() == null || type.getParent().canContainType(type))) {
+                    found++;
+                }
+            }
+        }
+        final long duration = System.nanoTime() - start;
+        logger.debug("{} types found", found);
+        return duration;
+    }
+
+    /**
+     * Performs the same operations as {@link #typeOperations(java.util.List, int)} on types with the equality and hash
+     * code that profile elements had before their hash codes were precomputed, as a baseline
+     *
+     * @see ParentWalkingType
+     */
+    private static long parentWalkingTypeOperations(List<CMDIProfileElement> types, int iterations) {
+        // Containable types of each component, like ComponentTypeImpl keeps them
+        final Map<CMDIProfileElement, Set<ParentWalkingType>> containableTypes = new IdentityHashMap<CMDIProfileElement, Set<ParentWalkingType>>();
+        for (CMDIProfileElement type : types) {
+            if (type instanceof ComponentType) {
+                final Set<ParentWalkingType> children = new HashSet<ParentWalkingType>();
+                for (MetadataElementType child : ((ComponentType) type).getContainableTypes()) {
+                    children.add(new ParentWalkingType((CMDIProfileElement) child));
+                }
+                containableTypes.put(type, children);
+            }
+        }
+        final List<ParentWalkingType> wrappedTypes = new ArrayList<ParentWalkingType>(types.size());
+        for (CMDIProfileElement type : types) {
+            wrappedTypes.add(new ParentWalkingType(type));
+        }
+
+        final long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < iterations; i++) {
+            final Set<ParentWalkingType> typeSet = new HashSet<ParentWalkingType>(wrappedTypes);
+            for (ParentWalkingType type : wrappedTypes) {
+                final CMDIProfileElement parent = type.type.getParent();
+                if (typeSet.contains(type) && (parent == null || containableTypes.get(parent).contains(type))) {
+                    found++;
+                }
+            }
+        }
+        final long duration = System.nanoTime() - start;
+        logger.debug("{} types found", found);
+        return duration;
+    }
+
+    /**
+     * Profile type with the equality and hash code of CMDIProfileElementImpl before hash codes were precomputed: both
+     * walk up to the root of the profile on every call, and equality has no identity shortcut
+     */
+    private static class ParentWalkingType {
+
+        private final CMDIProfileElement type;
+
+        public ParentWalkingType(CMDIProfileElement type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final CMDIProfileElement other = ((ParentWalkingType) obj).type;
+            if (type.getClass() != other.getClass()) {
+                return false;
+            }
+            final CMDIProfileElement parent = type.getParent();
+            final CMDIProfileElement otherParent = other.getParent();
+            if (parent != otherParent && (parent == null || otherParent == null || !new ParentWalkingType(parent).equals(new ParentWalkingType(otherParent)))) {
+                return false;
+            }
+            return type.getName().equals(other.getName());
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 67 * hash + (type.getParent() != null ? new ParentWalkingType(type.getParent()).hashCode() : 0);
+            hash = 67 * hash + type.getName().hashCode();
+            return hash;
+        }
+    }
+
+    private static List<CMDIProfileElement> collectTypes(CMDIProfileElement type, List<CMDIProfileElement> types) {
+        types.add(type);
+        if (type instanceof ComponentType) {
+            for (MetadataElementType child : ((ComponentType) type).getContainableTypes()) {
+                collectTypes((CMDIProfileElement) child, types);
+            }
+        }
+        return types;
+    }
+}
@@ -16,11 +16,15 @@
  */
 package nl.mpi.metadata.cmdi.api.dom;
 
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.xml.parsers.DocumentBuilder;
 import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
 import org.junit.Test;
+import org.w3c.dom.Document;
 
 import static nl.mpi.metadata.cmdi.api.CMDIAPITestCase.CMDI_API_TEST_ENTITY_RESOLVER;
+import static nl.mpi.metadata.cmdi.api.CMDIConstants.CMD_NAMESPACE;
 import static org.junit.Assert.*;
 
 /**
@@ -37,5 +41,51 @@ public class CMDIApiDOMBuilderFactoryTest extends CMDIAPITestCase {
 	CMDIApiDOMBuilderFactory instance = new CMDIApiDOMBuilderFactory(CMDI_API_TEST_ENTITY_RESOLVER);
 	DocumentBuilder result = instance.newDOMBuilder();
 	assertNotNull(result);
+	assertTrue(result.isNamespaceAware());
+    }
+
+    /**
+     * Builders should be reused on the same thread, but not shared between threads
+     */
+    @Test
+    public void testNewDOMBuilderReuse() throws Exception {
+	final CMDIApiDOMBuilderFactory instance = new CMDIApiDOMBuilderFactory(CMDI_API_TEST_ENTITY_RESOLVER);
+	final DocumentBuilder builder = instance.newDOMBuilder();
+	assertNotNull(parse(builder));
+	// Reset builder should be handed out again and still be usable
+	final DocumentBuilder reusedBuilder = instance.newDOMBuilder();
+	assertSame(builder, reusedBuilder);
+	assertTrue(reusedBuilder.isNamespaceAware());
+	final Document document = parse(reusedBuilder);
+	assertEquals(CMD_NAMESPACE, document.getDocumentElement().getNamespaceURI());
+
+	final AtomicReference<DocumentBuilder> otherThreadBuilder = new AtomicReference<DocumentBuilder>();
+	final Thread thread = new Thread(new Runnable() {
+
+	    public void run() {
+		otherThreadBuilder.set(instance.newDOMBuilder());
+	    }
+	});
+	thread.start();
+	thread.join();
+	assertNotNull(otherThreadBuilder.get());
+	assertNotSame(builder, otherThreadBuilder.get());
+    }
+
+    @Test
+    public void testNewDOMBuilderNoReuse() throws Exception {
+	final CMDIApiDOMBuilderFactory instance = new CMDIApiDOMBuilderFactory(CMDI_API_TEST_ENTITY_RESOLVER, false);
+	final DocumentBuilder builder = instance.newDOMBuilder();
+	assertNotSame(builder, instance.newDOMBuilder());
+	assertNotNull(parse(builder));
+    }
+
+    private Document parse(DocumentBuilder builder) throws Exception {
+	final InputStream stream = getClass().getResourceAsStream(TEXT_CORPUS_INSTANCE_LOCATION);
+	try {
+	    return builder.parse(stream);
+	} finally {
+	    stream.close();
+	}
     }
 }
@@ -36,6 +36,8 @@ import nl.mpi.metadata.cmdi.api.model.Element;
 import nl.mpi.metadata.cmdi.api.model.MetadataResourceProxy;
 import nl.mpi.metadata.cmdi.api.model.MultilingualElement;
 import nl.mpi.metadata.cmdi.api.model.ResourceProxy;
+import nl.mpi.metadata.cmdi.api.model.impl.CMDIContainerMetadataElementImpl;
+import nl.mpi.metadata.cmdi.api.model.impl.CMDIDocumentImpl;
 import nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileContainerImpl;
 import org.custommonkey.xmlunit.XMLUnit;
 import org.junit.After;
@@ -200,6 +202,75 @@ public class CMDIDocumentReaderTest extends CMDIAPITestCase {
         assertEquals("en", name.getLanguage());
     }
 
+    /**
+     * Test of read method, of class CMDIDocumentReader, with a lazy component reader
+     */
+    @Test
+    public void testReadComponentsLazily() throws Exception {
+        final CMDIDocument expected = readTestDocument(TEXT_CORPUS_INSTANCE_LOCATION);
+        reader = new CMDIDocumentReader(profileContainer, new CMDIComponentReader(CMDI_METADATA_ELEMENT_FACTORY, true), new CMDIResourceProxyReader());
+        final CMDIDocument cmdi = readTestDocument(TEXT_CORPUS_INSTANCE_LOCATION);
+        assertFalse(((CMDIDocumentImpl) cmdi).isChildElementsLoaded());
+
+        // Accessing the children of the document only loads the top level
+        assertEquals(3, cmdi.getChildren().size());
+        assertTrue(((CMDIDocumentImpl) cmdi).isChildElementsLoaded());
+        final Component collection = (Component) cmdi.getChildElement("Collection");
+        assertFalse(((CMDIContainerMetadataElementImpl) collection).isChildElementsLoaded());
+        // Loading does not make the document dirty
+        assertFalse(cmdi.isDirty());
+        assertFalse(collection.isDirty());
+
+        // Deeper levels are loaded on access
+        final Element name = (Element) cmdi.getChildElement("Collection/GeneralInfo/Name");
+        assertEquals("TextCorpus test", name.getValue());
+        assertFalse(name.isDirty());
+        assertTrue(((CMDIContainerMetadataElementImpl) collection).isChildElementsLoaded());
+        assertEquals("BE", ((Element) cmdi.getChildElement("Collection/OriginLocation/Location[2]/Country/Code")).getValue());
+
+        // References of elements that have not been accessed are found
+        final ResourceProxy proxy = cmdi.getDocumentResourceProxy("metadata1");
+        assertEquals(expected.getResourceProxyReferences(expected.getDocumentResourceProxy("metadata1")).size(), cmdi.getResourceProxyReferences(proxy).size());
+        assertFalse(cmdi.isDirty());
+    }
+
+    /**
+     * Test of read method, of class CMDIDocumentReader, with readers that share a value interner
+     */
+    @Test
+    public void testReadWithValueInterner() throws Exception {
+        final CMDIValueInterner interner = new CMDIValueInterner();
+        final CMDIComponentReader componentReader = new CMDIComponentReader(CMDI_METADATA_ELEMENT_FACTORY);
+        componentReader.setValueInterner(interner);
+        final CMDIResourceProxyReader resourceProxyReader = new CMDIResourceProxyReader();
+        resourceProxyReader.setValueInterner(interner);
+        reader = new CMDIDocumentReader(profileContainer, componentReader, resourceProxyReader);
+
+        final CMDIDocument cmdi1 = readTestDocument(TEXT_CORPUS_INSTANCE_LOCATION);
+        final CMDIDocument cmdi2 = readTestDocument(TEXT_CORPUS_INSTANCE_LOCATION);
+        assertTrue(interner.size() > 0);
+
+        // Languages, short values and attribute values are shared between the documents
+        final MultilingualElement name1 = (MultilingualElement) cmdi1.getChildElement("Collection/GeneralInfo/Name");
+        final MultilingualElement name2 = (MultilingualElement) cmdi2.getChildElement("Collection/GeneralInfo/Name");
+        assertEquals("en", name1.getLanguage());
+        assertSame(name1.getLanguage(), name2.getLanguage());
+        final String code = "Collection/OriginLocation/Location[2]/Country/Code";
+        assertEquals("BE", ((Element) cmdi1.getChildElement(code)).getValue());
+        assertSame(((Element) cmdi1.getChildElement(code)).getValue(), ((Element) cmdi2.getChildElement(code)).getValue());
+        final String description = "Collection/GeneralInfo/Description/Description";
+        assertSame(((Element) cmdi1.getChildElement(description)).getAttributes().iterator().next().getValue(),
+                ((Element) cmdi2.getChildElement(description)).getAttributes().iterator().next().getValue());
+
+        // So are resource types and MIME types
+        final ResourceProxy proxy1 = cmdi1.getDocumentResourceProxy("metadata1");
+        final ResourceProxy proxy2 = cmdi2.getDocumentResourceProxy("metadata1");
+        assertEquals("application/xml", proxy1.getMimetype());
+        assertSame(proxy1.getMimetype(), proxy2.getMimetype());
+        // Interning does not make the documents dirty
+        assertFalse(cmdi1.isDirty());
+    }
+
     private CMDIDocument readTestDocument(String resource) throws SAXException, DOMException, MetadataException, ParserConfigurationException, IOException {
         final Document dom = getDomDocumentForResource(resource);
         final CMDIDocument cmdi = reader.read(dom, URI.create("file:/metadata/document.cmdi"));
@@ -17,6 +17,7 @@
 package nl.mpi.metadata.cmdi.api.dom;
 
 import java.net.URI;
+import java.net.URL;
 import java.util.Collections;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
@@ -39,7 +40,9 @@ import nl.mpi.metadata.cmdi.api.model.impl.ElementImpl;
 import nl.mpi.metadata.cmdi.api.model.impl.MultilingualElementImpl;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
 import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileReader;
 import nl.mpi.metadata.cmdi.api.type.impl.ElementTypeImpl;
+import nl.mpi.metadata.cmdi.util.SchemaTypeSystemRegistry;
 import org.custommonkey.xmlunit.Diff;
 import org.custommonkey.xmlunit.XMLUnit;
 import static org.junit.Assert.*;
@@ -94,6 +97,28 @@ public class CMDIDomBuilderTest extends CMDIAPITestCase {
         assertEquals(0, profileRootNode.getChildNodes().getLength());
     }
 
+    /**
+     * Test of createDomFromSchema method, of class CMDIDomBuilder, with a
+     * type system that was registered by the profile reader
+     */
+    @Test
+    public void testCreateDomFromRegisteredSchema() throws Exception {
+        final URL remoteURL = new URL(REMOTE_TEXT_CORPUS_SCHEMA_URL);
+        final TestEntityResolver testResolver = new TestEntityResolver(remoteURL, testSchemaTextCorpus);
+        final SchemaTypeSystemRegistry registry = new SchemaTypeSystemRegistry();
+
+        // Reading the profile compiles the schema and registers it
+        new CMDIProfileReader(testResolver, CMDI_API_TEST_DOM_BUILDER_FACTORY, registry).read(remoteURL.toURI());
+        assertEquals(1, testResolver.byteStreamRequested);
+        assertNotNull(registry.getTypeSystem(remoteURL.toURI()));
+
+        // Building should reuse the registered type system instead of retrieving and compiling the schema again
+        CMDIDomBuilder instance = new CMDIDomBuilder(testResolver, CMDI_API_TEST_DOM_BUILDER_FACTORY, registry);
+        Document document = instance.createDomFromSchema(remoteURL.toURI(), DomBuildingMode.EMPTY);
+        assertEquals(1, testResolver.byteStreamRequested);
+        assertEquals("TextCorpusProfile", document.getFirstChild().getLastChild().getFirstChild().getLocalName());
+    }
+
     @Test
     public void testBuildDomForDocumentHeaders() throws Exception {
         CMDIDomBuilder instance = new CMDIDomBuilder(CMDI_API_TEST_ENTITY_RESOLVER, CMDI_API_TEST_DOM_BUILDER_FACTORY);
@@ -118,6 +118,55 @@ public class CMDIResourceProxyReaderTest extends CMDIAPITestCase {
         }
     }
 
+    /**
+     * Test of readResourceProxies method without XPath, of class CMDIResourceProxyReader. Should yield the same proxies
+     * as the XPath based variant.
+     */
+    @Test
+    public void testReadResourceProxiesWithoutXPath() throws Exception {
+        final Document domDocument = getDomDocumentForResource(TEXT_CORPUS_LOCAL_URI_INSTANCE_LOCATION);
+        final CMDIDocument xPathDocument = new CMDIDocumentImpl(document.getType(), document.getFileLocation());
+        instance.readResourceProxies(xPathDocument, domDocument, newXPath());
+        final CMDIDocument navigationDocument = new CMDIDocumentImpl(document.getType(), document.getFileLocation());
+        instance.readResourceProxies(navigationDocument, domDocument);
+
+        assertEquals(6, navigationDocument.getDocumentReferences().size());
+        assertEquals(xPathDocument.getDocumentReferences(), navigationDocument.getDocumentReferences());
+        for (String id : new String[]{"resource1", "resource2", "metadata1", "landingPage", "searchPage1", "searchService1"}) {
+            final ResourceProxy expected = xPathDocument.getDocumentResourceProxy(id);
+            final ResourceProxy actual = navigationDocument.getDocumentResourceProxy(id);
+            assertNotNull(actual);
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getMimetype(), actual.getMimetype());
+            assertEquals(expected.getLocation(), actual.getLocation());
+        }
+    }
+
+    @Test
+    public void testCreateResourceProxyWithoutXPath() throws Exception {
+        String xml = "<ResourceProxy id=\"resource1\">"
+                + "<ResourceType mimetype=\"text/plain\">Resource</ResourceType>"
+                + "<ResourceRef>http://resources/1</ResourceRef>"
+                + "</ResourceProxy>";
+        ResourceProxy resourceProxy = instance.createResourceProxy(document, getResourceProxyNode(xml));
+        assertEquals("resource1", resourceProxy.getId());
+        assertEquals("Resource", ((ResourceReference) resourceProxy).getType());
+        assertEquals("text/plain", resourceProxy.getMimetype());
+        assertEquals(new URI("http://resources/1"), resourceProxy.getURI());
+
+        xml = "<ResourceProxy id=\"resource1\">"
+                + "<ResourceRef>http://resources/1</ResourceRef>"
+                + "</ResourceProxy>";
+        try {
+            instance.createResourceProxy(document, getResourceProxyNode(xml));
+            fail("Should fail because no resource type");
+        } catch (MetadataException mEx) {
+            // Should be thrown
+            assertTrue(mEx.getMessage().startsWith("Encountered resource proxy without ResourceType"));
+        }
+    }
+
     @Test
     public void testCreateResourceProxy() throws Exception {
         String xml = "<ResourceProxy id=\"resource1\">"
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.dom;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.List;
+import nl.mpi.metadata.api.MetadataDocumentException;
+import nl.mpi.metadata.api.MetadataException;
+import nl.mpi.metadata.api.model.HeaderInfo;
+import nl.mpi.metadata.api.model.MetadataContainer;
+import nl.mpi.metadata.api.model.MetadataElement;
+import nl.mpi.metadata.api.model.Reference;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import nl.mpi.metadata.cmdi.api.model.Attribute;
+import nl.mpi.metadata.cmdi.api.model.CMDIDocument;
+import nl.mpi.metadata.cmdi.api.model.CMDIDocumentSummary;
+import nl.mpi.metadata.cmdi.api.model.CMDIMetadataElement;
+import nl.mpi.metadata.cmdi.api.model.Element;
+import nl.mpi.metadata.cmdi.api.model.MultilingualElement;
+import nl.mpi.metadata.cmdi.api.model.ResourceProxy;
+import nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileContainerImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static nl.mpi.metadata.cmdi.api.CMDIConstants.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link CMDIStreamDocumentReader} by comparing its results to those of {@link CMDIDocumentReader}
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDIStreamDocumentReaderTest extends CMDIAPITestCase {
+
+    private static final URI DOCUMENT_URI = URI.create("file:/metadata/document.cmdi");
+    private CMDIStreamDocumentReader streamReader;
+    private CMDIDocumentReader domReader;
+    private CMDIProfileContainerImpl profileContainer;
+
+    @Before
+    public void setUp() {
+        profileContainer = new CMDIProfileContainerImpl(getProfileReader());
+        streamReader = new CMDIStreamDocumentReader(profileContainer, CMDI_METADATA_ELEMENT_FACTORY);
+        domReader = new CMDIDocumentReader(profileContainer, CMDI_METADATA_ELEMENT_FACTORY);
+    }
+
+    @After
+    public void tearDown() {
+        profileContainer = null;
+        streamReader = null;
+        domReader = null;
+    }
+
+    /**
+     * Test of read method, of class CMDIStreamDocumentReader.
+     */
+    @Test
+    public void testRead() throws Exception {
+        final CMDIDocument cmdi = readTestDocument(TEXT_CORPUS_INSTANCE_LOCATION);
+        assertEquals("http://catalog.clarin.eu/ds/ComponentRegistry/rest/registry/profiles/clarin.eu:cr1:p_1271859438164/xsd", cmdi.getType().getSchemaLocation().toString());
+        assertEquals("Joe Unit", cmdi.getHeaderInformation(CMD_HEADER_MD_CREATOR).getValue());
+        assertEquals(3, cmdi.getChildren().size());
+
+        // Document should be in a clean state after read
+        assertFalse(cmdi.isDirty());
+        assertFalse(cmdi.getHeaderDirtyState().isDirty());
+        assertFalse(cmdi.getResourceProxiesDirtyState().isDirty());
+
+        final MultilingualElement name = (MultilingualElement) cmdi.getChildElement("Collection/GeneralInfo/Name");
+        assertEquals("TextCorpus test", name.getValue());
+        assertEquals("en", name.getLanguage());
+        assertFalse(name.isDirty());
+    }
+
+    /**
+     * Compares the results of the streaming reader to those of the DOM reader for all test documents that the DOM
+     * reader can read
+     */
+    @Test
+    public void testReadEquivalentToDomReader() throws Exception {
+        for (String resource : new String[]{
+            TEXT_CORPUS_INSTANCE_LOCATION,
+            TEXT_CORPUS_LOCAL_URI_INSTANCE_LOCATION,
+            "/cmdi/Soundbites-instance-namespace-prefixes.cmdi"}) {
+            final CMDIDocument expected = domReader.read(getDomDocumentForResource(resource), DOCUMENT_URI);
+            final CMDIDocument actual = readTestDocument(resource);
+
+            assertSame(expected.getType(), actual.getType());
+            assertHeaderEquals(expected.getHeaderInformation(), actual.getHeaderInformation());
+            assertReferencesEqual(expected.getDocumentReferences(), actual.getDocumentReferences());
+            assertElementEquals(expected, actual);
+        }
+    }
+
+    @Test(expected = MetadataDocumentException.class)
+    public void testReadHeaderMissing() throws Exception {
+        streamReader.read(createStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<CMD xmlns=\"http://www.clarin.eu/cmd/\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+                + "CMDVersion=\"1.1\" xsi:schemaLocation=\"http://www.clarin.eu/cmd/ " + testSchemaTextCorpus + "\">\n"
+                + "<Components><TextCorpusProfile/></Components>\n"
+                + "</CMD>\n"), DOCUMENT_URI);
+    }
+
+    @Test(expected = MetadataException.class)
+    public void testReadProfileUriMissing() throws Exception {
+        streamReader.read(createStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<CMD xmlns=\"http://www.clarin.eu/cmd/\" CMDVersion=\"1.1\"><Header/></CMD>\n"), DOCUMENT_URI);
+    }
+
+    @Test(expected = MetadataException.class)
+    public void testReadNotWellFormed() throws Exception {
+        streamReader.read(createStream("<CMD xmlns=\"http://www.clarin.eu/cmd/\"><Header>"), DOCUMENT_URI);
+    }
+
+    /**
+     * Test of readSummary method, of class CMDIStreamDocumentReader.
+     */
+    @Test
+    public void testReadSummary() throws Exception {
+        for (String resource : new String[]{
+            TEXT_CORPUS_INSTANCE_LOCATION,
+            TEXT_CORPUS_LOCAL_URI_INSTANCE_LOCATION}) {
+            final CMDIDocument expected = domReader.read(getDomDocumentForResource(resource), DOCUMENT_URI);
+            final InputStream stream = getClass().getResourceAsStream(resource);
+            try {
+                final CMDIDocumentSummary summary = streamReader.readSummary(stream, DOCUMENT_URI);
+                assertEquals(DOCUMENT_URI, summary.getDocumentURI());
+                assertEquals(expected.getType().getSchemaLocation(), summary.getProfileURI());
+                assertHeaderEquals(expected.getHeaderInformation(), summary.getHeaderInformation());
+                assertEquals(expected.getDocumentReferences().size(), summary.getResourceProxies().size());
+                for (Reference reference : expected.getDocumentReferences()) {
+                    final ResourceProxy proxy = (ResourceProxy) reference;
+                    final ResourceProxy actual = summary.getResourceProxy(proxy.getId());
+                    assertNotNull(actual);
+                    assertEquals(proxy.getURI(), actual.getURI());
+                    assertEquals(proxy.getMimetype(), actual.getMimetype());
+                }
+            } finally {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Summary should not require the profile to be available, nor read the components
+     */
+    @Test
+    public void testReadSummaryWithoutProfile() throws Exception {
+        final CMDIDocumentSummary summary = streamReader.readSummary(createStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<CMD xmlns=\"http://www.clarin.eu/cmd/\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+                + "CMDVersion=\"1.1\" xsi:schemaLocation=\"http://www.clarin.eu/cmd/ profile/nonexistent.xsd\">\n"
+                + "<Header><MdCreator>Joe Unit</MdCreator><MdSelfLink>test:self</MdSelfLink></Header>\n"
+                + "<Resources><ResourceProxyList/></Resources>\n"
+                + "<Components><NoSuchProfile><NotWellFormed></Components>\n"
+                + "</CMD>\n"), DOCUMENT_URI);
+        assertEquals(URI.create("file:/metadata/profile/nonexistent.xsd"), summary.getProfileURI());
+        assertEquals("Joe Unit", summary.getHeaderInformation(CMD_HEADER_MD_CREATOR).getValue());
+        assertEquals("test:self", summary.getSelfLink());
+        assertTrue(summary.getResourceProxies().isEmpty());
+    }
+
+    @Test(expected = MetadataException.class)
+    public void testReadSummaryHeaderMissing() throws Exception {
+        streamReader.readSummary(createStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<CMD xmlns=\"http://www.clarin.eu/cmd/\" CMDVersion=\"1.1\"><Components/></CMD>\n"), DOCUMENT_URI);
+    }
+
+    private CMDIDocument readTestDocument(String resource) throws Exception {
+        final InputStream stream = getClass().getResourceAsStream(resource);
+        try {
+            final CMDIDocument cmdi = streamReader.read(stream, DOCUMENT_URI);
+            assertNotNull(cmdi);
+            return cmdi;
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static InputStream createStream(String content) throws Exception {
+        return new ByteArrayInputStream(content.getBytes("UTF-8"));
+    }
+
+    private static void assertHeaderEquals(List<HeaderInfo> expected, List<HeaderInfo> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+        }
+    }
+
+    private static void assertReferencesEqual(List<Reference> expected, List<Reference> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+            assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+            assertEquals(expected.get(i).getType(), actual.get(i).getType());
+            assertEquals(expected.get(i).getLocation(), actual.get(i).getLocation());
+            assertEquals(expected.get(i).getMimetype(), actual.get(i).getMimetype());
+        }
+    }
+
+    private static void assertElementEquals(CMDIMetadataElement expected, CMDIMetadataElement actual) {
+        assertEquals(expected.getPathString(), actual.getPathString());
+        assertSame(expected.getType(), actual.getType());
+        assertEquals(expected.isDirty(), actual.isDirty());
+        if (expected instanceof Element) {
+            assertEquals(expected.getPathString(), ((Element) expected).getValue(), ((Element) actual).getValue());
+        }
+        if (expected instanceof MultilingualElement) {
+            assertEquals(((MultilingualElement) expected).getLanguage(), ((MultilingualElement) actual).getLanguage());
+        }
+
+        assertEquals(expected.getAttributes().size(), actual.getAttributes().size());
+        final Iterator<Attribute> actualAttributes = actual.getAttributes().iterator();
+        for (Attribute expectedAttribute : expected.getAttributes()) {
+            final Attribute actualAttribute = actualAttributes.next();
+            assertSame(expectedAttribute.getType(), actualAttribute.getType());
+            assertEquals(expectedAttribute.getValue(), actualAttribute.getValue());
+        }
+
+        assertReferencesEqual(expected.getReferences(), actual.getReferences());
+
+        if (expected instanceof MetadataContainer) {
+            final List<MetadataElement> expectedChildren = ((MetadataContainer) expected).getChildren();
+            final List<MetadataElement> actualChildren = ((MetadataContainer) actual).getChildren();
+            assertEquals(expected.getPathString(), expectedChildren.size(), actualChildren.size());
+            for (int i = 0; i < expectedChildren.size(); i++) {
+                assertElementEquals((CMDIMetadataElement) expectedChildren.get(i), (CMDIMetadataElement) actualChildren.get(i));
+            }
+        }
+    }
+}
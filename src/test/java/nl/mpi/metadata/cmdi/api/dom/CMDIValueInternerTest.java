@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.dom;
+
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
+import nl.mpi.metadata.cmdi.api.type.ControlledVocabularyElementType;
+import nl.mpi.metadata.cmdi.api.type.ElementType;
+import org.jmock.Mockery;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDIValueInternerTest {
+
+    private final Mockery context = new Mockery();
+    private CMDIValueInterner instance;
+
+    @Before
+    public void setUp() {
+        instance = new CMDIValueInterner(3, 4);
+    }
+
+    /**
+     * Test of intern method, of class CMDIValueInterner.
+     */
+    @Test
+    public void testIntern() {
+        final String value = new String("text/plain");
+        assertSame(value, instance.intern(value));
+        assertSame(value, instance.intern(new String("text/plain")));
+        assertEquals(1, instance.size());
+        assertNull(instance.intern(null));
+    }
+
+    /**
+     * Test of intern method, of class CMDIValueInterner, with a full pool
+     */
+    @Test
+    public void testInternBounded() {
+        instance.intern("a");
+        instance.intern("b");
+        instance.intern("c");
+        assertEquals(3, instance.size());
+
+        // Values in the pool are still shared, new values are returned as is
+        final String value = new String("d");
+        assertSame(value, instance.intern(value));
+        assertNotSame(value, instance.intern(new String("d")));
+        assertSame("a", instance.intern(new String("a")));
+        assertEquals(3, instance.size());
+
+        instance.clear();
+        assertEquals(0, instance.size());
+        assertSame(value, instance.intern(value));
+    }
+
+    /**
+     * Test of internElementValue method, of class CMDIValueInterner.
+     */
+    @Test
+    public void testInternElementValue() {
+        final CMDIProfileElement elementType = context.mock(CMDIProfileElement.class);
+        final CMDIProfileElement vocabularyType = context.mock(VocabularyElementType.class);
+
+        // Short values are interned for any element
+        final String shortValue = new String("NL");
+        assertSame(shortValue, instance.internElementValue(elementType, shortValue));
+        assertSame(shortValue, instance.internElementValue(elementType, new String("NL")));
+
+        // Long values only for vocabulary elements
+        final String longValue = new String("Netherlands");
+        assertNotSame(longValue, instance.internElementValue(elementType, new String(longValue)));
+        assertSame(longValue, instance.internElementValue(vocabularyType, longValue));
+        assertSame(longValue, instance.internElementValue(vocabularyType, new String("Netherlands")));
+        assertSame(longValue, instance.internElementValue(elementType, new String("Netherlands")));
+        assertEquals(2, instance.size());
+    }
+
+    /**
+     * Test of internFreeText method, of class CMDIValueInterner.
+     */
+    @Test
+    public void testInternFreeText() {
+        final String value = new String("nl");
+        assertSame(value, instance.internFreeText(value));
+        assertSame(value, instance.internFreeText(new String("nl")));
+        final String longValue = new String("Test voor TextCorpus");
+        assertNotSame(longValue, instance.internFreeText(new String(longValue)));
+        assertEquals(1, instance.size());
+        assertNull(instance.internFreeText(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMaxSize() {
+        new CMDIValueInterner(-1, 0);
+    }
+
+    private interface VocabularyElementType extends ElementType, ControlledVocabularyElementType {
+    }
+}
@@ -18,6 +18,7 @@ package nl.mpi.metadata.cmdi.api.model.impl;
 
 import java.util.List;
 import nl.mpi.metadata.api.MetadataElementException;
+import nl.mpi.metadata.api.MetadataException;
 import nl.mpi.metadata.api.model.MetadataElement;
 import nl.mpi.metadata.cmdi.api.model.CMDIContainerMetadataElement;
 import nl.mpi.metadata.cmdi.api.model.CMDIDocument;
@@ -270,6 +271,64 @@ public class CMDIContainerMetadataElementImplTest extends CMDIMetadataElementImp
 	collection.getChildElement(originLocationType, 1);
     }
 
+    /**
+     * Tests that a path lookup from the document and lazy loading of a component on another thread do not deadlock.
+     * The path lookup starts at the document and descends into the component, while the lazy load starts at the
+     * component and needs the lock on the document.
+     */
+    @Test
+    public void testLazyLoadingConcurrentPathLookup() throws Exception {
+	for (int i = 0; i < 20; i++) {
+	    final CMDIDocument lazyDocument = new CMDIDocumentImpl(getNewTestProfileAndRead());
+	    final CMDIContainerMetadataElementImpl lazyCollection = new CMDIContainerMetadataElementImpl(collectionType, lazyDocument);
+	    lazyDocument.addChildElement(lazyCollection);
+	    lazyCollection.setChildElementsLoader(new ChildElementsLoader() {
+
+		@Override
+		public void loadChildElements(CMDIContainerMetadataElement container) throws MetadataException {
+		    container.addChildElement(new CMDIContainerMetadataElementImpl(originLocationType, lazyDocument));
+		}
+	    });
+
+	    final Thread loadThread = new Thread(new Runnable() {
+
+		@Override
+		public void run() {
+		    lazyCollection.getChildren();
+		}
+	    });
+	    final Thread lookupThread = new Thread(new Runnable() {
+
+		@Override
+		public void run() {
+		    lazyDocument.getChildElement("Collection/OriginLocation");
+		}
+	    });
+	    loadThread.setDaemon(true);
+	    lookupThread.setDaemon(true);
+
+	    // Hold the document lock until both threads are waiting for it, so that either may get it first
+	    synchronized (lazyDocument) {
+		loadThread.start();
+		waitUntilBlocked(loadThread);
+		lookupThread.start();
+		waitUntilBlocked(lookupThread);
+	    }
+	    loadThread.join(5000);
+	    lookupThread.join(5000);
+	    assertFalse("Deadlock between lazy loading and path lookup", loadThread.isAlive() || lookupThread.isAlive());
+	    assertEquals(1, lazyCollection.getChildrenCount(originLocationType));
+	    assertSame(lazyCollection.getChildElement("OriginLocation"), lazyDocument.getChildElement("Collection/OriginLocation"));
+	}
+    }
+
+    private static void waitUntilBlocked(Thread thread) throws InterruptedException {
+	final long deadline = System.currentTimeMillis() + 5000;
+	while (thread.getState() != Thread.State.BLOCKED && thread.isAlive() && System.currentTimeMillis() < deadline) {
+	    Thread.sleep(1);
+	}
+    }
+
     @Override
     CMDIMetadataElement getInstance() {
 	return collection;
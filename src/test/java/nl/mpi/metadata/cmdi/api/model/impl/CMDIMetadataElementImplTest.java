@@ -17,6 +17,8 @@
 package nl.mpi.metadata.cmdi.api.model.impl;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.UUID;
 import nl.mpi.metadata.api.model.Reference;
@@ -208,6 +210,34 @@ public abstract class CMDIMetadataElementImplTest extends CMDIAPITestCase {
 	assertTrue(getInstance().isDirty());
     }
 
+    /**
+     * Test of addAttribute and removeAttribute methods, of class CMDIMetadataElementImpl, with multiple attributes
+     */
+    @Test
+    public void testAddRemoveMultipleAttributes() {
+	final Attribute attribute1 = context.mock(Attribute.class, "attribute1");
+	final Attribute attribute2 = context.mock(Attribute.class, "attribute2");
+	final Attribute attribute3 = context.mock(Attribute.class, "attribute3");
+	assertTrue(getInstance().addAttribute(attribute1));
+	assertTrue(getInstance().addAttribute(attribute2));
+	assertTrue(getInstance().addAttribute(attribute3));
+	// Already added
+	assertFalse(getInstance().addAttribute(attribute2));
+	final Collection<Attribute> attributes = getInstance().getAttributes();
+	assertEquals(Arrays.asList(attribute1, attribute2, attribute3), new ArrayList<Attribute>(attributes));
+
+	// Removal keeps the order of the remaining attributes
+	assertTrue(getInstance().removeAttribute(attribute2));
+	assertFalse(getInstance().removeAttribute(attribute2));
+	assertEquals(Arrays.asList(attribute1, attribute3), new ArrayList<Attribute>(getInstance().getAttributes()));
+	// Earlier result is a snapshot
+	assertEquals(3, attributes.size());
+
+	assertTrue(getInstance().removeAttribute(attribute1));
+	assertTrue(getInstance().removeAttribute(attribute3));
+	assertTrue(getInstance().getAttributes().isEmpty());
+    }
+
     abstract CMDIMetadataElement getInstance();
 
     abstract CMDIDocument getDocument();
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.model.impl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+import nl.mpi.metadata.api.model.MetadataElement;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import nl.mpi.metadata.cmdi.api.model.CMDIContainerMetadataElement;
+import nl.mpi.metadata.cmdi.api.model.CMDIDocument;
+import nl.mpi.metadata.cmdi.api.model.CMDIMetadataElement;
+import nl.mpi.metadata.cmdi.api.model.Element;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Guards the layout of the metadata element model by building a large document and estimating the memory used per
+ * element from the declared fields of the element classes and the collections and arrays they refer to, assuming a 64
+ * bit JVM with compressed references. This is a layout estimate, not a measurement: it ignores field packing, padding
+ * between class hierarchies and anything the JVM allocates besides the declared fields, so the number it reports should
+ * not be taken as the actual heap usage (use a tool such as JOL for that). It does catch fields and per-element
+ * collections being added to the model. The compact model takes roughly 80 bytes per element by this estimate.
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDIModelLayoutEstimateTest extends CMDIAPITestCase {
+
+    private final static Logger logger = LoggerFactory.getLogger(CMDIModelLayoutEstimateTest.class);
+    private final static int LOCATION_COUNT = 20000;
+    private final static long MAX_BYTES_PER_ELEMENT = 128;
+    private final static int OBJECT_HEADER_BYTES = 12;
+    private final static int REFERENCE_BYTES = 4;
+    private final static int ARRAY_HEADER_BYTES = 16;
+
+    @Test
+    public void testEstimatedBytesPerElement() throws Exception {
+        final CMDIProfile profile = getNewTestProfileAndRead();
+        final ComponentType collectionType = (ComponentType) profile.getType("Collection");
+        final ComponentType originLocationType = (ComponentType) collectionType.getType("OriginLocation");
+        final ComponentType locationType = (ComponentType) originLocationType.getType("Location");
+        final ComponentType countryType = (ComponentType) locationType.getType("Country");
+        final CMDIProfileElement codeType = countryType.getType("Code");
+
+        final CMDIDocument document = new CMDIDocumentImpl(profile);
+        final CMDIContainerMetadataElement collection = addChild(document, collectionType);
+        final CMDIContainerMetadataElement originLocation = addChild(collection, originLocationType);
+        for (int i = 0; i < LOCATION_COUNT; i++) {
+            final CMDIContainerMetadataElement location = addChild(originLocation, locationType);
+            final CMDIContainerMetadataElement country = addChild(location, countryType);
+            ((Element) addChild(country, codeType)).setValue("NL");
+        }
+        assertEquals(LOCATION_COUNT, originLocation.getChildrenCount());
+
+        final int elementCount = 2 + 3 * LOCATION_COUNT;
+        final long bytes = estimateSize(collection);
+        final long bytesPerElement = bytes / elementCount;
+        logger.info("Estimated layout size: {} bytes per element ({} elements)", bytesPerElement, elementCount);
+        assertTrue("Estimated layout size per element: " + bytesPerElement, bytesPerElement < MAX_BYTES_PER_ELEMENT);
+    }
+
+    private static <T extends CMDIMetadataElement> T addChild(CMDIContainerMetadataElement parent, CMDIProfileElement type) throws Exception {
+        @SuppressWarnings("unchecked")
+        final T child = (T) CMDI_METADATA_ELEMENT_FACTORY.createNewMetadataElement(parent, type);
+        assertTrue(parent.addChildElement(child));
+        return child;
+    }
+
+    /**
+     * Estimates the memory allocated for an element and its descendants: the fields of the elements and the collections,
+     * arrays and character sequences they refer to. Types, parents, documents and values are shared and not counted.
+     */
+    private static long estimateSize(CMDIMetadataElement element) throws IllegalAccessException {
+        long size = 0;
+        for (Class<?> type = element.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    final Object value = field.get(element);
+                    if (value instanceof Object[]) {
+                        size += align(ARRAY_HEADER_BYTES + ((Object[]) value).length * REFERENCE_BYTES);
+                    } else if (value instanceof Collection) {
+                        size += estimateSize(((Collection<?>) value).size());
+                    } else if (value instanceof Map) {
+                        // Table plus an entry object per mapping
+                        size += estimateSize(((Map<?, ?>) value).size()) + ((Map<?, ?>) value).size() * align(OBJECT_HEADER_BYTES + 4 + 3 * REFERENCE_BYTES);
+                    } else if (value instanceof CharSequence && !"value".equals(field.getName())) {
+                        size += align(OBJECT_HEADER_BYTES + 8) + align(ARRAY_HEADER_BYTES + ((CharSequence) value).length());
+                    }
+                }
+            }
+        }
+        size += align(getShallowSize(element.getClass()));
+        if (element instanceof CMDIContainerMetadataElement) {
+            for (MetadataElement child : ((CMDIContainerMetadataElement) element).getChildren()) {
+                size += estimateSize((CMDIMetadataElement) child);
+            }
+        }
+        return size;
+    }
+
+    /**
+     *
+     * @return estimated size of a collection object with its backing array
+     */
+    private static long estimateSize(int collectionSize) {
+        return align(OBJECT_HEADER_BYTES + 2 * 4 + REFERENCE_BYTES) + align(ARRAY_HEADER_BYTES + collectionSize * REFERENCE_BYTES);
+    }
+
+    private static long getShallowSize(Class<?> type) {
+        long size = OBJECT_HEADER_BYTES;
+        for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    final Class<?> fieldType = field.getType();
+                    if (fieldType == long.class || fieldType == double.class) {
+                        size += 8;
+                    } else if (fieldType == int.class || fieldType == float.class) {
+                        size += 4;
+                    } else if (fieldType == short.class || fieldType == char.class) {
+                        size += 2;
+                    } else if (fieldType == byte.class || fieldType == boolean.class) {
+                        size += 1;
+                    } else {
+                        size += REFERENCE_BYTES;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
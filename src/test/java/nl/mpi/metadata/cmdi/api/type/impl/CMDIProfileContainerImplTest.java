@@ -17,9 +17,22 @@
 package nl.mpi.metadata.cmdi.api.type.impl;
 
 import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import java.io.File;
+import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import nl.mpi.metadata.api.type.MetadataDocumentTypeReader;
+import nl.mpi.metadata.api.type.MetadataElementType;
 import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileLoadResult;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
 import org.jmock.integration.junit4.JUnit4Mockery;
@@ -70,4 +83,307 @@ public class CMDIProfileContainerImplTest extends CMDIAPITestCase {
 	CMDIProfile profile2 = instance.getProfile(testUri);
 	assertSame(profile, profile2);
     }
+
+    @Test
+    public void testGetProfileConcurrently() throws Exception {
+	final URI slowUri = URI.create("http://test/slow");
+	final URI fastUri = URI.create("http://test/fast");
+	final CMDIProfile testProfile = getNewTestProfileAndRead();
+	final AtomicInteger slowReads = new AtomicInteger();
+	final CountDownLatch slowReadStarted = new CountDownLatch(1);
+	final CountDownLatch slowReadRelease = new CountDownLatch(1);
+
+	final CMDIProfileContainerImpl instance = new CMDIProfileContainerImpl(new MetadataDocumentTypeReader<CMDIProfile>() {
+
+	    public CMDIProfile read(URI uri) throws IOException {
+		if (slowUri.equals(uri)) {
+		    slowReads.incrementAndGet();
+		    slowReadStarted.countDown();
+		    try {
+			assertTrue(slowReadRelease.await(10, TimeUnit.SECONDS));
+		    } catch (InterruptedException ex) {
+			fail(ex.toString());
+		    }
+		}
+		return testProfile;
+	    }
+	});
+
+	final AtomicReference<CMDIProfile> result1 = new AtomicReference<CMDIProfile>();
+	final AtomicReference<CMDIProfile> result2 = new AtomicReference<CMDIProfile>();
+	final Thread thread1 = new Thread(new ProfileRequest(instance, slowUri, result1));
+	final Thread thread2 = new Thread(new ProfileRequest(instance, slowUri, result2));
+	thread1.start();
+	assertTrue(slowReadStarted.await(10, TimeUnit.SECONDS));
+	thread2.start();
+
+	// Other profiles can be loaded while the slow profile is being loaded
+	assertFalse(instance.containsProfile(slowUri));
+	assertSame(testProfile, instance.getProfile(fastUri));
+
+	slowReadRelease.countDown();
+	thread1.join(10000);
+	thread2.join(10000);
+	assertSame(testProfile, result1.get());
+	assertSame(testProfile, result2.get());
+	// Profile should have been read only once
+	assertEquals(1, slowReads.get());
+	assertTrue(instance.containsProfile(slowUri));
+    }
+
+    @Test
+    public void testGetProfileFailure() throws Exception {
+	final URI testUri = URI.create("http://test/uri");
+	final CMDIProfile testProfile = getNewTestProfileAndRead();
+	final AtomicInteger reads = new AtomicInteger();
+
+	final CMDIProfileContainerImpl instance = new CMDIProfileContainerImpl(new MetadataDocumentTypeReader<CMDIProfile>() {
+
+	    public CMDIProfile read(URI uri) throws IOException {
+		if (reads.incrementAndGet() == 1) {
+		    throw new IOException("First read fails");
+		}
+		return testProfile;
+	    }
+	});
+
+	try {
+	    instance.getProfile(testUri);
+	    fail("Expected IOException");
+	} catch (IOException ex) {
+	    assertEquals("First read fails", ex.getMessage());
+	}
+	// Failure should not be cached
+	assertFalse(instance.containsProfile(testUri));
+	assertSame(testProfile, instance.getProfile(testUri));
+	assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+	final CMDIProfile testProfile = getNewTestProfileAndRead();
+	final AtomicInteger reads = new AtomicInteger();
+	final MetadataDocumentTypeReader<CMDIProfile> reader = new MetadataDocumentTypeReader<CMDIProfile>() {
+
+	    public CMDIProfile read(URI uri) {
+		reads.incrementAndGet();
+		return testProfile;
+	    }
+	};
+	// Each profile weighs 1, room for two profiles
+	final CMDIProfileContainerImpl instance = new CMDIProfileContainerImpl(reader, null, 2, false) {
+
+	    @Override
+	    protected long weigh(CMDIProfile profile) {
+		return 1;
+	    }
+	};
+	final URI uri1 = URI.create("http://test/uri1");
+	final URI uri2 = URI.create("http://test/uri2");
+	final URI uri3 = URI.create("http://test/uri3");
+
+	instance.getProfile(uri1);
+	instance.getProfile(uri2);
+	// Use first profile, second becomes least recently used
+	instance.getProfile(uri1);
+	assertEquals(2, instance.getMissCount());
+	assertEquals(1, instance.getHitCount());
+	assertEquals(2, instance.getTotalWeight());
+
+	instance.getProfile(uri3);
+	assertEquals(1, instance.getEvictionCount());
+	assertEquals(2, instance.getTotalWeight());
+	assertTrue(instance.containsProfile(uri1));
+	assertFalse(instance.containsProfile(uri2));
+	assertTrue(instance.containsProfile(uri3));
+	assertEquals(3, reads.get());
+
+	// Evicted profile has to be read again
+	instance.getProfile(uri2);
+	assertEquals(4, reads.get());
+	assertEquals(4, instance.getMissCount());
+    }
+
+    @Test
+    public void testWeighLazyProfile() throws Exception {
+	final URI profileUri = testSchemaTextCorpus.toURI();
+	final CMDIProfile eagerProfile = new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER).read(profileUri);
+	final CMDIProfileReader lazyReader = new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER);
+	lazyReader.setLazy(true);
+	final CMDIProfile lazyProfile = lazyReader.read(profileUri);
+	final CMDIProfileContainerImpl instance = new CMDIProfileContainerImpl(lazyReader);
+
+	// Components that have not been read should weigh as much as they will once read
+	final long weight = instance.weigh(eagerProfile);
+	assertEquals(weight, instance.weigh(lazyProfile));
+	readAllTypes(lazyProfile);
+	assertEquals(weight, instance.weigh(lazyProfile));
+    }
+
+    private static void readAllTypes(ComponentType componentType) {
+	for (MetadataElementType childType : componentType.getContainableTypes()) {
+	    if (childType instanceof ComponentType) {
+		readAllTypes((ComponentType) childType);
+	    }
+	}
+    }
+
+    @Test
+    public void testKeepEvictedProfiles() throws Exception {
+	final CMDIProfile testProfile = getNewTestProfileAndRead();
+	final AtomicInteger reads = new AtomicInteger();
+	final MetadataDocumentTypeReader<CMDIProfile> reader = new MetadataDocumentTypeReader<CMDIProfile>() {
+
+	    public CMDIProfile read(URI uri) {
+		reads.incrementAndGet();
+		return testProfile;
+	    }
+	};
+	final CMDIProfileContainerImpl instance = new CMDIProfileContainerImpl(reader, null, 1, true) {
+
+	    @Override
+	    protected long weigh(CMDIProfile profile) {
+		return 1;
+	    }
+	};
+	final URI uri1 = URI.create("http://test/uri1");
+	final URI uri2 = URI.create("http://test/uri2");
+
+	instance.getProfile(uri1);
+	instance.getProfile(uri2);
+	assertEquals(1, instance.getEvictionCount());
+	assertFalse(instance.containsProfile(uri1));
+
+	// Still strongly referenced by this test, so should be restored without reading
+	assertSame(testProfile, instance.getProfile(uri1));
+	assertEquals(2, reads.get());
+	assertEquals(1, instance.getHitCount());
+    }
+
+    @Test
+    public void testInvalidateAndRefresh() throws Exception {
+	final CMDIProfile testProfile = getNewTestProfileAndRead();
+	final AtomicInteger reads = new AtomicInteger();
+	final CMDIProfileContainerImpl instance = new CMDIProfileContainerImpl(new MetadataDocumentTypeReader<CMDIProfile>() {
+
+	    public CMDIProfile read(URI uri) {
+		reads.incrementAndGet();
+		return testProfile;
+	    }
+	});
+	final URI testUri = URI.create("http://test/uri");
+
+	instance.getProfile(testUri);
+	assertTrue(instance.getTotalWeight() > 0);
+	instance.invalidate(testUri);
+	assertFalse(instance.containsProfile(testUri));
+	assertEquals(0, instance.getTotalWeight());
+	// Invalidating unknown profile has no effect
+	instance.invalidate(URI.create("http://test/unknown"));
+
+	assertSame(testProfile, instance.refresh(testUri));
+	assertTrue(instance.containsProfile(testUri));
+	assertEquals(2, reads.get());
+	assertSame(testProfile, instance.refresh(testUri));
+	assertEquals(3, reads.get());
+	assertEquals(0, instance.getEvictionCount());
+    }
+
+    @Test
+    public void testPreloadProfiles() throws Exception {
+	final CMDIProfile testProfile = getNewTestProfileAndRead();
+	final URI failingUri = URI.create("http://test/failing");
+	final CMDIProfileContainerImpl instance = new CMDIProfileContainerImpl(new MetadataDocumentTypeReader<CMDIProfile>() {
+
+	    public CMDIProfile read(URI uri) throws IOException {
+		if (failingUri.equals(uri)) {
+		    throw new IOException("Cannot read " + uri);
+		}
+		return testProfile;
+	    }
+	});
+	final URI uri1 = URI.create("http://test/uri1");
+	final URI uri2 = URI.create("http://test/uri2");
+
+	final ExecutorService executor = Executors.newFixedThreadPool(2);
+	try {
+	    final List<CMDIProfileLoadResult> results = instance.preloadProfiles(Arrays.asList(uri1, failingUri, uri2), executor);
+	    assertEquals(3, results.size());
+	    assertEquals(uri1, results.get(0).getProfileUri());
+	    assertTrue(results.get(0).isSuccess());
+	    assertSame(testProfile, results.get(0).getProfile());
+	    assertEquals(failingUri, results.get(1).getProfileUri());
+	    assertFalse(results.get(1).isSuccess());
+	    assertNull(results.get(1).getProfile());
+	    assertTrue(results.get(1).getException() instanceof IOException);
+	    assertEquals(uri2, results.get(2).getProfileUri());
+	    assertTrue(results.get(2).isSuccess());
+	} finally {
+	    executor.shutdown();
+	}
+	assertTrue(instance.containsProfile(uri1));
+	assertFalse(instance.containsProfile(failingUri));
+	assertTrue(instance.containsProfile(uri2));
+    }
+
+    @Test
+    public void testManifest() throws Exception {
+	final CMDIProfile testProfile = getNewTestProfileAndRead();
+	final AtomicInteger reads = new AtomicInteger();
+	final MetadataDocumentTypeReader<CMDIProfile> reader = new MetadataDocumentTypeReader<CMDIProfile>() {
+
+	    public CMDIProfile read(URI uri) {
+		reads.incrementAndGet();
+		return testProfile;
+	    }
+	};
+	final URI uri1 = URI.create("http://test/uri1");
+	final URI uri2 = URI.create("http://test/uri2");
+
+	final CMDIProfileContainerImpl instance = new CMDIProfileContainerImpl(reader);
+	instance.getProfile(uri1);
+	instance.getProfile(uri2);
+
+	final File manifestFile = File.createTempFile("profiles", ".manifest");
+	final ExecutorService executor = Executors.newSingleThreadExecutor();
+	try {
+	    instance.writeManifest(manifestFile);
+	    final List<URI> manifestUris = CMDIProfileManifest.read(manifestFile);
+	    assertEquals(2, manifestUris.size());
+	    assertTrue(manifestUris.contains(uri1));
+	    assertTrue(manifestUris.contains(uri2));
+
+	    // Preload in a new container
+	    final CMDIProfileContainerImpl newInstance = new CMDIProfileContainerImpl(reader);
+	    final List<CMDIProfileLoadResult> results = newInstance.preloadProfiles(manifestFile, executor);
+	    assertEquals(2, results.size());
+	    assertTrue(newInstance.containsProfile(uri1));
+	    assertTrue(newInstance.containsProfile(uri2));
+	    assertEquals(4, reads.get());
+	} finally {
+	    executor.shutdown();
+	    manifestFile.delete();
+	}
+    }
+
+    private static class ProfileRequest implements Runnable {
+
+	private final CMDIProfileContainerImpl container;
+	private final URI uri;
+	private final AtomicReference<CMDIProfile> result;
+
+	public ProfileRequest(CMDIProfileContainerImpl container, URI uri, AtomicReference<CMDIProfile> result) {
+	    this.container = container;
+	    this.uri = uri;
+	    this.result = result;
+	}
+
+	public void run() {
+	    try {
+		result.set(container.getProfile(uri));
+	    } catch (Exception ex) {
+		throw new RuntimeException(ex);
+	    }
+	}
+    }
 }
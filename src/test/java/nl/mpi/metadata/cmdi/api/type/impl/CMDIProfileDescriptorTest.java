@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringWriter;
+import java.net.URI;
+import javax.xml.transform.stream.StreamResult;
+import nl.mpi.metadata.api.type.MetadataElementAttributeType;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import nl.mpi.metadata.cmdi.api.CMDIApi;
+import nl.mpi.metadata.cmdi.api.model.CMDIDocument;
+import nl.mpi.metadata.cmdi.api.model.Component;
+import nl.mpi.metadata.cmdi.api.model.impl.ElementImpl;
+import nl.mpi.metadata.cmdi.api.model.impl.CMDIMetadataElementFactoryImpl;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.CMDITypeException;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import nl.mpi.metadata.cmdi.api.type.ControlledVocabularyElementType;
+import nl.mpi.metadata.cmdi.api.type.ElementType;
+import nl.mpi.metadata.cmdi.api.type.datacategory.DataCategory;
+import nl.mpi.metadata.cmdi.api.validation.DefaultCMDIValidator;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDIProfileDescriptorTest extends CMDIAPITestCase {
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        final CMDIProfile originalProfile = getNewTestProfileAndRead();
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CMDIProfileDescriptor.write(originalProfile, outputStream);
+
+        final CMDIProfile profile = CMDIProfileDescriptor.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertNotSame(originalProfile, profile);
+        assertEquals(originalProfile, profile);
+        assertEquals(originalProfile.getSchemaLocation(), profile.getSchemaLocation());
+        assertEquals(((CMDIProfileImpl) originalProfile).getSchemaDigest(), ((CMDIProfileImpl) profile).getSchemaDigest());
+        assertEquals(originalProfile.getHeaderNames(), profile.getHeaderNames());
+        assertEquals(originalProfile.getPathString(), profile.getPathString());
+        assertEquals(3, profile.getContainableTypes().size());
+
+        final ComponentType collectionType = (ComponentType) profile.getType("Collection");
+        final ComponentType generalInfoType = (ComponentType) collectionType.getType("GeneralInfo");
+        final ElementType nameType = (ElementType) generalInfoType.getType("Name");
+        final ElementType titleType = (ElementType) generalInfoType.getType("Title");
+        final ElementType topicType = (ElementType) ((ComponentType) profile.getType("Corpus")).getType("Topic");
+        assertEquals(((ComponentType) ((ComponentType) originalProfile.getType("Collection")).getType("GeneralInfo")).getComponentId(), generalInfoType.getComponentId());
+
+        // Annotations
+        assertEquals("General information about this collection", generalInfoType.getDescription());
+        assertEquals("Name of the collection", nameType.getDescription());
+        assertEquals(new DataCategory(new URI("http://www.isocat.org/datcat/DC-2544")), nameType.getDataCategory());
+        assertEquals(1, titleType.getDisplayPriority());
+        assertTrue(nameType.isMultilingual());
+        assertEquals("/cmd:CMD/cmd:Components/cmd:TextCorpusProfile/cmd:Collection/cmd:GeneralInfo/cmd:Name", nameType.getPathString());
+
+        // Cardinality
+        assertEquals(0, topicType.getMinOccurences());
+        assertEquals(-1, topicType.getMaxOccurences());
+
+        // Attributes
+        final ElementType descriptionType = (ElementType) ((ComponentType) generalInfoType.getType("Description")).getType("Description");
+        assertEquals(1, descriptionType.getAttributes().size());
+        assertEquals(2, descriptionType.getAllAttributes().size());
+        final MetadataElementAttributeType attribute = descriptionType.getAttributeTypeByName(null, "LanguageID");
+        assertNotNull(attribute);
+        assertEquals("/cmd:CMD/cmd:Components/cmd:TextCorpusProfile/cmd:Collection/cmd:GeneralInfo/cmd:Description/cmd:Description/@LanguageID", attribute.getPathString());
+
+        // Vocabulary
+        final ComponentType languagesType = (ComponentType) collectionType.getType("DocumentationLanguages");
+        final ComponentType isoType = (ComponentType) ((ComponentType) languagesType.getType("Language")).getType("ISO639");
+        final ControlledVocabularyElementType isoCodeType = (ControlledVocabularyElementType) isoType.getType("iso-639-3-code");
+        assertEquals(7679, isoCodeType.getItems().size());
+        assertEquals("aaa", isoCodeType.getItems().get(0).getValue());
+    }
+
+    /**
+     * Tests that a document with a newly added element can be written when its profile has been restored from a
+     * descriptor, which has no compiled schema types
+     */
+    @Test
+    public void testWriteDocumentWithStoredDescriptor() throws Exception {
+        final File storeDirectory = createTempDirectory("descriptor-store");
+        try {
+            final CMDIProfileDescriptorStore store = new CMDIProfileDescriptorStore(storeDirectory);
+            final URI profileUri = new URI(REMOTE_TEXT_CORPUS_SCHEMA_URL);
+            store.storeProfile(new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER).read(profileUri));
+
+            final CMDIApi api = new CMDIApi(CMDI_API_TEST_ENTITY_RESOLVER, new DefaultCMDIValidator(), new CMDIMetadataElementFactoryImpl(), store);
+            final CMDIDocument document = api.getMetadataDocument(getClass().getResource(TEXT_CORPUS_INSTANCE_LOCATION));
+
+            // Add an element that is not in the original document
+            final Component generalInfo = (Component) document.getChildElement("Collection/GeneralInfo");
+            final ElementType titleType = (ElementType) generalInfo.getType().getType("Title");
+            generalInfo.addChildElement(new ElementImpl(titleType, generalInfo, "New title"));
+
+            final StringWriter writer = new StringWriter();
+            api.writeMetadataDocument(document, new StreamResult(writer));
+            assertTrue(writer.toString().contains("New title</"));
+            assertTrue(writer.toString().contains("TextCorpus test</"));
+        } finally {
+            deleteRecursively(storeDirectory);
+        }
+    }
+
+    @Test(expected = CMDITypeException.class)
+    public void testReadInvalid() throws Exception {
+        CMDIProfileDescriptor.read(new ByteArrayInputStream(new byte[]{0, 1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    public void testReadDocumentWithStoredDescriptor() throws Exception {
+        final File storeDirectory = createTempDirectory("descriptor-store");
+        try {
+            final CMDIProfileDescriptorStore store = new CMDIProfileDescriptorStore(storeDirectory);
+            final URI profileUri = new URI(REMOTE_TEXT_CORPUS_SCHEMA_URL);
+            assertNull(store.loadProfile(profileUri));
+            store.storeProfile(new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER).read(profileUri));
+
+            final CMDIApi api = new CMDIApi(CMDI_API_TEST_ENTITY_RESOLVER, new DefaultCMDIValidator(), new CMDIMetadataElementFactoryImpl(), store);
+            final CMDIProfile profile = api.getMetadataDocumentType(profileUri);
+            assertNotNull(profile);
+            final CMDIDocument document = api.getMetadataDocument(getClass().getResource(TEXT_CORPUS_INSTANCE_LOCATION));
+            assertSame(profile, document.getType());
+            assertEquals(3, document.getChildrenCount());
+            assertNotNull(document.getChildElement("Collection/GeneralInfo/Name"));
+            assertFalse(document.isDirty());
+        } finally {
+            deleteRecursively(storeDirectory);
+        }
+    }
+}
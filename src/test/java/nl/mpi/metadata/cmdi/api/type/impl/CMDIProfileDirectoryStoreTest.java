@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import nl.mpi.metadata.api.type.MetadataDocumentTypeReader;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import nl.mpi.metadata.cmdi.api.type.ControlledVocabularyElementType;
+import nl.mpi.metadata.cmdi.api.type.ElementType;
+import nl.mpi.metadata.cmdi.api.type.datacategory.DataCategory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDIProfileDirectoryStoreTest extends CMDIAPITestCase {
+
+    private File storeDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        storeDirectory = createTempDirectory("profile-store");
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(storeDirectory);
+    }
+
+    @Test
+    public void testStoreAndLoadProfile() throws Exception {
+        final URI profileUri = testSchemaTextCorpus.toURI();
+        final CMDIProfile originalProfile = new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER).read(profileUri);
+
+        CMDIProfileDirectoryStore store = new CMDIProfileDirectoryStore(storeDirectory, CMDI_API_TEST_ENTITY_RESOLVER);
+        assertNull(store.loadProfile(profileUri));
+        store.storeProfile(originalProfile);
+
+        // Load from a new store instance on the same directory
+        store = new CMDIProfileDirectoryStore(storeDirectory, CMDI_API_TEST_ENTITY_RESOLVER);
+        final CMDIProfile profile = store.loadProfile(profileUri);
+        assertNotNull(profile);
+        assertNotSame(originalProfile, profile);
+        assertEquals(profileUri, profile.getSchemaLocation());
+        assertEquals(((CMDIProfileImpl) originalProfile).getSchemaDigest(), ((CMDIProfileImpl) profile).getSchemaDigest());
+        assertEquals("TextCorpusProfile", profile.getName());
+        assertEquals(originalProfile.getHeaderNames(), profile.getHeaderNames());
+        assertEquals(3, profile.getContainableTypes().size());
+
+        final ComponentType generalInfoType = (ComponentType) ((ComponentType) profile.getType("Collection")).getType("GeneralInfo");
+        final ElementType nameType = (ElementType) generalInfoType.getType("Name");
+        final ElementType titleType = (ElementType) generalInfoType.getType("Title");
+        // Annotations
+        assertEquals("General information about this collection", generalInfoType.getDescription());
+        assertEquals("Name of the collection", nameType.getDescription());
+        assertEquals(new DataCategory(new URI("http://www.isocat.org/datcat/DC-2544")), generalInfoType.getDataCategory());
+        assertEquals(new DataCategory(new URI("http://www.isocat.org/datcat/DC-2544")), nameType.getDataCategory());
+        assertEquals(1, titleType.getDisplayPriority());
+        assertTrue(nameType.isMultilingual());
+
+        // Vocabularies
+        final ComponentType languagesType = (ComponentType) ((ComponentType) profile.getType("Collection")).getType("DocumentationLanguages");
+        final ComponentType isoType = (ComponentType) ((ComponentType) languagesType.getType("Language")).getType("ISO639");
+        final ControlledVocabularyElementType isoCodeType = (ControlledVocabularyElementType) isoType.getType("iso-639-3-code");
+        assertEquals(7679, isoCodeType.getItems().size());
+        assertEquals("aaa", isoCodeType.getItems().get(0).getValue());
+    }
+
+    @Test
+    public void testContainerUsesStore() throws Exception {
+        final URI profileUri = testSchemaSmall.toURI();
+        final CMDIProfileDirectoryStore store = new CMDIProfileDirectoryStore(storeDirectory, CMDI_API_TEST_ENTITY_RESOLVER);
+
+        // First container reads the profile and writes it to the store
+        CMDIProfileContainerImpl container = new CMDIProfileContainerImpl(new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER), store);
+        final CMDIProfile readProfile = container.getProfile(profileUri);
+        assertNotNull(store.loadProfile(profileUri));
+
+        // Second container should not need to read the profile
+        container = new CMDIProfileContainerImpl(new MetadataDocumentTypeReader<CMDIProfile>() {
+            public CMDIProfile read(URI uri) {
+                fail("Profile should be loaded from store");
+                return null;
+            }
+        }, store);
+        final CMDIProfile storedProfile = container.getProfile(profileUri);
+        assertEquals(readProfile.getName(), storedProfile.getName());
+        assertEquals(readProfile.getContainableTypes().size(), storedProfile.getContainableTypes().size());
+    }
+
+    @Test
+    public void testContainerRetrievesSchemaOnce() throws Exception {
+        final URL remoteURL = new URL(REMOTE_TEXT_CORPUS_SCHEMA_URL);
+        final TestEntityResolver testResolver = new TestEntityResolver(remoteURL, testSchemaTextCorpus);
+        final CMDIProfileDirectoryStore store = new CMDIProfileDirectoryStore(storeDirectory, testResolver);
+        final CMDIProfileContainerImpl container = new CMDIProfileContainerImpl(new CMDIProfileReader(testResolver), store);
+
+        // Schema retrieved by the store to look up the profile should be used by the reader
+        final CMDIProfile profile = container.getProfile(remoteURL.toURI());
+        assertEquals(1, testResolver.byteStreamRequested);
+        assertEquals("TextCorpusProfile", profile.getName());
+        assertNull(store.takeFetchedSchema(remoteURL.toURI()));
+        // Stored with the digest of that schema
+        assertNotNull(store.loadProfile(remoteURL.toURI()));
+        assertEquals(2, testResolver.byteStreamRequested);
+    }
+}
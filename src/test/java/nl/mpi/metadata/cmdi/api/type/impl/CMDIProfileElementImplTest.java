@@ -82,6 +82,32 @@ public class CMDIProfileElementImplTest {
 	assertNull(instance.getAttributeTypeByName(null, "name4"));
     }
 
+    /**
+     * Test of getAttributeTypeByName method, of class CMDIProfileElementImpl, for excluded attributes and attributes with
+     * the same name in different namespaces
+     */
+    @Test
+    public void testGetAttributeTypeByNameExcluded() {
+	setAttributes(instance);
+	final MetadataElementAttributeType excludedType = mockContext.mock(MetadataElementAttributeType.class, "excluded");
+	mockContext.checking(new Expectations() {
+	    {
+		allowing(excludedType).getName();
+		will(returnValue("name2"));
+
+		allowing(excludedType).getNamespaceURI();
+		will(returnValue("http://namespace3"));
+	    }
+	});
+	instance.setExcludedAttributes(Arrays.asList(excludedType));
+
+	assertSame(excludedType, instance.getAttributeTypeByName("http://namespace3", "name2"));
+	assertSame(attrType2, instance.getAttributeTypeByName("http://namespace2", "name2"));
+	// Ignoring NS, first in order of all attributes
+	assertSame(attrType2, instance.getAttributeTypeByName(null, "name2"));
+	assertNull(instance.getAttributeTypeByName("http://namespace", "name2"));
+    }
+
     /**
      * Test of getAttributes method, of class CMDIProfileElementImpl.
      */
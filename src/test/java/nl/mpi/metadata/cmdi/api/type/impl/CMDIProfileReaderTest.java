@@ -126,6 +126,40 @@ public class CMDIProfileReaderTest extends CMDIAPITestCase {
         assertArrayEquals(new Object[]{"MdCreator", "MdCreationDate", "MdSelfLink", "MdProfile", "MdCollectionDisplayName"}, profile.getHeaderNames().toArray());
     }
 
+    @Test
+    public void testLoadSchemaLazy() throws Exception {
+        CMDIProfileReader reader = new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER);
+        reader.setLazy(true);
+        CMDIProfile profile = reader.read(testSchemaTextCorpus.toURI());
+        assertFalse(((ComponentTypeImpl) profile).isChildrenRead());
+        assertEquals("TextCorpusProfile", profile.getName());
+        assertEquals(1, profile.getAttributes().size());
+
+        // Requesting children reads one level only
+        ComponentTypeImpl collectionType = (ComponentTypeImpl) profile.getType("Collection");
+        assertTrue(((ComponentTypeImpl) profile).isChildrenRead());
+        assertEquals(3, profile.getContainableTypes().size());
+        assertFalse(collectionType.isChildrenRead());
+        assertFalse(((ComponentTypeImpl) profile.getType("Corpus")).isChildrenRead());
+
+        // Children of deferred components are read with their attributes and annotations
+        ComponentType generalInfoType = (ComponentType) collectionType.getType("GeneralInfo");
+        ElementType nameType = (ElementType) generalInfoType.getType("Name");
+        ElementType titleType = (ElementType) generalInfoType.getType("Title");
+        assertEquals("General information about this collection", generalInfoType.getDescription());
+        assertEquals("Name of the collection", nameType.getDescription());
+        assertEquals(new DataCategory(new URI("http://www.isocat.org/datcat/DC-2544")), nameType.getDataCategory());
+        assertEquals(1, titleType.getDisplayPriority());
+        assertTrue(nameType.isMultilingual());
+        assertEquals("/cmd:CMD/cmd:Components/cmd:TextCorpusProfile/cmd:Collection/cmd:GeneralInfo/cmd:Name", nameType.getPathString());
+        assertTrue(generalInfoType.canContainType(nameType));
+
+        // Same model as eager reading
+        CMDIProfile eagerProfile = new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER).read(testSchemaTextCorpus.toURI());
+        assertEquals(eagerProfile, profile);
+        assertEquals(((ComponentType) eagerProfile.getType("Collection")).getType("GeneralInfo"), generalInfoType);
+    }
+
     @Test
     public void testCustomEntityResolver() throws Exception {
         final URL remoteURL = new URL(REMOTE_TEXT_CORPUS_SCHEMA_URL);
@@ -136,8 +170,8 @@ public class CMDIProfileReaderTest extends CMDIAPITestCase {
         // Read schema
         CMDIProfileReader reader = new CMDIProfileReader(testResolver);
         CMDIProfile profile = reader.read(remoteURL.toURI());
-        // This should cause the entity resolver to be triggered twice (once for loading SchemaTypeSystem and once for reading schema DOM)
-        assertEquals(2, testResolver.byteStreamRequested);
+        // This should cause the entity resolver to be triggered once (the same schema DOM is used for loading SchemaTypeSystem and reading annotations)
+        assertEquals(1, testResolver.byteStreamRequested);
         // Should still match REMOTE schema location
         assertEquals(new URI(REMOTE_TEXT_CORPUS_SCHEMA_URL), profile.getSchemaLocation());
     }
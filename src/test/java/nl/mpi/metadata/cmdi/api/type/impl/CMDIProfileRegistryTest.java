@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.net.URI;
+import java.net.URL;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import nl.mpi.metadata.cmdi.api.CMDIApi;
+import nl.mpi.metadata.cmdi.api.model.impl.CMDIMetadataElementFactoryImpl;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.validation.DefaultCMDIValidator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDIProfileRegistryTest extends CMDIAPITestCase {
+
+    private CMDIProfileRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new CMDIProfileRegistry();
+    }
+
+    @Test
+    public void testReadFromDifferentLocations() throws Exception {
+        final CMDIProfileReader localReader = new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER);
+        localReader.setProfileRegistry(registry);
+        final CMDIProfile localProfile = localReader.read(testSchemaTextCorpus.toURI());
+        assertSame(localProfile, registry.getProfile(testSchemaTextCorpus.toURI()));
+
+        // Same schema content at another location
+        final URL remoteURL = new URL(REMOTE_TEXT_CORPUS_SCHEMA_URL);
+        final CMDIProfileReader remoteReader = new CMDIProfileReader(new TestEntityResolver(remoteURL, testSchemaTextCorpus));
+        remoteReader.setProfileRegistry(registry);
+        final CMDIProfile remoteProfile = remoteReader.read(remoteURL.toURI());
+        assertSame(localProfile, remoteProfile);
+        assertSame(localProfile, registry.getProfile(remoteURL.toURI()));
+        // Canonical profile keeps location it was first read from
+        assertEquals(testSchemaTextCorpus.toURI(), remoteProfile.getSchemaLocation());
+    }
+
+    @Test
+    public void testReadFromRegisteredLocation() throws Exception {
+        final URL remoteURL = new URL(REMOTE_TEXT_CORPUS_SCHEMA_URL);
+        final TestEntityResolver testResolver = new TestEntityResolver(remoteURL, testSchemaTextCorpus);
+        final CMDIProfileReader reader1 = new CMDIProfileReader(testResolver);
+        reader1.setProfileRegistry(registry);
+        final CMDIProfile profile = reader1.read(remoteURL.toURI());
+        assertEquals(1, testResolver.byteStreamRequested);
+
+        // Registered location is not retrieved again
+        final CMDIProfileReader reader2 = new CMDIProfileReader(testResolver);
+        reader2.setProfileRegistry(registry);
+        assertSame(profile, reader2.read(remoteURL.toURI()));
+        assertEquals(1, testResolver.byteStreamRequested);
+
+        // Unless it has been removed from the registry, content is still known
+        registry.remove(remoteURL.toURI());
+        assertSame(profile, reader2.read(remoteURL.toURI()));
+        assertEquals(2, testResolver.byteStreamRequested);
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        final CMDIProfile profile1 = getNewTestProfileAndRead();
+        final CMDIProfile profile2 = getNewTestProfileAndRead();
+        assertNotSame(profile1, profile2);
+
+        assertSame(profile1, registry.register(profile1));
+        assertSame(profile1, registry.register(profile2));
+        assertSame(profile1, registry.getProfileByDigest(new URI("http://alias"), ((CMDIProfileImpl) profile2).getSchemaDigest()));
+        assertSame(profile1, registry.getProfile(new URI("http://alias")));
+
+        registry.remove(new URI("http://alias"));
+        assertNull(registry.getProfile(new URI("http://alias")));
+
+        registry.clear();
+        assertNull(registry.getProfile(profile1.getSchemaLocation()));
+        assertSame(profile2, registry.register(profile2));
+    }
+
+    @Test
+    public void testRegisterChangedContent() throws Exception {
+        final CMDIProfile profile1 = getNewTestProfileAndRead();
+        final CMDIProfile profile2 = getNewTestProfileAndRead();
+        // Same profile id, different schema content
+        ((CMDIProfileImpl) profile2).setSchemaDigest("changed");
+        assertNotNull(profile1.getComponentId());
+        assertEquals(profile1.getComponentId(), profile2.getComponentId());
+
+        assertSame(profile1, registry.register(profile1));
+        assertSame(profile2, registry.register(profile2));
+        assertSame(profile2, registry.getProfile(profile2.getSchemaLocation()));
+        // Each content digest refers to the profile with that content
+        assertSame(profile1, registry.getProfileByDigest(new URI("http://old"), ((CMDIProfileImpl) profile1).getSchemaDigest()));
+        assertSame(profile2, registry.getProfileByDigest(new URI("http://new"), "changed"));
+
+        // Reading the changed content again gives the changed profile
+        final CMDIProfile profile3 = getNewTestProfileAndRead();
+        ((CMDIProfileImpl) profile3).setSchemaDigest("changed");
+        assertSame(profile2, registry.register(profile3));
+    }
+
+    @Test
+    public void testSharedBetweenApiInstances() throws Exception {
+        final CMDIApi api1 = new CMDIApi(CMDI_API_TEST_ENTITY_RESOLVER, new DefaultCMDIValidator(), new CMDIMetadataElementFactoryImpl(), null, registry);
+        final CMDIApi api2 = new CMDIApi(CMDI_API_TEST_ENTITY_RESOLVER, new DefaultCMDIValidator(), new CMDIMetadataElementFactoryImpl(), null, registry);
+        final CMDIProfile profile = api1.getMetadataDocumentType(testSchemaSmall.toURI());
+        assertSame(profile, api2.getMetadataDocumentType(testSchemaSmall.toURI()));
+    }
+}
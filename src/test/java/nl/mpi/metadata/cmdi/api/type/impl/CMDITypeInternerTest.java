@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import nl.mpi.metadata.api.type.ControlledVocabularyItem;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import nl.mpi.metadata.cmdi.api.type.ControlledVocabularyElementType;
+import nl.mpi.metadata.cmdi.api.type.ElementType;
+import nl.mpi.metadata.cmdi.api.type.datacategory.DataCategory;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CMDITypeInternerTest extends CMDIAPITestCase {
+
+    @Test
+    public void testInternVocabulary() {
+        final CMDITypeInterner interner = new CMDITypeInterner();
+        final List<ControlledVocabularyItem> items = interner.internVocabulary("c_1", "element", Arrays.asList(createItem("a"), createItem("b")));
+        assertSame(items, interner.internVocabulary("c_1", "element", Arrays.asList(createItem("a"), createItem("b"))));
+        // Different content, component or element
+        assertNotSame(items, interner.internVocabulary("c_1", "element", Arrays.asList(createItem("a"), createItem("c"))));
+        assertNotSame(items, interner.internVocabulary("c_2", "element", Arrays.asList(createItem("a"), createItem("b"))));
+        assertNotSame(items, interner.internVocabulary("c_1", "other", Arrays.asList(createItem("a"), createItem("b"))));
+        try {
+            items.add(createItem("c"));
+            fail("Interned vocabulary should be unmodifiable");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInternDataCategory() throws Exception {
+        final CMDITypeInterner interner = new CMDITypeInterner();
+        final DataCategory dataCategory = interner.internDataCategory(new DataCategory(new URI("http://www.isocat.org/datcat/DC-2544")));
+        assertSame(dataCategory, interner.internDataCategory(new DataCategory(new URI("http://www.isocat.org/datcat/DC-2544"))));
+        assertNull(interner.internDataCategory(null));
+    }
+
+    @Test
+    public void testSharedBetweenProfiles() throws Exception {
+        final CMDITypeInterner interner = new CMDITypeInterner();
+        final CMDIProfileReader reader = new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER);
+        reader.setTypeInterner(interner);
+        final CMDIProfile profile1 = reader.read(testSchemaTextCorpus.toURI());
+        final CMDIProfile profile2 = reader.read(testSchemaTextCorpus.toURI());
+        assertNotSame(profile1, profile2);
+
+        assertSame(getIsoCodeType(profile1).getItems(), getIsoCodeType(profile2).getItems());
+        final ElementType name1 = getNameType(profile1);
+        final ElementType name2 = getNameType(profile2);
+        assertNotSame(name1, name2);
+        assertSame(name1.getDataCategory(), name2.getDataCategory());
+        assertSame(name1.getDescription(), name2.getDescription());
+    }
+
+    private static ControlledVocabularyElementType getIsoCodeType(CMDIProfile profile) {
+        final ComponentType languagesType = (ComponentType) ((ComponentType) profile.getType("Collection")).getType("DocumentationLanguages");
+        final ComponentType isoType = (ComponentType) ((ComponentType) languagesType.getType("Language")).getType("ISO639");
+        return (ControlledVocabularyElementType) isoType.getType("iso-639-3-code");
+    }
+
+    private static ElementType getNameType(CMDIProfile profile) {
+        return (ElementType) ((ComponentType) ((ComponentType) profile.getType("Collection")).getType("GeneralInfo")).getType("Name");
+    }
+
+    private static ControlledVocabularyItem createItem(String value) {
+        final CMDIControlledVocabularyItemImpl item = new CMDIControlledVocabularyItemImpl();
+        item.setValue(value);
+        return item;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.net.URI;
+import java.util.Map;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import nl.mpi.metadata.cmdi.api.type.ElementType;
+import nl.mpi.metadata.cmdi.api.type.datacategory.DataCategory;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class CmdiProfileElementSchemaReaderTest extends CMDIAPITestCase {
+
+    private final static String NESTED_COMPONENTS_SCHEMA = "/xsd/NestedComponentsTestProfile.xsd";
+
+    /**
+     * Annotations of nested components should be read from their own element
+     * specification, also if an element with the same name is specified
+     * earlier within a named sibling
+     */
+    @Test
+    public void testNestedComponentAnnotations() throws Exception {
+        assertNestedComponentAnnotations(new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER));
+    }
+
+    @Test
+    public void testNestedComponentAnnotationsLazy() throws Exception {
+        final CMDIProfileReader reader = new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER);
+        reader.setLazy(true);
+        assertNestedComponentAnnotations(reader);
+    }
+
+    private void assertNestedComponentAnnotations(CMDIProfileReader reader) throws Exception {
+        final CMDIProfile profile = reader.read(getClass().getResource(NESTED_COMPONENTS_SCHEMA).toURI());
+
+        final ComponentType outerType = (ComponentType) profile.getType("Outer");
+        assertEquals("Outer component", outerType.getDescription());
+        assertEquals(new DataCategory(new URI("http://www.isocat.org/datcat/DC-2544")), outerType.getDataCategory());
+
+        final ComponentType wrapperType = (ComponentType) outerType.getType("Wrapper");
+        assertEquals("Wrapper component", wrapperType.getDescription());
+        assertEquals("Wrapped inner component", wrapperType.getType("Inner").getDescription());
+
+        // Preceded by Outer/Wrapper/Inner in the schema
+        final ComponentType innerType = (ComponentType) outerType.getType("Inner");
+        assertEquals("Inner component", innerType.getDescription());
+        assertNull(innerType.getDataCategory());
+
+        final ComponentType deepestType = (ComponentType) innerType.getType("Deepest");
+        assertEquals("Deepest component", deepestType.getDescription());
+        assertEquals(new DataCategory(new URI("http://www.isocat.org/datcat/DC-2545")), deepestType.getDataCategory());
+        assertEquals(1, ((ElementType) deepestType.getType("Value")).getDisplayPriority());
+    }
+
+    /**
+     * The index should have an entry for each named node, by the path of its
+     * named ancestors
+     */
+    @Test
+    public void testIndexElementSpecs() throws Exception {
+        final int componentCount = 5000;
+        final Document schemaDocument = createSchemaDocument(componentCount);
+
+        final Map<String, Node> index = CmdiProfileElementSchemaReader.indexElementSpecs(schemaDocument);
+        // CMD, Components and profile, plus each component with its element
+        assertEquals(3 + 2 * componentCount, index.size());
+        for (int i = 0; i < componentCount; i++) {
+            final String componentPath = "/cmd:CMD/cmd:Components/cmd:Profile/cmd:Component" + i;
+            assertEquals("Component" + i, ((Element) index.get(componentPath)).getAttribute("name"));
+            assertEquals("Element", ((Element) index.get(componentPath + "/cmd:Element")).getAttribute("name"));
+        }
+        assertNull(index.get("/cmd:CMD/cmd:Components/cmd:Profile/cmd:Element"));
+    }
+
+    /**
+     * Creates a schema like document with the specified number of components
+     * in the profile, each containing one element
+     */
+    private static Document createSchemaDocument(int componentCount) throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final Document document = factory.newDocumentBuilder().newDocument();
+        final Element schemaElement = document.createElementNS(XMLConstants.W3C_XML_SCHEMA_NS_URI, "xs:schema");
+        document.appendChild(schemaElement);
+        final Element profileElement = appendElementSpec(appendElementSpec(appendElementSpec(schemaElement, "CMD"), "Components"), "Profile");
+        for (int i = 0; i < componentCount; i++) {
+            appendElementSpec(appendElementSpec(profileElement, "Component" + i), "Element");
+        }
+        return document;
+    }
+
+    /**
+     * Appends an element specification (xs:element) inside an anonymous
+     * complex type
+     *
+     * @return the new element specification
+     */
+    private static Element appendElementSpec(Element parent, String name) {
+        final Document document = parent.getOwnerDocument();
+        final Element complexType = document.createElementNS(XMLConstants.W3C_XML_SCHEMA_NS_URI, "xs:complexType");
+        final Element sequence = document.createElementNS(XMLConstants.W3C_XML_SCHEMA_NS_URI, "xs:sequence");
+        final Element elementSpec = document.createElementNS(XMLConstants.W3C_XML_SCHEMA_NS_URI, "xs:element");
+        elementSpec.setAttributeNS(null, "name", name);
+        parent.appendChild(complexType);
+        complexType.appendChild(sequence);
+        sequence.appendChild(elementSpec);
+        return elementSpec;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.api.type.impl;
+
+import java.util.Arrays;
+import javax.xml.namespace.QName;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfileElement;
+import nl.mpi.metadata.cmdi.api.type.ComponentType;
+import org.apache.xmlbeans.impl.schema.SchemaPropertyImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class ComponentTypeImplTest extends CMDIAPITestCase {
+
+    private ComponentTypeImpl instance;
+    private ComponentTypeImpl child1;
+    private ComponentTypeImpl duplicate1;
+    private ComponentTypeImpl duplicate2;
+
+    @Before
+    public void setUp() {
+	instance = new ComponentTypeImpl(getSchemaProperty(null, "Parent"), null, new StringBuilder("/Parent"));
+	child1 = createChild(instance, null, "Child1");
+	// same local name in different namespaces
+	duplicate1 = createChild(instance, "http://namespace1", "Duplicate");
+	duplicate2 = createChild(instance, "http://namespace2", "Duplicate");
+	instance.setChildren(Arrays.<CMDIProfileElement>asList(child1, duplicate1, duplicate2));
+    }
+
+    /**
+     * Test of getType method, of class ComponentTypeImpl.
+     */
+    @Test
+    public void testGetType() {
+	assertSame(child1, instance.getType("Child1"));
+	// First type with a given name takes precedence
+	assertSame(duplicate1, instance.getType("Duplicate"));
+	assertNull(instance.getType("Unknown"));
+	assertNull(instance.getType("Parent"));
+    }
+
+    /**
+     * Test of getTypeIndex method, of class ComponentTypeImpl.
+     */
+    @Test
+    public void testGetTypeIndex() {
+	assertEquals(0, instance.getTypeIndex("Child1"));
+	// Position of the first type with a given name
+	assertEquals(1, instance.getTypeIndex("Duplicate"));
+	assertEquals(-1, instance.getTypeIndex("Unknown"));
+    }
+
+    /**
+     * Test of canContainType method, of class ComponentTypeImpl.
+     */
+    @Test
+    public void testCanContainType() {
+	assertTrue(instance.canContainType(child1));
+	// Both types with the same name are contained
+	assertTrue(instance.canContainType(duplicate1));
+	assertTrue(instance.canContainType(duplicate2));
+	// Equal type in the same parent
+	assertTrue(instance.canContainType(createChild(instance, null, "Child1")));
+	// Unknown type
+	assertFalse(instance.canContainType(createChild(instance, null, "Unknown")));
+	assertFalse(instance.canContainType(instance));
+	// Same name in another parent
+	final ComponentTypeImpl otherParent = new ComponentTypeImpl(getSchemaProperty(null, "Other"), null, new StringBuilder("/Other"));
+	assertFalse(instance.canContainType(createChild(otherParent, null, "Child1")));
+    }
+
+    /**
+     * Test of getContainableTypes method, of class ComponentTypeImpl.
+     */
+    @Test
+    public void testGetContainableTypes() {
+	assertEquals(Arrays.asList(child1, duplicate1, duplicate2), instance.getContainableTypes());
+    }
+
+    /**
+     * Test of getType and canContainType methods, of class ComponentTypeImpl, for a component of which reading of the
+     * children has been deferred
+     */
+    @Test
+    public void testLazyChildTypes() throws Exception {
+	final CMDIProfileReader reader = new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER);
+	reader.setLazy(true);
+	final CMDIProfile profile = reader.read(testSchemaTextCorpus.toURI());
+	final ComponentTypeImpl collectionType = (ComponentTypeImpl) profile.getType("Collection");
+	assertFalse(collectionType.isChildrenRead());
+
+	// Containment check reads the children
+	final CMDIProfile eagerProfile = new CMDIProfileReader(CMDI_API_TEST_ENTITY_RESOLVER).read(testSchemaTextCorpus.toURI());
+	final CMDIProfileElement eagerGeneralInfo = ((ComponentType) eagerProfile.getType("Collection")).getType("GeneralInfo");
+	assertTrue(collectionType.canContainType(eagerGeneralInfo));
+	assertTrue(collectionType.isChildrenRead());
+	assertEquals(eagerGeneralInfo, collectionType.getType("GeneralInfo"));
+	assertNull(collectionType.getType("Unknown"));
+	assertFalse(collectionType.canContainType(eagerProfile.getType("Collection")));
+
+	// Lookup by name reads the children
+	final ComponentTypeImpl generalInfoType = (ComponentTypeImpl) collectionType.getType("GeneralInfo");
+	assertFalse(generalInfoType.isChildrenRead());
+	assertNull(generalInfoType.getType("Unknown"));
+	assertTrue(generalInfoType.isChildrenRead());
+	assertNotNull(generalInfoType.getType("Name"));
+	assertTrue(generalInfoType.canContainType(generalInfoType.getType("Name")));
+    }
+
+    private static ComponentTypeImpl createChild(ComponentTypeImpl parent, String namespace, String name) {
+	return new ComponentTypeImpl(getSchemaProperty(namespace, name), parent, new StringBuilder(parent.getPathString()).append('/').append(name));
+    }
+
+    private static SchemaPropertyImpl getSchemaProperty(String namespace, String name) {
+	final SchemaPropertyImpl schemaProperty = new SchemaPropertyImpl();
+	schemaProperty.setName(namespace == null ? new QName(name) : new QName(namespace, name));
+	return schemaProperty;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class ByteBufferInputStreamTest {
+
+    @Test
+    public void testRead() throws Exception {
+        final InputStream stream = new ByteBufferInputStream(ByteBuffer.wrap(new byte[]{(byte) 0xff, 2, 3, 4, 5}));
+        assertEquals(5, stream.available());
+        // Single bytes are returned unsigned
+        assertEquals(0xff, stream.read());
+
+        final byte[] bytes = new byte[10];
+        assertEquals(0, stream.read(bytes, 0, 0));
+        assertEquals(2, stream.read(bytes, 1, 2));
+        assertEquals(2, bytes[1]);
+        assertEquals(3, bytes[2]);
+
+        stream.mark(0);
+        assertEquals(1, stream.skip(1));
+        stream.reset();
+        assertEquals(2, stream.read(bytes, 0, 10));
+        assertEquals(4, bytes[0]);
+        assertEquals(5, bytes[1]);
+        assertEquals(-1, stream.read());
+        assertEquals(-1, stream.read(bytes, 0, 10));
+        assertEquals(0, stream.available());
+    }
+
+    @Test
+    public void testMap() throws Exception {
+        final byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        final File file = File.createTempFile("mapped", ".bin");
+        try {
+            final OutputStream outputStream = new FileOutputStream(file);
+            try {
+                outputStream.write(content);
+            } finally {
+                outputStream.close();
+            }
+            final InputStream stream = ByteBufferInputStream.map(file);
+            try {
+                assertTrue(Arrays.equals(content, ContentDigest.readFully(stream)));
+            } finally {
+                stream.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class ContentAddressedStoreTest {
+
+    private File storeDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        storeDirectory = CMDIAPITestCase.createTempDirectory("content-store");
+    }
+
+    @After
+    public void tearDown() {
+        CMDIAPITestCase.deleteRecursively(storeDirectory);
+    }
+
+    @Test
+    public void testStore() throws Exception {
+        final ContentAddressedStore store = new ContentAddressedStore(storeDirectory, "Test");
+        assertNull(store.getFile("key1"));
+        assertNull(store.openStream("key1"));
+
+        final String digest = store.store("key1", bytes("content"), attributes("attr", "value"));
+        assertEquals(ContentDigest.digest(bytes("content")), digest);
+        assertEquals(new File(new File(storeDirectory, "objects"), digest), store.getFile("key1"));
+        assertEquals("content", read(store.openStream("key1")));
+        assertEquals("value", store.getAttribute("key1", "attr"));
+        assertNull(store.getAttribute("key1", "other"));
+
+        // New instance reads index from directory
+        final ContentAddressedStore reopenedStore = new ContentAddressedStore(storeDirectory, "Test");
+        assertEquals("content", read(reopenedStore.openStream("key1")));
+        assertEquals("value", reopenedStore.getAttribute("key1", "attr"));
+    }
+
+    @Test
+    public void testReplace() throws Exception {
+        final ContentAddressedStore store = new ContentAddressedStore(storeDirectory, "Test");
+        store.store("key1", bytes("content1"), attributes("attr", "value"));
+        store.store("key2", bytes("content1"), Collections.<String, String>emptyMap());
+        final File sharedFile = store.getFile("key1");
+
+        // Content that is still referenced by another key is kept
+        store.store("key1", bytes("content2"), attributes("attr", null));
+        assertEquals("content2", read(store.openStream("key1")));
+        assertNull(store.getAttribute("key1", "attr"));
+        assertTrue(sharedFile.isFile());
+
+        // Content that is no longer referenced is removed
+        store.store("key2", bytes("content2"), Collections.<String, String>emptyMap());
+        assertFalse(sharedFile.exists());
+        assertEquals(store.getFile("key1"), store.getFile("key2"));
+
+        // Removed attribute is not restored from earlier records
+        final ContentAddressedStore reopenedStore = new ContentAddressedStore(storeDirectory, "Test");
+        assertEquals("content2", read(reopenedStore.openStream("key1")));
+        assertNull(reopenedStore.getAttribute("key1", "attr"));
+    }
+
+    @Test
+    public void testMissingObject() throws Exception {
+        final ContentAddressedStore store = new ContentAddressedStore(storeDirectory, "Test");
+        store.store("key1", bytes("content"), Collections.<String, String>emptyMap());
+        assertTrue(store.getFile("key1").delete());
+        assertNull(store.getFile("key1"));
+        assertNull(store.openStream("key1"));
+    }
+
+    private static Map<String, String> attributes(String name, String value) {
+        final Map<String, String> attributes = new HashMap<String, String>();
+        attributes.put(name, value);
+        return attributes;
+    }
+
+    private static byte[] bytes(String content) throws Exception {
+        return content.getBytes("UTF-8");
+    }
+
+    private static String read(InputStream stream) throws Exception {
+        try {
+            return new String(ContentDigest.readFully(stream), "UTF-8");
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLConnection;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class HttpDocumentCacheTest {
+
+    private File cacheDirectory;
+    private HttpServer server;
+    private TestHandler handler;
+    private URL documentUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDirectory = CMDIAPITestCase.createTempDirectory("document-cache");
+
+        handler = new TestHandler();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", handler);
+        server.start();
+        documentUrl = new URL("http", "localhost", server.getAddress().getPort(), "/document.cmdi");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        CMDIAPITestCase.deleteRecursively(cacheDirectory);
+    }
+
+    @Test
+    public void testConditionalRetrieval() throws Exception {
+        final HttpDocumentCache cache = new HttpDocumentCache(cacheDirectory);
+        assertFalse(cache.isCached(documentUrl));
+
+        // First retrieval is unconditional and stores the document
+        handler.setDocument("<CMD>1</CMD>", "\"v1\"");
+        assertEquals("<CMD>1</CMD>", retrieve(cache));
+        assertEquals(null, handler.ifNoneMatch);
+        assertEquals(0, handler.notModifiedCount);
+        assertTrue(cache.isCached(documentUrl));
+
+        // Unchanged document is served from cache
+        assertEquals("<CMD>1</CMD>", retrieve(cache));
+        assertEquals("\"v1\"", handler.ifNoneMatch);
+        assertEquals(1, handler.notModifiedCount);
+
+        // Changed document replaces cached document
+        handler.setDocument("<CMD>2</CMD>", "\"v2\"");
+        assertEquals("<CMD>2</CMD>", retrieve(cache));
+        assertEquals("\"v1\"", handler.ifNoneMatch);
+        assertEquals(1, handler.notModifiedCount);
+
+        // New instance reads index from cache directory
+        assertEquals("<CMD>2</CMD>", retrieve(new HttpDocumentCache(cacheDirectory)));
+        assertEquals("\"v2\"", handler.ifNoneMatch);
+        assertEquals(2, handler.notModifiedCount);
+    }
+
+    @Test
+    public void testIndexAppended() throws Exception {
+        final HttpDocumentCache cache = new HttpDocumentCache(cacheDirectory);
+        final File indexFile = new File(cacheDirectory, "index.properties");
+        handler.setDocument("<CMD>1</CMD>", "\"v1\"");
+        retrieve(cache);
+        final long indexLength = indexFile.length();
+        assertTrue(indexLength > 0);
+
+        // Storing a new version appends a record rather than rewriting the index
+        handler.setDocument("<CMD>2</CMD>", "\"v2\"");
+        retrieve(cache);
+        assertTrue(indexFile.length() > indexLength);
+
+        // Latest record wins when reading the index, which is then compacted
+        final HttpDocumentCache reopenedCache = new HttpDocumentCache(cacheDirectory);
+        assertTrue(indexFile.length() < 2 * indexLength);
+        assertEquals("<CMD>2</CMD>", retrieve(reopenedCache));
+        assertEquals("\"v2\"", handler.ifNoneMatch);
+        assertEquals(1, handler.notModifiedCount);
+    }
+
+    @Test
+    public void testNoValidators() throws Exception {
+        final HttpDocumentCache cache = new HttpDocumentCache(cacheDirectory);
+        handler.setDocument("<CMD>1</CMD>", null);
+        assertEquals("<CMD>1</CMD>", retrieve(cache));
+        assertFalse(cache.isCached(documentUrl));
+        assertEquals("<CMD>1</CMD>", retrieve(cache));
+        assertEquals(null, handler.ifNoneMatch);
+    }
+
+    private String retrieve(HttpDocumentCache cache) throws IOException {
+        final URLConnection connection = documentUrl.openConnection();
+        cache.addValidators(documentUrl, connection);
+        final InputStream stream = cache.getResponseStream(documentUrl, connection);
+        assertNotNull(stream);
+        try {
+            return new String(ContentDigest.readFully(stream), "UTF-8");
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static class TestHandler implements HttpHandler {
+
+        private volatile byte[] document;
+        private volatile String etag;
+        private volatile String ifNoneMatch;
+        private volatile int notModifiedCount = 0;
+
+        public void setDocument(String document, String etag) throws IOException {
+            this.document = document.getBytes("UTF-8");
+            this.etag = etag;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                if (etag != null && etag.equals(ifNoneMatch)) {
+                    notModifiedCount++;
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                } else {
+                    if (etag != null) {
+                        exchange.getResponseHeaders().set("ETag", etag);
+                    }
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, document.length);
+                    final OutputStream responseBody = exchange.getResponseBody();
+                    responseBody.write(document);
+                    responseBody.close();
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
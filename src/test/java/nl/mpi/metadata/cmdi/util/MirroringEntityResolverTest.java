@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 Max Planck Institute for Psycholinguistics
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.mpi.metadata.cmdi.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.util.Arrays;
+import nl.mpi.metadata.cmdi.api.CMDIAPITestCase;
+import nl.mpi.metadata.cmdi.api.type.CMDIProfile;
+import nl.mpi.metadata.cmdi.api.type.impl.CMDIProfileReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Twan Goosen <twan.goosen@mpi.nl>
+ */
+public class MirroringEntityResolverTest extends CMDIAPITestCase {
+
+    private File mirrorDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        mirrorDirectory = createTempDirectory("schema-mirror");
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(mirrorDirectory);
+    }
+
+    @Test
+    public void testResolveEntity() throws Exception {
+        final TestEntityResolver remoteResolver = new TestEntityResolver(new URL(REMOTE_TEXT_CORPUS_SCHEMA_URL), testSchemaTextCorpus);
+        MirroringEntityResolver resolver = new MirroringEntityResolver(mirrorDirectory, remoteResolver, false);
+        assertFalse(resolver.isMirrored(REMOTE_TEXT_CORPUS_SCHEMA_URL));
+
+        InputSource inputSource = resolver.resolveEntity(null, REMOTE_TEXT_CORPUS_SCHEMA_URL);
+        assertEquals(REMOTE_TEXT_CORPUS_SCHEMA_URL, inputSource.getSystemId());
+        assertTrue(Arrays.equals(readFully(testSchemaTextCorpus.openStream()), readFully(inputSource.getByteStream())));
+        assertEquals(1, remoteResolver.byteStreamRequested);
+        assertTrue(resolver.isMirrored(REMOTE_TEXT_CORPUS_SCHEMA_URL));
+
+        // Second time from mirror
+        inputSource = resolver.resolveEntity(null, REMOTE_TEXT_CORPUS_SCHEMA_URL);
+        assertTrue(Arrays.equals(readFully(testSchemaTextCorpus.openStream()), readFully(inputSource.getByteStream())));
+        assertEquals(1, remoteResolver.byteStreamRequested);
+
+        // xml.xsd is not mirrored
+        assertNotNull(resolver.resolveEntity(null, "http://www.w3.org/2001/xml.xsd").getByteStream());
+        assertFalse(resolver.isMirrored("http://www.w3.org/2001/xml.xsd"));
+    }
+
+    @Test
+    public void testIndexAppended() throws Exception {
+        final EntityResolver remoteResolver = new EntityResolver() {
+
+            @Override
+            public InputSource resolveEntity(String publicId, String systemId) throws IOException {
+                return new InputSource(testSchemaSmall.openStream());
+            }
+        };
+        final MirroringEntityResolver resolver = new MirroringEntityResolver(mirrorDirectory, remoteResolver, false);
+        final File indexFile = new File(mirrorDirectory, "index.properties");
+        resolver.resolveEntity(null, "http://www.clarin.eu/cmd/schema1.xsd").getByteStream().close();
+        final String index = new String(readFully(new FileInputStream(indexFile)), "ISO-8859-1");
+
+        // Mirroring another entity appends a record rather than rewriting the index
+        resolver.resolveEntity(null, "http://www.clarin.eu/cmd/schema2.xsd").getByteStream().close();
+        assertTrue(new String(readFully(new FileInputStream(indexFile)), "ISO-8859-1").startsWith(index));
+
+        // New instance reads all records
+        final MirroringEntityResolver offlineResolver = new MirroringEntityResolver(mirrorDirectory, true);
+        assertTrue(offlineResolver.isMirrored("http://www.clarin.eu/cmd/schema1.xsd"));
+        assertTrue(offlineResolver.isMirrored("http://www.clarin.eu/cmd/schema2.xsd"));
+    }
+
+    @Test
+    public void testOffline() throws Exception {
+        final TestEntityResolver remoteResolver = new TestEntityResolver(new URL(REMOTE_TEXT_CORPUS_SCHEMA_URL), testSchemaTextCorpus);
+        new MirroringEntityResolver(mirrorDirectory, remoteResolver, false).resolveEntity(null, REMOTE_TEXT_CORPUS_SCHEMA_URL).getByteStream().close();
+
+        // New instance reads index from mirror directory
+        final MirroringEntityResolver resolver = new MirroringEntityResolver(mirrorDirectory, true);
+        assertTrue(resolver.isOffline());
+        final CMDIProfile profile = new CMDIProfileReader(resolver).read(new URI(REMOTE_TEXT_CORPUS_SCHEMA_URL));
+        assertEquals("TextCorpusProfile", profile.getName());
+        assertEquals(1, remoteResolver.byteStreamRequested);
+
+        try {
+            resolver.resolveEntity(null, "http://www.clarin.eu/cmd/not-mirrored.xsd");
+            fail("Offline resolver should fail on entity that has not been mirrored");
+        } catch (FileNotFoundException ex) {
+            // expected
+        }
+    }
+
+    private static byte[] readFully(InputStream stream) throws Exception {
+        try {
+            return ContentDigest.readFully(stream);
+        } finally {
+            stream.close();
+        }
+    }
+}